@@ -16,13 +16,13 @@
  */
 package com.github.cardforge.maven.plugins.android;
 
-import com.android.builder.core.DefaultManifestParser;
 import com.android.ddmlib.AndroidDebugBridge;
 import com.android.ddmlib.DdmPreferences;
 import com.android.ddmlib.IDevice;
 import com.android.ddmlib.InstallException;
 import com.github.cardforge.maven.plugins.android.common.AaptCommandBuilder;
 import com.github.cardforge.maven.plugins.android.common.AndroidExtension;
+import com.github.cardforge.maven.plugins.android.common.AndroidManifestMetadata;
 import com.github.cardforge.maven.plugins.android.common.ArtifactResolverHelper;
 import com.github.cardforge.maven.plugins.android.common.DependencyResolver;
 import com.github.cardforge.maven.plugins.android.common.DeviceHelper;
@@ -35,9 +35,6 @@ import com.github.cardforge.maven.plugins.android.configuration.Sdk;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.filefilter.TrueFileFilter;
-import org.apache.commons.jxpath.JXPathContext;
-import org.apache.commons.jxpath.JXPathNotFoundException;
-import org.apache.commons.jxpath.xml.DocumentContainer;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.handler.ArtifactHandler;
@@ -53,24 +50,38 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.MavenProjectHelper;
 import org.apache.maven.shared.dependency.graph.DependencyGraphBuilder;
+import org.eclipse.aether.SessionData;
 
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
-import java.net.MalformedURLException;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.github.cardforge.maven.plugins.android.common.AndroidExtension.APK;
 import com.github.cardforge.maven.plugins.android.configuration.Jack;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
 /**
@@ -323,6 +334,17 @@ public abstract class AbstractAndroidMojo extends AbstractMojo
     @Parameter( property = "android.deviceThreads" )
     protected int deviceThreads;
 
+    /**
+     * <p>Maximum time, in milliseconds, that a goal may spend on a single device. The goal is interrupted on a
+     * device that takes longer, the other devices carry on, and the build fails once all of them are done.
+     * 0 means no limit.</p>
+     *
+     * <p>This parameter can also be configured from command-line with
+     * parameter <code>-Dandroid.deviceTimeout=600000</code>.</p>
+     */
+    @Parameter( property = "android.deviceTimeout", defaultValue = "0" )
+    protected long deviceTimeout;
+
     /**
      * <p>External IP addresses. The connect goal of the android maven plugin  will execute an adb connect on
      * each IP address. If you have external dervice, you should call this connect goal before any other goal :
@@ -532,6 +554,11 @@ public abstract class AbstractAndroidMojo extends AbstractMojo
      */
     private static final Object ADB_LOCK = new Object();
 
+    /**
+     * Key of the AndroidSdk instances within the session data.
+     */
+    private static final String SESSION_ANDROID_SDKS_KEY = AndroidSdk.class.getName() + ".instances";
+
     /**
      *
      */
@@ -763,16 +790,61 @@ public abstract class AbstractAndroidMojo extends AbstractMojo
 
     /**
      * Performs the callback action on the devices determined by
-     * {@link #shouldDoWithThisDevice(com.android.ddmlib.IDevice)}
+     * {@link #shouldDoWithThisDevice(com.android.ddmlib.IDevice)}. The callback runs on all devices, even if it fails
+     * on some of them, and is interrupted on any device where it takes longer than {@code android.deviceTimeout}.
      *
      * @param deviceCallback the action to perform on each device
+     * @return the result of the callback on each device, in the order of the devices
      * @throws org.apache.maven.plugin.MojoExecutionException
-     *          in case there is a problem
+     *          in case there is a problem, or the callback timed out on a device
      * @throws org.apache.maven.plugin.MojoFailureException
      *          in case there is a problem
      */
-    protected void doWithDevices( final DeviceCallback deviceCallback )
+    protected List<DeviceResult> doWithDevices( final DeviceCallback deviceCallback )
+            throws MojoExecutionException, MojoFailureException
+    {
+        return doWithDevices( findDevices(), deviceCallback );
+    }
+
+    /**
+     * Performs the callback action on the given devices, as found by {@link #findDevices()}. Lets goals that split
+     * work between the devices know all of them before the callback starts.
+     *
+     * @see #doWithDevices(DeviceCallback)
+     */
+    protected List<DeviceResult> doWithDevices( final List<IDevice> devices, final DeviceCallback deviceCallback )
             throws MojoExecutionException, MojoFailureException
+    {
+        int threadCount = getDeviceThreads();
+        if ( getDeviceThreads() == 0 )
+        {
+            getLog().info( "android.devicesThreads parameter not set, using a thread for each attached device" );
+            threadCount = devices.size();
+        }
+        else
+        {
+            getLog().info( "android.devicesThreads parameter set to " + getDeviceThreads() );
+        }
+
+        List<DeviceTask> tasks = new ArrayList<DeviceTask>();
+        for ( final IDevice idevice : devices )
+        {
+            tasks.add( new DeviceTask( idevice, deviceCallback ) );
+        }
+
+        List<DeviceResult> results = runDeviceTasks( tasks, threadCount );
+        throwAnyDeviceErrors( results );
+        return results;
+    }
+
+    /**
+     * Finds the attached devices determined by {@link #shouldDoWithThisDevice(com.android.ddmlib.IDevice)}.
+     *
+     * @return the devices to use, in the order reported by the Android Debug Bridge
+     * @throws org.apache.maven.plugin.MojoExecutionException
+     *          if no device is attached, or none of them matches {@code android.devices}
+     */
+    protected List<IDevice> findDevices() throws MojoExecutionException, MojoFailureException
     {
         final AndroidDebugBridge androidDebugBridge = initAndroidDebugBridge();
 
@@ -790,17 +862,6 @@ public abstract class AbstractAndroidMojo extends AbstractMojo
             throw new MojoExecutionException( "No online devices attached." );
         }
 
-        int threadCount = getDeviceThreads();
-        if ( getDeviceThreads() == 0 )
-        {
-            getLog().info( "android.devicesThreads parameter not set, using a thread for each attached device" );
-            threadCount = numberOfDevices;
-        }
-        else
-        {
-            getLog().info( "android.devicesThreads parameter set to " + getDeviceThreads() );
-        }
-
         boolean shouldRunOnAllDevices = getDevices().size() == 0;
         if ( shouldRunOnAllDevices )
         {
@@ -811,8 +872,7 @@ public abstract class AbstractAndroidMojo extends AbstractMojo
             getLog().info( "android.devices parameter set to " + getDevices().toString() );
         }
 
-        ArrayList<DoThread> doThreads = new ArrayList<DoThread>();
-        ExecutorService executor = Executors.newFixedThreadPool( threadCount );
+        List<IDevice> selectedDevices = new ArrayList<IDevice>();
         for ( final IDevice idevice : devices )
         {
             if ( shouldRunOnAllDevices )
@@ -822,41 +882,139 @@ public abstract class AbstractAndroidMojo extends AbstractMojo
             }
             if ( shouldRunOnAllDevices || shouldDoWithThisDevice( idevice ) )
             {
-                DoThread deviceDoThread = new DoThread() {
-                    public void runDo() throws MojoFailureException, MojoExecutionException
-                    {
-                        deviceCallback.doWithDevice( idevice );
-                    }
-                };
-                doThreads.add( deviceDoThread );
-                executor.execute( deviceDoThread );
+                selectedDevices.add( idevice );
             }
         }
-        executor.shutdown();
-        while ( ! executor.isTerminated() )
+
+        if ( ! shouldRunOnAllDevices && selectedDevices.isEmpty() )
         {
-            // waiting for threads finish
+            throw new MojoExecutionException( "No device found for android.device=" + getDevices().toString() );
         }
-        throwAnyDoThreadErrors( doThreads );
+        return selectedDevices;
+    }
 
-        if ( ! shouldRunOnAllDevices && doThreads.isEmpty() )
+    /**
+     * Runs the tasks on a pool of {@code threadCount} threads and waits, without spinning, until each of them has
+     * finished or exceeded {@link #getDeviceTimeout()}.
+     */
+    private List<DeviceResult> runDeviceTasks( List<DeviceTask> tasks, int threadCount )
+            throws MojoExecutionException
+    {
+        final long timeout = getDeviceTimeout();
+        final Map<DeviceTask, DeviceResult> results = new HashMap<DeviceTask, DeviceResult>();
+        final Map<Future<Void>, DeviceTask> pending = new LinkedHashMap<Future<Void>, DeviceTask>();
+        final ExecutorService executor = Executors.newFixedThreadPool( Math.max( 1, threadCount ) );
+        final CompletionService<Void> completionService = new ExecutorCompletionService<Void>( executor );
+        try
         {
-            throw new MojoExecutionException( "No device found for android.device=" + getDevices().toString() );
+            for ( DeviceTask task : tasks )
+            {
+                pending.put( completionService.submit( task ), task );
+            }
+            while ( ! pending.isEmpty() )
+            {
+                final Future<Void> done = timeout > 0
+                        ? completionService.poll( nextDeviceDeadline( pending.values(), timeout ), MILLISECONDS )
+                        : completionService.take();
+                // futures cancelled on timeout are queued as well, but have been accounted for already
+                final DeviceTask doneTask = done == null ? null : pending.remove( done );
+                if ( doneTask != null )
+                {
+                    results.put( doneTask, doneTask.getResult( done ) );
+                }
+                if ( timeout > 0 )
+                {
+                    cancelTimedOutDeviceTasks( pending, results, timeout );
+                }
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            for ( Map.Entry<Future<Void>, DeviceTask> entry : pending.entrySet() )
+            {
+                entry.getKey().cancel( true );
+                getLog().warn( DeviceHelper.getDescriptiveName( entry.getValue().device ) + ": cancelled" );
+            }
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException( "Interrupted while waiting for devices", e );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        final List<DeviceResult> orderedResults = new ArrayList<DeviceResult>( tasks.size() );
+        for ( DeviceTask task : tasks )
+        {
+            final DeviceResult result = results.get( task );
+            if ( result.isSuccess() )
+            {
+                getLog().debug( result.toString() );
+            }
+            else
+            {
+                getLog().warn( result.toString() );
+            }
+            orderedResults.add( result );
+        }
+        return orderedResults;
+    }
+
+    /**
+     * @return milliseconds until the first of the started tasks times out. Tasks that have not started yet cannot
+     * time out sooner than a full timeout from now.
+     */
+    private static long nextDeviceDeadline( Collection<DeviceTask> tasks, long timeout )
+    {
+        long wait = timeout;
+        for ( DeviceTask task : tasks )
+        {
+            if ( task.started )
+            {
+                wait = Math.min( wait, timeout - task.getElapsedMillis() );
+            }
         }
+        return Math.max( 0, wait );
     }
 
-    private void throwAnyDoThreadErrors( ArrayList<DoThread> doThreads ) throws MojoExecutionException,
+    private static void cancelTimedOutDeviceTasks( Map<Future<Void>, DeviceTask> pending,
+                                                   Map<DeviceTask, DeviceResult> results, long timeout )
+    {
+        final Iterator<Map.Entry<Future<Void>, DeviceTask>> iterator = pending.entrySet().iterator();
+        while ( iterator.hasNext() )
+        {
+            final Map.Entry<Future<Void>, DeviceTask> entry = iterator.next();
+            final DeviceTask task = entry.getValue();
+            final long elapsed = task.started ? task.getElapsedMillis() : 0;
+            if ( elapsed >= timeout && entry.getKey().cancel( true ) )
+            {
+                iterator.remove();
+                results.put( task, new DeviceResult( task.device, DeviceResult.Status.TIMED_OUT,
+                        new MojoExecutionException( "Timed out after " + elapsed + " ms on device "
+                                + DeviceHelper.getDescriptiveName( task.device ) ), elapsed ) );
+            }
+        }
+    }
+
+    private void throwAnyDeviceErrors( List<DeviceResult> results ) throws MojoExecutionException,
             MojoFailureException
     {
-        for ( DoThread deviceDoThread : doThreads )
+        for ( DeviceResult result : results )
         {
-            if ( deviceDoThread.failure != null )
+            final Exception exception = result.getException();
+            if ( exception instanceof MojoFailureException )
             {
-                throw deviceDoThread.failure;
+                throw ( MojoFailureException ) exception;
             }
-            if ( deviceDoThread.execution != null )
+            if ( exception instanceof MojoExecutionException )
             {
-                throw deviceDoThread.execution;
+                throw ( MojoExecutionException ) exception;
+            }
+            if ( exception != null )
+            {
+                throw new MojoExecutionException( "Error on device "
+                        + DeviceHelper.getDescriptiveName( result.getDevice() ) + ": " + exception.getMessage(),
+                        exception );
             }
         }
     }
@@ -1038,7 +1196,36 @@ public abstract class AbstractAndroidMojo extends AbstractMojo
 
     public String extractPackageNameFromAndroidManifest( File manifestFile )
     {
-        return new DefaultManifestParser( manifestFile ).getPackage();
+        try
+        {
+            return getAndroidManifestMetadata( manifestFile ).getPackageName();
+        }
+        catch ( MojoExecutionException e )
+        {
+            throw new IllegalStateException( e.getMessage(), e.getCause() );
+        }
+    }
+
+    /**
+     * Provides the metadata of an AndroidManifest.xml. Each manifest is only parsed once per session
+     * unless its content changes.
+     *
+     * @param manifestFile the AndroidManifest.xml file to inspect.
+     * @return the metadata of the manifest.
+     * @throws MojoExecutionException if the manifest could not be read or parsed.
+     */
+    protected final AndroidManifestMetadata getAndroidManifestMetadata( File manifestFile )
+            throws MojoExecutionException
+    {
+        try
+        {
+            return AndroidManifestMetadata.forManifest( manifestFile );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Error while trying to read AndroidManifest.xml file " + manifestFile,
+                    e );
+        }
     }
 
     /**
@@ -1059,29 +1246,7 @@ public abstract class AbstractAndroidMojo extends AbstractMojo
     public String extractInstrumentationRunnerFromAndroidManifest( File manifestFile )
             throws MojoExecutionException
     {
-        final URL xmlURL;
-        try
-        {
-            xmlURL = manifestFile.toURI().toURL();
-        }
-        catch ( MalformedURLException e )
-        {
-            throw new MojoExecutionException(
-                    "Error while trying to figure out instrumentation runner from inside AndroidManifest.xml file "
-                            + manifestFile, e );
-        }
-        final DocumentContainer documentContainer = new DocumentContainer( xmlURL );
-        final Object instrumentationRunner;
-        try
-        {
-            instrumentationRunner = JXPathContext.newContext( documentContainer )
-                    .getValue( "manifest//instrumentation/@android:name", String.class );
-        }
-        catch ( JXPathNotFoundException e )
-        {
-            return null;
-        }
-        return ( String ) instrumentationRunner;
+        return getAndroidManifestMetadata( manifestFile ).getInstrumentationRunner();
     }
 
     protected final boolean isInstrumentationTest() throws MojoExecutionException
@@ -1166,7 +1331,53 @@ public abstract class AbstractAndroidMojo extends AbstractMojo
             chosenSdkPlatform = sdkPlatform;
         }
 
-        return new AndroidSdk( chosenSdkPath, chosenSdkPlatform, buildToolsVersion );
+        return getSessionAndroidSdk( chosenSdkPath, chosenSdkPlatform, buildToolsVersion );
+    }
+
+    /**
+     * Provides the AndroidSdk for the configuration, creating it only once per session as creating it scans the SDK.
+     *
+     * @param sdkPath           Path to the Android SDK.
+     * @param platform          Platform or API level, may be {@code null}.
+     * @param buildToolsVersion Build tools version, may be {@code null}.
+     * @return the AndroidSdk shared by all mojos of this session that use the same configuration.
+     */
+    private AndroidSdk getSessionAndroidSdk( File sdkPath, String platform, String buildToolsVersion )
+    {
+        final ConcurrentMap<String, AndroidSdk> sdks = getSessionAndroidSdks();
+        if ( sdks == null )
+        {
+            return new AndroidSdk( sdkPath, platform, buildToolsVersion );
+        }
+
+        final String key = sdkPath.getAbsolutePath() + File.pathSeparator + platform
+                + File.pathSeparator + buildToolsVersion;
+        AndroidSdk androidSdk = sdks.get( key );
+        if ( androidSdk == null )
+        {
+            androidSdk = new AndroidSdk( sdkPath, platform, buildToolsVersion );
+            final AndroidSdk existing = sdks.putIfAbsent( key, androidSdk );
+            if ( existing != null )
+            {
+                androidSdk = existing;
+            }
+        }
+        return androidSdk;
+    }
+
+    /**
+     * @return the AndroidSdk instances of this session by configuration, or {@code null} if there is no session.
+     */
+    @SuppressWarnings( "unchecked" )
+    private ConcurrentMap<String, AndroidSdk> getSessionAndroidSdks()
+    {
+        if ( session == null || session.getRepositorySession() == null )
+        {
+            return null;
+        }
+        final SessionData data = session.getRepositorySession().getData();
+        data.set( SESSION_ANDROID_SDKS_KEY, null, new ConcurrentHashMap<String, AndroidSdk>() );
+        return ( ConcurrentMap<String, AndroidSdk> ) data.get( SESSION_ANDROID_SDKS_KEY );
     }
 
     protected Jack getJack() 
@@ -1328,6 +1539,14 @@ public abstract class AbstractAndroidMojo extends AbstractMojo
         return deviceThreads;
     }
 
+    /**
+     * The time a device goal may take on a single device, in milliseconds. 0 means no limit.
+     */
+    public long getDeviceTimeout()
+    {
+        return deviceTimeout;
+    }
+
     /**
      * The timeout value for an adb connection in milliseconds.
      */
@@ -1341,28 +1560,70 @@ public abstract class AbstractAndroidMojo extends AbstractMojo
         this.adbConnectionTimeout = adbConnectionTimeout;
     }
 
-    private abstract class DoThread extends Thread
+    /**
+     * Runs a {@link DeviceCallback} on one device and keeps track of when it started.
+     */
+    private static final class DeviceTask implements Callable<Void>
     {
-        private MojoFailureException failure;
-        private MojoExecutionException execution;
+        private final IDevice device;
+        private final DeviceCallback callback;
+        private volatile boolean started;
+        private volatile long startNanos;
+        private volatile long endNanos;
+
+        DeviceTask( IDevice device, DeviceCallback callback )
+        {
+            this.device = device;
+            this.callback = callback;
+        }
 
-        public final void run()
+        @Override
+        public Void call() throws Exception
         {
+            startNanos = System.nanoTime();
+            started = true;
             try
             {
-                runDo();
+                callback.doWithDevice( device );
             }
-            catch ( MojoFailureException e )
+            finally
             {
-                failure = e;
+                endNanos = System.nanoTime();
             }
-            catch ( MojoExecutionException e )
+            return null;
+        }
+
+        long getElapsedMillis()
+        {
+            return NANOSECONDS.toMillis( System.nanoTime() - startNanos );
+        }
+
+        DeviceResult getResult( Future<Void> future ) throws InterruptedException
+        {
+            final long duration = started ? NANOSECONDS.toMillis( endNanos - startNanos ) : 0;
+            try
+            {
+                future.get();
+                return new DeviceResult( device, DeviceResult.Status.SUCCESS, null, duration );
+            }
+            catch ( CancellationException e )
             {
-                execution = e;
+                return new DeviceResult( device, DeviceResult.Status.CANCELLED, new MojoExecutionException(
+                        "Cancelled on device " + DeviceHelper.getDescriptiveName( device ) ), duration );
+            }
+            catch ( ExecutionException e )
+            {
+                final Throwable cause = e.getCause();
+                if ( cause instanceof MojoFailureException )
+                {
+                    return new DeviceResult( device, DeviceResult.Status.FAILURE, ( Exception ) cause, duration );
+                }
+                final Exception exception = cause instanceof Exception
+                        ? ( Exception ) cause
+                        : new MojoExecutionException( String.valueOf( cause.getMessage() ), cause );
+                return new DeviceResult( device, DeviceResult.Status.ERROR, exception, duration );
             }
         }
-
-        protected abstract void runDo() throws MojoFailureException, MojoExecutionException;
     }
 
     /**
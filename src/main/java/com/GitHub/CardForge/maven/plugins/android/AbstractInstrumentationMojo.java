@@ -21,20 +21,36 @@ import com.android.ddmlib.IDevice;
 import com.android.ddmlib.ShellCommandUnresponsiveException;
 import com.android.ddmlib.TimeoutException;
 import com.android.ddmlib.testrunner.IRemoteAndroidTestRunner;
+import com.android.ddmlib.testrunner.ITestRunListener;
 import com.android.ddmlib.testrunner.RemoteAndroidTestRunner;
+import com.android.ddmlib.testrunner.TestIdentifier;
 import com.github.cardforge.maven.plugins.android.asm.AndroidTestFinder;
+import com.github.cardforge.maven.plugins.android.asm.ClassDependencyGraph;
 import com.github.cardforge.maven.plugins.android.common.DeviceHelper;
 import com.github.cardforge.maven.plugins.android.configuration.Test;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.maven.artifact.Artifact;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.surefire.Testsuite;
 
+import javax.xml.bind.JAXBException;
+
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * AbstractInstrumentationMojo implements running the instrumentation
@@ -45,6 +61,21 @@ import java.util.Map;
  */
 public abstract class AbstractInstrumentationMojo extends AbstractAndroidMojo
 {
+    private static final String SHARDING_NONE = "none";
+    private static final String SHARDING_RUNNER = "runner";
+    private static final String SHARDING_CLASSES = "classes";
+    private static final String SHARDING_QUEUE = "queue";
+
+    /**
+     * how many of the slowest tests of each device to list in the test matrix
+     */
+    private static final int SLOWEST_TESTS = 10;
+
+    /**
+     * the most characters of test names to pass in one <code>class</code> argument, which keeps the
+     * <code>am instrument</code> command within the shell command length of older devices
+     */
+    private static final int MAX_TEST_NAMES_LENGTH = 800;
 
     /**
      * -Dmaven.test.skip is commonly used with Maven to skip tests. We honor it too.
@@ -88,6 +119,14 @@ public abstract class AbstractInstrumentationMojo extends AbstractAndroidMojo
      *   &lt;logOnly&gt;true|false&lt;/logOnly&gt;  avd
      *   &lt;testSize&gt;small|medium|large&lt;/testSize&gt;
      *   &lt;createReport&gt;true|false&lt;/createReport&gt;
+     *   &lt;sharding&gt;none|runner|classes|queue&lt;/sharding&gt;
+     *   &lt;durationHistory&gt;&lt;/durationHistory&gt;
+     *   &lt;rerunFailingTestsCount&gt;0&lt;/rerunFailingTestsCount&gt;
+     *   &lt;rerunOnOtherDevice&gt;true|false&lt;/rerunOnOtherDevice&gt;
+     *   &lt;resumeIncompleteRuns&gt;true|false&lt;/resumeIncompleteRuns&gt;
+     *   &lt;eventStream&gt;&lt;/eventStream&gt;
+     *   &lt;impactSelection&gt;true|false&lt;/impactSelection&gt;
+     *   &lt;impactBaseline&gt;&lt;/impactBaseline&gt;
      *   &lt;classes&gt;
      *     &lt;class&gt;your.package.name.YourTestClass&lt;/class&gt;
      *   &lt;/classes&gt;
@@ -254,6 +293,104 @@ public abstract class AbstractInstrumentationMojo extends AbstractAndroidMojo
     @Parameter( property = "android.test.instrumentationArgs" )
     protected List<String> testInstrumentationArgs;
 
+    /**
+     * <p>How to split the tests between the devices:</p>
+     * <ul>
+     *     <li><code>none</code> runs all tests on every device.</li>
+     *     <li><code>runner</code> passes <code>numShards</code> and <code>shardIndex</code> to the instrumentation
+     *     runner, so that each device runs its share of the tests. The runner has to support it, as
+     *     <code>AndroidJUnitRunner</code> does.</li>
+     *     <li><code>classes</code> gives each device an equal share of the configured test classes, or of the test
+     *     classes found in the project output directory.</li>
+     *     <li><code>queue</code> lets the devices take the same test classes one at a time, so that faster devices
+     *     run more of them. The classes of a device that drops out are run by the others.</li>
+     * </ul>
+     * <p>If no test classes are configured and some classes of the project output directory extend classes of
+     * dependencies, so that they may be tests, <code>classes</code> and <code>queue</code> fall back to
+     * <code>runner</code>.</p>
+     * <p>When the tests are split, the reports of all devices are merged into one
+     * <code>TEST-&lt;instrumentationPackage&gt;.xml</code>.</p>
+     * or as e.g. -Dandroid.test.sharding=classes
+     */
+    @Parameter( property = "android.test.sharding", defaultValue = "none" )
+    private String testSharding;
+
+    /**
+     * <p>File in which the duration of each test class is kept between builds when the tests are split between the
+     * devices. With <code>classes</code> sharding, the classes are then split into shards that are expected to take
+     * about the same time. Classes without a duration yet are spread evenly. With <code>queue</code> sharding, the
+     * longest classes are queued first.</p>
+     * or as e.g. -Dandroid.test.durationHistory=ci/test-durations.properties
+     */
+    @Parameter( property = "android.test.durationHistory",
+            defaultValue = "${user.home}/.android/android-maven-plugin-test-durations/"
+                    + "${project.groupId}-${project.artifactId}.properties" )
+    private File testDurationHistory;
+
+    /**
+     * <p>How many times to rerun the tests that failed or had an error, until they pass. Only the failed test methods
+     * are rerun. A test that passes in a rerun is reported as flaky, with its failures as <code>flakyFailure</code>,
+     * and does not fail the build. A test that fails in every rerun gets a <code>rerunFailure</code> for each
+     * rerun.</p>
+     * or as e.g. -Dandroid.test.rerunFailingTestsCount=2
+     */
+    @Parameter( property = "android.test.rerunFailingTestsCount", defaultValue = "0" )
+    private int testRerunFailingTestsCount;
+
+    /**
+     * <p>Whether to rerun the failed tests of a device on another device, to tell tests that fail on one device only
+     * from tests that are flaky. Applies when the tests run on more than one device and are not shared with
+     * <code>queue</code> sharding.</p>
+     * or as e.g. -Dandroid.test.rerunOnOtherDevice=true
+     */
+    @Parameter( property = "android.test.rerunOnOtherDevice", defaultValue = "false" )
+    private boolean testRerunOnOtherDevice;
+
+    /**
+     * <p>Whether to resume a test run that failed to complete, e.g. as the app crashed, with the tests that did not run
+     * yet. The tests of the run are listed with a log only run, and those that did not start are run again, until all
+     * tests ran or the device is offline. The reports of the resumed runs are merged into the report of the run.</p>
+     * or as e.g. -Dandroid.test.resumeIncompleteRuns=false
+     */
+    @Parameter( property = "android.test.resumeIncompleteRuns", defaultValue = "true" )
+    private boolean testResumeIncompleteRuns;
+
+    /**
+     * <p>Where to stream the events of the test runs as JSON Lines while the tests run: a file, or
+     * <code>tcp://host:port</code> for a socket listening on a port, e.g. of a local dashboard. There is an event
+     * when a run starts, fails and ends, and when a test starts, fails, is ignored and ends, with the serial number
+     * of the device, the time in milliseconds since the stream was opened and the metrics reported by the tests.</p>
+     * or as e.g. -Dandroid.test.eventStream=target/test-events.jsonl
+     */
+    @Parameter( property = "android.test.eventStream" )
+    private String testEventStream;
+
+    /**
+     * <p>Whether to run only the test classes that may be affected by the changes since the baseline, the last build
+     * that ran the tests without failures. The classes of the project output directory and of the dependencies,
+     * such as the jar of the tested app, are parsed for the classes they refer to, and a test class is run if it
+     * changed or depends, directly or through other classes, on a class that changed. The selected classes are run
+     * as if they were configured as <code>classes</code>, out of the configured classes or packages. If no classes
+     * are configured, the test classes are found in the project output directory, and all tests run when some of
+     * its classes extend classes of dependencies, so that they may be tests.</p>
+     * <p>All tests run when there is no baseline yet, or when the resources, the assets, the manifest or an entry of
+     * a dependency other than its classes and dex files changed since the baseline, such as the manifest and
+     * resources of the apk of the tested app. They also run when the value of a constant field changed, as the
+     * compiler copies it into the classes using it, which then do not refer to its class.</p>
+     * or as e.g. -Dandroid.test.impactSelection=true
+     */
+    @Parameter( property = "android.test.impactSelection", defaultValue = "false" )
+    private boolean testImpactSelection;
+
+    /**
+     * <p>File in which the classes of the baseline of <code>impactSelection</code> are kept between builds.</p>
+     * or as e.g. -Dandroid.test.impactBaseline=ci/test-impact.txt
+     */
+    @Parameter( property = "android.test.impactBaseline",
+            defaultValue = "${user.home}/.android/android-maven-plugin-test-impact/"
+                    + "${project.groupId}-${project.artifactId}.txt" )
+    private File testImpactBaseline;
+
     private boolean classesExists;
     private boolean packagesExists;
 
@@ -272,9 +409,40 @@ public abstract class AbstractInstrumentationMojo extends AbstractAndroidMojo
     private Boolean parsedDebug;
     private Boolean parsedLogOnly;
     private Boolean parsedCreateReport;
+    private String parsedSharding;
+    private File parsedDurationHistory;
+    private int parsedRerunFailingTestsCount;
+    private boolean parsedRerunOnOtherDevice;
+    private boolean parsedResumeIncompleteRuns;
+    private String parsedEventStream;
+    private boolean parsedImpactSelection;
+    private File parsedImpactBaseline;
 
     private String packagesList;
 
+    // the shard of each device by serial number, when the tests are split between the devices
+    private Map<String, Integer> shardIndexes;
+    private int shardCount;
+    private List<List<String>> classShards;
+    private TestQueue testQueue;
+    // the test classes in the project output directory, read once per execution when they are needed
+    private AndroidTestFinder.TestClasses discoveredTestClasses;
+    private TestDurationHistory durationHistory;
+    private final List<File> shardReports = Collections.synchronizedList( new ArrayList<File>() );
+
+    // the report of each device, when all devices run the same tests
+    private TestEventStream eventStream;
+    private final Map<IDevice, File> deviceReports = Collections.synchronizedMap( new HashMap<IDevice, File>() );
+
+    // the run of each device that had failed tests, when they are rerun on another device
+    private boolean rerunOnOtherDevice;
+    private final Map<IDevice, AndroidTestRunListener> failedRuns = Collections.synchronizedMap(
+            new LinkedHashMap<IDevice, AndroidTestRunListener>() );
+
+    // the classes of this build, to become the baseline if the tests pass, when only affected tests are run
+    private ClassDependencyGraph impactGraph;
+    private volatile boolean testsPassed;
+
     protected void instrument() throws MojoExecutionException, MojoFailureException
     {
         parseConfiguration();
@@ -310,109 +478,910 @@ public abstract class AbstractInstrumentationMojo extends AbstractAndroidMojo
                     + "http://developer.android.com/guide/developing/testing/testing_otheride.html" );
         }
 
+        final boolean sharded = ! SHARDING_NONE.equalsIgnoreCase( parsedSharding );
+        if ( sharded && ! SHARDING_RUNNER.equalsIgnoreCase( parsedSharding )
+                && ! SHARDING_CLASSES.equalsIgnoreCase( parsedSharding )
+                && ! SHARDING_QUEUE.equalsIgnoreCase( parsedSharding ) )
+        {
+            throw new MojoFailureException( "android.test.sharding must be configured as '" + SHARDING_NONE + "', '"
+                    + SHARDING_RUNNER + "', '" + SHARDING_CLASSES + "' or '" + SHARDING_QUEUE + "'." );
+        }
+        shardIndexes = null;
+        classShards = null;
+        testQueue = null;
+        discoveredTestClasses = null;
+        durationHistory = null;
+        shardReports.clear();
+        failedRuns.clear();
+        deviceReports.clear();
+        impactGraph = null;
+        testsPassed = true;
+
+        if ( parsedImpactSelection && ! selectAffectedTests() )
+        {
+            saveImpactBaseline();
+            return;
+        }
+
         DeviceCallback instrumentationTestExecutor = new DeviceCallback()
         {
             public void doWithDevice( final IDevice device ) throws MojoExecutionException, MojoFailureException
             {
+                if ( testQueue != null )
+                {
+                    runTestQueue( device );
+                    return;
+                }
+
                 String deviceLogLinePrefix = DeviceHelper.getDeviceLogLinePrefix( device );
 
-                RemoteAndroidTestRunner remoteAndroidTestRunner = new RemoteAndroidTestRunner(
-                        parsedInstrumentationPackage, parsedInstrumentationRunner, device );
+                RemoteAndroidTestRunner remoteAndroidTestRunner = createTestRunner( device );
 
-                if ( packagesExists )
+                final Integer shardIndex = shardIndexes == null ? null : shardIndexes.get( device.getSerialNumber() );
+                if ( shardIndex != null && classShards != null )
                 {
-                    for ( String str : packagesList.split( "," ) )
+                    final List<String> shard = classShards.get( shardIndex );
+                    if ( shard.isEmpty() )
                     {
-                        remoteAndroidTestRunner.setTestPackageName( str );
-                        getLog().info( deviceLogLinePrefix + "Running tests for specified test package: " + str );
+                        getLog().info( deviceLogLinePrefix + "No test classes left for this device, skipping." );
+                        return;
                     }
+                    remoteAndroidTestRunner.setClassNames( shard.toArray( new String[ shard.size() ] ) );
+                    getLog().info( deviceLogLinePrefix + "Running test shard " + ( shardIndex + 1 ) + "/"
+                            + shardCount + " with " + shard.size() + " test classes" );
                 }
-
-                if ( classesExists )
+                else
                 {
-                    remoteAndroidTestRunner
-                            .setClassNames( parsedClasses.toArray( new String[ parsedClasses.size() ] ) );
-                    getLog().info( deviceLogLinePrefix + "Running tests for specified test classes/methods: " 
-                            + parsedClasses );
-                }
-
-                if ( parsedAnnotations != null )
-                {
-                    for ( String annotation : parsedAnnotations )
+                    if ( packagesExists )
                     {
-                        remoteAndroidTestRunner.addInstrumentationArg( "annotation", annotation );
+                        for ( String str : packagesList.split( "," ) )
+                        {
+                            remoteAndroidTestRunner.setTestPackageName( str );
+                            getLog().info( deviceLogLinePrefix + "Running tests for specified test package: "
+                                    + str );
+                        }
                     }
-                }
 
-                if ( parsedExcludeAnnotations != null )
-                {
-                    for ( String annotation : parsedExcludeAnnotations )
+                    if ( classesExists )
                     {
-                        remoteAndroidTestRunner.addInstrumentationArg( "notAnnotation", annotation );
+                        remoteAndroidTestRunner
+                                .setClassNames( parsedClasses.toArray( new String[ parsedClasses.size() ] ) );
+                        getLog().info( deviceLogLinePrefix + "Running tests for specified test classes/methods: "
+                                + parsedClasses );
                     }
 
+                    if ( shardIndex != null )
+                    {
+                        remoteAndroidTestRunner.addInstrumentationArg( "numShards", Integer.toString( shardCount ) );
+                        remoteAndroidTestRunner.addInstrumentationArg( "shardIndex", Integer.toString( shardIndex ) );
+                        getLog().info( deviceLogLinePrefix + "Running test shard " + ( shardIndex + 1 ) + "/"
+                                + shardCount );
+                    }
                 }
 
-                remoteAndroidTestRunner.setDebug( parsedDebug );
-                remoteAndroidTestRunner.setCoverage( parsedCoverage );
-                if ( StringUtils.isNotBlank( parsedCoverageFile ) )
+                getLog().info( deviceLogLinePrefix +  "Running instrumentation tests in " 
+                        + parsedInstrumentationPackage );
+                final AndroidTestRunListener testRunListener = runTests( remoteAndroidTestRunner, device, "" );
+                if ( shardIndexes == null && testRunListener.getReportFile() != null )
                 {
-                    remoteAndroidTestRunner.addInstrumentationArg( "coverageFile", parsedCoverageFile );
+                    deviceReports.put( device, testRunListener.getReportFile() );
                 }
-                remoteAndroidTestRunner.setLogOnly( parsedLogOnly );
-
-                if ( StringUtils.isNotBlank( parsedTestSize ) )
+                if ( rerunOnOtherDevice && testRunListener.hasFailuresOrErrors() )
                 {
-                    IRemoteAndroidTestRunner.TestSize validSize = IRemoteAndroidTestRunner.TestSize
-                            .getTestSize( parsedTestSize );
-                    remoteAndroidTestRunner.setTestSize( validSize );
+                    checkTestRun( testRunListener, false, deviceLogLinePrefix );
+                    failedRuns.put( device, testRunListener );
+                    return;
                 }
+                checkTestRun( testRunListener, rerunFailedTests( device, testRunListener, "" ),
+                        deviceLogLinePrefix );
+            }
+        };
 
-                addAllInstrumentationArgs( remoteAndroidTestRunner, parsedInstrumentationArgs );
+        instrumentationTestExecutor = new ScreenshotServiceWrapper( instrumentationTestExecutor, project, getLog() );
 
-                getLog().info( deviceLogLinePrefix +  "Running instrumentation tests in " 
-                        + parsedInstrumentationPackage );
+        final List<IDevice> devices = findDevices();
+        rerunOnOtherDevice = parsedRerunOnOtherDevice && parsedRerunFailingTestsCount > 0 && devices.size() > 1
+                && ! SHARDING_QUEUE.equalsIgnoreCase( parsedSharding );
+        eventStream = openEventStream();
+        try
+        {
+            runOnDevices( devices, sharded, instrumentationTestExecutor );
+        }
+        finally
+        {
+            IOUtils.closeQuietly( eventStream );
+            eventStream = null;
+        }
+        saveImpactBaseline();
+    }
+
+    /**
+     * Narrows the tests down to the test classes affected by the changes since the baseline, unless all tests have
+     * to run.
+     *
+     * @return <code>false</code> if no test class is affected, so that no test has to run
+     */
+    private boolean selectAffectedTests() throws MojoExecutionException
+    {
+        final List<File> classpath = new ArrayList<File>();
+        final List<File> resources = new ArrayList<File>();
+        classpath.add( projectOutputDirectory );
+        resources.add( resourceDirectory );
+        resources.add( assetsDirectory );
+        resources.add( androidManifestFile );
+        // the tested app comes as an apk, whose manifest and resources count, and as a jar with its classes
+        for ( Artifact artifact : project.getArtifacts() )
+        {
+            if ( artifact.getFile() != null )
+            {
+                classpath.add( artifact.getFile() );
+            }
+        }
+        impactGraph = ClassDependencyGraph.build( classpath, resources );
+
+        final ClassDependencyGraph baseline = ClassDependencyGraph.load( parsedImpactBaseline );
+        if ( baseline == null )
+        {
+            getLog().info( "No test impact baseline in " + parsedImpactBaseline + ", running all tests" );
+            return true;
+        }
+        if ( impactGraph.isResourcesChanged( baseline ) )
+        {
+            getLog().info( "Resources, assets, the manifest or a dependency changed since the test impact baseline, "
+                    + "running all tests" );
+            return true;
+        }
+        final Set<String> changedConstants = impactGraph.getClassesWithChangedConstants( baseline );
+        if ( ! changedConstants.isEmpty() )
+        {
+            getLog().info( "Constants of " + changedConstants + " changed since the test impact baseline, which the "
+                    + "compiler copies into the classes using them, running all tests" );
+            return true;
+        }
+
+        // the selected classes replace the configured packages or the whole suite, so they must not miss a test
+        if ( ! isTestDiscoveryComplete() )
+        {
+            getLog().info( "Not all test classes could be found to select the affected ones, running all tests" );
+            return true;
+        }
+
+        // configured classes may name test methods as class#method
+        final List<String> candidates = findTestClassesToShard();
+        final List<String> candidateClasses = new ArrayList<String>();
+        for ( String candidate : candidates )
+        {
+            candidateClasses.add( StringUtils.substringBefore( candidate, "#" ) );
+        }
+        final Set<String> affectedClasses = new HashSet<String>(
+                impactGraph.selectAffected( candidateClasses, baseline ) );
+        final List<String> selected = new ArrayList<String>();
+        for ( String candidate : candidates )
+        {
+            if ( affectedClasses.contains( StringUtils.substringBefore( candidate, "#" ) ) )
+            {
+                selected.add( candidate );
+            }
+        }
+
+        if ( selected.isEmpty() )
+        {
+            getLog().info( "No test class is affected by the changes since the test impact baseline, skipping tests" );
+            return false;
+        }
+        getLog().info( "Running " + selected.size() + " of " + candidates.size()
+                + " test classes affected by the changes since the test impact baseline" );
+        parsedClasses = selected;
+        classesExists = true;
+        packagesExists = false;
+        return true;
+    }
+
+    /**
+     * Keeps the classes of this build as the baseline of the next one, unless tests failed, so that they run again.
+     * Failing to write it only means that the next build runs the tests affected by the changes since an older
+     * baseline.
+     */
+    private void saveImpactBaseline()
+    {
+        if ( impactGraph == null || ! testsPassed )
+        {
+            return;
+        }
+        try
+        {
+            impactGraph.save( parsedImpactBaseline );
+        }
+        catch ( IOException e )
+        {
+            getLog().warn( "Failed to save the test impact baseline " + parsedImpactBaseline, e );
+        }
+    }
+
+    /**
+     * Runs the tests on the devices, all tests on each device or split between them, and combines the reports.
+     */
+    private void runOnDevices( List<IDevice> devices, boolean sharded, DeviceCallback instrumentationTestExecutor )
+            throws MojoExecutionException, MojoFailureException
+    {
+        if ( ! sharded )
+        {
+            try
+            {
+                doWithDevices( devices, instrumentationTestExecutor );
+                rerunOnOtherDevices( devices );
+            }
+            finally
+            {
+                writeTestMatrix( devices );
+            }
+            return;
+        }
+
+        planShards( devices );
+        try
+        {
+            doWithDevices( devices, instrumentationTestExecutor );
+            if ( testQueue != null && ! testQueue.getRemaining().isEmpty() )
+            {
+                throw new MojoExecutionException( "All devices dropped out before running the test classes "
+                        + testQueue.getRemaining() );
+            }
+            rerunOnOtherDevices( devices );
+        }
+        finally
+        {
+            saveDurationHistory();
+            mergeShardReports();
+        }
+    }
+
+    /**
+     * Keeps the durations of the test classes for the next build. Failing to write them only means that the next
+     * build splits the classes with older durations.
+     */
+    private void saveDurationHistory()
+    {
+        try
+        {
+            durationHistory.save();
+        }
+        catch ( IOException e )
+        {
+            getLog().warn( "Failed to save the test duration history " + parsedDurationHistory, e );
+        }
+    }
+
+    /**
+     * @return the stream for the events of the test runs, or <code>null</code> if none is configured or it cannot be
+     * opened.
+     */
+    private TestEventStream openEventStream()
+    {
+        if ( StringUtils.isBlank( parsedEventStream ) )
+        {
+            return null;
+        }
+        try
+        {
+            final TestEventStream stream = TestEventStream.open( parsedEventStream, getLog() );
+            getLog().info( "Streaming test events to " + parsedEventStream );
+            return stream;
+        }
+        catch ( IOException e )
+        {
+            getLog().warn( "Failed to open the test event stream " + parsedEventStream + ", running without it", e );
+            return null;
+        }
+    }
+
+    /**
+     * @param reportSuffix suffix of the report file, to tell apart several runs on the same device
+     * @return a listener for a run on the device, writing to the event stream if there is one
+     */
+    private AndroidTestRunListener createTestRunListener( IDevice device, String reportSuffix )
+    {
+        final AndroidTestRunListener testRunListener = new AndroidTestRunListener( device, getLog(),
+                parsedCreateReport, false, "", reportSuffix, targetDirectory );
+        testRunListener.setEventStream( eventStream );
+        return testRunListener;
+    }
+
+    /**
+     * @return a test runner for the device with the options that apply to any selection of tests.
+     */
+    private RemoteAndroidTestRunner createTestRunner( IDevice device )
+    {
+        RemoteAndroidTestRunner remoteAndroidTestRunner = new RemoteAndroidTestRunner(
+                parsedInstrumentationPackage, parsedInstrumentationRunner, device );
+
+        if ( parsedAnnotations != null )
+        {
+            for ( String annotation : parsedAnnotations )
+            {
+                remoteAndroidTestRunner.addInstrumentationArg( "annotation", annotation );
+            }
+        }
+
+        if ( parsedExcludeAnnotations != null )
+        {
+            for ( String annotation : parsedExcludeAnnotations )
+            {
+                remoteAndroidTestRunner.addInstrumentationArg( "notAnnotation", annotation );
+            }
+
+        }
+
+        remoteAndroidTestRunner.setDebug( parsedDebug );
+        remoteAndroidTestRunner.setCoverage( parsedCoverage );
+        if ( StringUtils.isNotBlank( parsedCoverageFile ) )
+        {
+            remoteAndroidTestRunner.addInstrumentationArg( "coverageFile", parsedCoverageFile );
+        }
+        remoteAndroidTestRunner.setLogOnly( parsedLogOnly );
+
+        if ( StringUtils.isNotBlank( parsedTestSize ) )
+        {
+            IRemoteAndroidTestRunner.TestSize validSize = IRemoteAndroidTestRunner.TestSize
+                    .getTestSize( parsedTestSize );
+            remoteAndroidTestRunner.setTestSize( validSize );
+        }
+
+        addAllInstrumentationArgs( remoteAndroidTestRunner, parsedInstrumentationArgs );
+        return remoteAndroidTestRunner;
+    }
+
+    /**
+     * Runs the tests selected in the runner, resumes the run if it does not complete and keeps the report for merging
+     * if the tests are split between devices.
+     *
+     * @param reportSuffix suffix of the report file, to tell apart several runs on the same device
+     * @return the listener of the run, holding its results
+     * @throws MojoExecutionException if the run could not be completed on the device
+     */
+    private AndroidTestRunListener runTests( RemoteAndroidTestRunner remoteAndroidTestRunner, IDevice device,
+                                             String reportSuffix ) throws MojoExecutionException
+    {
+        final AndroidTestRunListener testRunListener = createTestRunListener( device, reportSuffix );
+        testRunListener.setDurationHistory( durationHistory );
+        runTests( remoteAndroidTestRunner, device, testRunListener );
+        if ( parsedResumeIncompleteRuns && ! parsedLogOnly && testRunListener.testRunFailed() && device.isOnline() )
+        {
+            resumeTestRun( remoteAndroidTestRunner, device, testRunListener, reportSuffix );
+        }
+        if ( shardIndexes != null && testRunListener.getReportFile() != null )
+        {
+            shardReports.add( testRunListener.getReportFile() );
+        }
+        return testRunListener;
+    }
+
+    /**
+     * @throws MojoExecutionException if the run could not be completed on the device
+     */
+    private void runTests( RemoteAndroidTestRunner remoteAndroidTestRunner, IDevice device,
+                           ITestRunListener testRunListener ) throws MojoExecutionException
+    {
+        String deviceLogLinePrefix = DeviceHelper.getDeviceLogLinePrefix( device );
+        try
+        {
+            remoteAndroidTestRunner.run( testRunListener );
+        }
+        catch ( TimeoutException e )
+        {
+            throw new MojoExecutionException( deviceLogLinePrefix + "timeout", e );
+        }
+        catch ( AdbCommandRejectedException e )
+        {
+            throw new MojoExecutionException( deviceLogLinePrefix + "adb command rejected", e );
+        }
+        catch ( ShellCommandUnresponsiveException e )
+        {
+            throw new MojoExecutionException( deviceLogLinePrefix + "shell command " + "unresponsive", e );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( deviceLogLinePrefix + "IO problem", e );
+        }
+    }
+
+    /**
+     * Runs the tests of a run that failed to complete that did not start, so that one crash does not hide the results
+     * of all later tests. The tests that started are not run again, including the one that was running when the run
+     * failed. The tests are resumed in batches of names that fit in a shell command. Stops once all tests ran, a
+     * resumed run runs no test, or the device is offline.
+     *
+     * @param remoteAndroidTestRunner the runner of the run, to list its tests
+     * @param reportSuffix            suffix of the report file of the run
+     */
+    private void resumeTestRun( RemoteAndroidTestRunner remoteAndroidTestRunner, IDevice device,
+                                AndroidTestRunListener testRunListener, String reportSuffix )
+    {
+        final String deviceLogLinePrefix = DeviceHelper.getDeviceLogLinePrefix( device );
+        final TestCollector testCollector = new TestCollector();
+        try
+        {
+            remoteAndroidTestRunner.setLogOnly( true );
+            runTests( remoteAndroidTestRunner, device, testCollector );
+        }
+        catch ( MojoExecutionException e )
+        {
+            getLog().warn( deviceLogLinePrefix + "Failed to list the tests to resume the run", e.getCause() );
+            return;
+        }
+        finally
+        {
+            remoteAndroidTestRunner.setLogOnly( false );
+        }
+
+        final List<File> resumeReports = new ArrayList<File>();
+        for ( int resume = 1; device.isOnline(); resume++ )
+        {
+            final List<String> testNames = testCollector.getTestsNotIn( testRunListener.getStartedTests() );
+            if ( testNames.isEmpty() )
+            {
+                break;
+            }
+            // a run that failed early can leave many tests, which go in batches that fit in a shell command
+            final List<String> batch = TestCollector.batch( testNames, MAX_TEST_NAMES_LENGTH ).get( 0 );
+            if ( testRunListener.testRunFailed() )
+            {
+                getLog().warn( deviceLogLinePrefix + "Test run failed to complete: "
+                        + testRunListener.getTestRunFailureCause() + ", resuming with the tests that did not run" );
+            }
+            getLog().info( deviceLogLinePrefix + "Resuming with " + batch.size() + " of the " + testNames.size()
+                    + " classes and tests that did not run" );
+            final RemoteAndroidTestRunner resumeRunner = createTestRunner( device );
+            resumeRunner.setClassNames( batch.toArray( new String[ batch.size() ] ) );
+            final AndroidTestRunListener resumeListener = createTestRunListener( device, reportSuffix + "-resume"
+                    + resume );
+            resumeListener.setDurationHistory( durationHistory );
+            try
+            {
+                runTests( resumeRunner, device, resumeListener );
+            }
+            catch ( MojoExecutionException e )
+            {
+                getLog().warn( e.getMessage(), e.getCause() );
+                break;
+            }
+            if ( resumeListener.getReportFile() != null )
+            {
+                resumeReports.add( resumeListener.getReportFile() );
+            }
+            testRunListener.addResumedRun( resumeListener );
+            if ( resumeListener.getStartedTests().isEmpty() )
+            {
+                break;
+            }
+        }
+
+        if ( testRunListener.getReportFile() != null && ! resumeReports.isEmpty() )
+        {
+            final List<File> reports = new ArrayList<File>();
+            reports.add( testRunListener.getReportFile() );
+            reports.addAll( resumeReports );
+            try
+            {
+                final Testsuite merged = TestReportMerger.merge( parsedInstrumentationPackage, reports );
+                // the runs announce all the tests they select, but only some of them ran in each
+                merged.setTests( Integer.toString( merged.getTestcase().size() ) );
+                TestReportMerger.write( merged, testRunListener.getReportFile() );
+            }
+            catch ( JAXBException e )
+            {
+                getLog().error( "Failed to merge the reports of the resumed runs into "
+                        + testRunListener.getReportFile().getAbsolutePath(), e );
+            }
+            for ( File resumeReport : resumeReports )
+            {
+                FileUtils.deleteQuietly( resumeReport );
+            }
+        }
+    }
+
+    /**
+     * Reruns the failed tests of a run, up to the configured number of times or until they pass, and records the
+     * reruns in the report of the run.
+     *
+     * @param device       the device to rerun the tests on, which need not be the device of the run
+     * @param reportSuffix suffix of the report file of the run
+     * @return if tests of the run still fail
+     */
+    private boolean rerunFailedTests( IDevice device, AndroidTestRunListener testRunListener, String reportSuffix )
+    {
+        final String deviceLogLinePrefix = DeviceHelper.getDeviceLogLinePrefix( device );
+        final Set<TestIdentifier> failedTests = new LinkedHashSet<TestIdentifier>( testRunListener.getFailedTests() );
+        final List<File> rerunReports = new ArrayList<File>();
+        for ( int rerun = 1; rerun <= parsedRerunFailingTestsCount && ! failedTests.isEmpty(); rerun++ )
+        {
+            final List<String> testMethods = new ArrayList<String>();
+            for ( TestIdentifier failedTest : failedTests )
+            {
+                testMethods.add( failedTest.getClassName() + "#" + failedTest.getTestName() );
+            }
+            getLog().info( deviceLogLinePrefix + "Rerunning " + testMethods.size() + " failed tests (" + rerun + "/"
+                    + parsedRerunFailingTestsCount + ")" );
+            final List<List<String>> batches = TestCollector.batch( testMethods, MAX_TEST_NAMES_LENGTH );
+            boolean rerunCompleted = true;
+            for ( int i = 0; i < batches.size() && rerunCompleted; i++ )
+            {
+                final List<String> batch = batches.get( i );
+                final RemoteAndroidTestRunner remoteAndroidTestRunner = createTestRunner( device );
+                remoteAndroidTestRunner.setClassNames( batch.toArray( new String[ batch.size() ] ) );
+                final AndroidTestRunListener rerunListener = createTestRunListener( device, reportSuffix + "-rerun"
+                        + rerun + ( batches.size() > 1 ? "-" + ( i + 1 ) : "" ) );
                 try
                 {
-                    AndroidTestRunListener testRunListener = new AndroidTestRunListener( device, getLog(),
-                            parsedCreateReport, false, "", "", targetDirectory );
-                    remoteAndroidTestRunner.run( testRunListener );
-                    if ( testRunListener.hasFailuresOrErrors() && !testFailSafe )
+                    runTests( remoteAndroidTestRunner, device, rerunListener );
+                }
+                catch ( MojoExecutionException e )
+                {
+                    getLog().warn( e.getMessage(), e.getCause() );
+                    rerunCompleted = false;
+                    continue;
+                }
+                if ( rerunListener.getReportFile() != null )
+                {
+                    rerunReports.add( rerunListener.getReportFile() );
+                }
+                failedTests.removeAll( rerunListener.getPassedTests() );
+            }
+            if ( ! rerunCompleted )
+            {
+                break;
+            }
+        }
+
+        if ( testRunListener.getReportFile() != null && ! rerunReports.isEmpty() )
+        {
+            try
+            {
+                TestReportMerger.applyReruns( testRunListener.getReportFile(), rerunReports );
+            }
+            catch ( JAXBException e )
+            {
+                getLog().error( "Failed to record the reruns in " + testRunListener.getReportFile()
+                        .getAbsolutePath(), e );
+            }
+            for ( File rerunReport : rerunReports )
+            {
+                FileUtils.deleteQuietly( rerunReport );
+            }
+        }
+        return ! failedTests.isEmpty();
+    }
+
+    /**
+     * Reruns the failed tests of each device on the next device.
+     *
+     * @throws MojoFailureException if tests still fail, unless the tests are fail safe
+     */
+    private void rerunOnOtherDevices( List<IDevice> devices ) throws MojoExecutionException, MojoFailureException
+    {
+        if ( failedRuns.isEmpty() )
+        {
+            return;
+        }
+        final Map<IDevice, List<IDevice>> rerunDevices = new LinkedHashMap<IDevice, List<IDevice>>();
+        for ( IDevice device : failedRuns.keySet() )
+        {
+            final IDevice otherDevice = devices.get( ( devices.indexOf( device ) + 1 ) % devices.size() );
+            if ( ! rerunDevices.containsKey( otherDevice ) )
+            {
+                rerunDevices.put( otherDevice, new ArrayList<IDevice>() );
+            }
+            rerunDevices.get( otherDevice ).add( device );
+        }
+
+        final List<String> failedDevices = Collections.synchronizedList( new ArrayList<String>() );
+        doWithDevices( new ArrayList<IDevice>( rerunDevices.keySet() ), new DeviceCallback()
+        {
+            public void doWithDevice( IDevice otherDevice )
+            {
+                for ( IDevice device : rerunDevices.get( otherDevice ) )
+                {
+                    getLog().info( DeviceHelper.getDeviceLogLinePrefix( otherDevice ) + "Rerunning the failed tests of "
+                            + DeviceHelper.getDescriptiveName( device ) );
+                    if ( rerunFailedTests( otherDevice, failedRuns.get( device ), "" ) )
                     {
-                        throw new MojoFailureException( deviceLogLinePrefix + "Tests failed on device." );
+                        testsPassed = false;
+                        failedDevices.add( DeviceHelper.getDescriptiveName( device ) );
                     }
-                    if ( testRunListener.testRunFailed() && !testFailSafe  )
+                }
+            }
+        } );
+        if ( ! failedDevices.isEmpty() && ! testFailSafe )
+        {
+            throw new MojoFailureException( "Tests failed on devices " + failedDevices + ", also when rerun on "
+                    + "another device." );
+        }
+    }
+
+    /**
+     * @param testsFailed if tests failed, after any reruns
+     * @throws MojoFailureException if tests failed or the run did not complete, unless the tests are fail safe
+     */
+    private void checkTestRun( AndroidTestRunListener testRunListener, boolean testsFailed,
+                               String deviceLogLinePrefix ) throws MojoFailureException
+    {
+        if ( testsFailed || testRunListener.testRunFailed() || testRunListener.threwException() )
+        {
+            testsPassed = false;
+        }
+        if ( testsFailed && !testFailSafe )
+        {
+            throw new MojoFailureException( deviceLogLinePrefix + "Tests failed on device." );
+        }
+        if ( testRunListener.testRunFailed() && !testFailSafe  )
+        {
+            throw new MojoFailureException( deviceLogLinePrefix + "Test run failed to complete: " 
+                    + testRunListener.getTestRunFailureCause() );
+        }
+        if ( testRunListener.threwException() && !testFailSafe  )
+        {
+            throw new MojoFailureException( deviceLogLinePrefix +  testRunListener.getExceptionMessages() );
+        }
+    }
+
+    /**
+     * Runs test classes from the shared queue one at a time until it is drained. If the device drops out, the class
+     * it was running is put back for the other devices and the device stops taking classes.
+     */
+    private void runTestQueue( IDevice device ) throws MojoExecutionException, MojoFailureException
+    {
+        final String deviceLogLinePrefix = DeviceHelper.getDeviceLogLinePrefix( device );
+        MojoFailureException failure = null;
+        int classCount = 0;
+        try
+        {
+            String testClass;
+            while ( ( testClass = testQueue.take() ) != null )
+            {
+                final RemoteAndroidTestRunner remoteAndroidTestRunner = createTestRunner( device );
+                remoteAndroidTestRunner.setClassName( testClass );
+                getLog().info( deviceLogLinePrefix + "Running test class " + testClass );
+
+                AndroidTestRunListener testRunListener = null;
+                boolean completed = false;
+                try
+                {
+                    testRunListener = runTests( remoteAndroidTestRunner, device, "-" + testClass );
+                    completed = ! testRunListener.testRunFailed() || device.isOnline();
+                }
+                catch ( MojoExecutionException e )
+                {
+                    getLog().warn( e.getMessage(), e.getCause() );
+                }
+                finally
+                {
+                    if ( completed )
                     {
-                        throw new MojoFailureException( deviceLogLinePrefix + "Test run failed to complete: " 
-                                + testRunListener.getTestRunFailureCause() );
+                        testQueue.done( testClass );
                     }
-                    if ( testRunListener.threwException() && !testFailSafe  )
+                    else
                     {
-                        throw new MojoFailureException( deviceLogLinePrefix +  testRunListener.getExceptionMessages() );
+                        testQueue.putBack( testClass );
                     }
                 }
-                catch ( TimeoutException e )
+
+                if ( ! completed )
                 {
-                    throw new MojoExecutionException( deviceLogLinePrefix + "timeout", e );
+                    if ( testRunListener != null && testRunListener.getReportFile() != null )
+                    {
+                        shardReports.remove( testRunListener.getReportFile() );
+                        FileUtils.deleteQuietly( testRunListener.getReportFile() );
+                    }
+                    getLog().warn( deviceLogLinePrefix + "Device dropped out, leaving " + testClass
+                            + " to the other devices" );
+                    break;
                 }
-                catch ( AdbCommandRejectedException e )
+                classCount++;
+                try
                 {
-                    throw new MojoExecutionException( deviceLogLinePrefix + "adb command rejected", e );
+                    checkTestRun( testRunListener, rerunFailedTests( device, testRunListener, "-" + testClass ),
+                            deviceLogLinePrefix );
                 }
-                catch ( ShellCommandUnresponsiveException e )
+                catch ( MojoFailureException e )
                 {
-                    throw new MojoExecutionException( deviceLogLinePrefix + "shell command " + "unresponsive", e );
+                    if ( failure == null )
+                    {
+                        failure = e;
+                    }
                 }
-                catch ( IOException e )
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException( deviceLogLinePrefix + "Interrupted while waiting for test classes", e );
+        }
+        getLog().info( deviceLogLinePrefix + "Ran " + classCount + " test classes" );
+        if ( failure != null )
+        {
+            throw failure;
+        }
+    }
+
+    /**
+     * Assigns each device a shard of the tests, by its position in the list of devices, or queues the test classes
+     * for the devices to share.
+     */
+    private void planShards( List<IDevice> devices ) throws MojoExecutionException
+    {
+        shardCount = devices.size();
+        durationHistory = TestDurationHistory.load( parsedDurationHistory );
+        shardIndexes = new HashMap<String, Integer>();
+        for ( int i = 0; i < devices.size(); i++ )
+        {
+            shardIndexes.put( devices.get( i ).getSerialNumber(), i );
+        }
+        if ( SHARDING_CLASSES.equalsIgnoreCase( parsedSharding ) && isTestDiscoveryComplete() )
+        {
+            final List<String> testClasses = findTestClassesToShard();
+            getLog().info( "Splitting " + testClasses.size() + " test classes between " + shardCount + " devices" );
+            classShards = TestShards.split( testClasses, shardCount, durationHistory.getDurations( testClasses ) );
+        }
+        else if ( SHARDING_QUEUE.equalsIgnoreCase( parsedSharding ) && isTestDiscoveryComplete() )
+        {
+            final List<String> testClasses = findTestClassesToShard();
+            getLog().info( "Sharing " + testClasses.size() + " test classes between " + shardCount + " devices" );
+            testQueue = new TestQueue( testClasses, durationHistory.getDurations( testClasses ) );
+        }
+        else
+        {
+            // also when the test classes could not all be found, as the runner finds them itself
+            getLog().info( "Splitting the tests between " + shardCount + " devices" );
+        }
+    }
+
+    /**
+     * @return the configured test classes, or else the test classes in the project output directory that are in the
+     * configured packages.
+     */
+    private List<String> findTestClassesToShard() throws MojoExecutionException
+    {
+        if ( classesExists )
+        {
+            return parsedClasses;
+        }
+        return filterTestPackages( discoverTestClasses().getTestClasses() );
+    }
+
+    /**
+     * Tells whether {@link #findTestClassesToShard()} finds all the tests that the runner would run, and logs the
+     * classes that could not be told apart from tests otherwise.
+     *
+     * @return <code>true</code> if the test classes are configured, or no class in the configured packages of the
+     * project output directory could not be told apart from a test
+     */
+    private boolean isTestDiscoveryComplete() throws MojoExecutionException
+    {
+        if ( classesExists )
+        {
+            return true;
+        }
+        final List<String> unresolvedClasses = filterTestPackages( discoverTestClasses().getUnresolvedClasses() );
+        if ( unresolvedClasses.isEmpty() )
+        {
+            return true;
+        }
+        getLog().warn( "Could not tell whether " + unresolvedClasses.size() + " classes are tests, as they extend "
+                + "classes of dependencies or are nested in classes that are not tests: " + unresolvedClasses );
+        return false;
+    }
+
+    private AndroidTestFinder.TestClasses discoverTestClasses() throws MojoExecutionException
+    {
+        if ( discoveredTestClasses == null )
+        {
+            discoveredTestClasses = AndroidTestFinder.discoverTestClasses( projectOutputDirectory );
+        }
+        return discoveredTestClasses;
+    }
+
+    /**
+     * @return the classes that are in the configured packages, or all of them if no packages are configured.
+     */
+    private List<String> filterTestPackages( List<String> classes )
+    {
+        if ( ! packagesExists )
+        {
+            return classes;
+        }
+        final List<String> packageClasses = new ArrayList<String>();
+        for ( String testClass : classes )
+        {
+            for ( String testPackage : packagesList.split( "," ) )
+            {
+                if ( testClass.startsWith( testPackage + "." ) )
                 {
-                    throw new MojoExecutionException( deviceLogLinePrefix + "IO problem", e );
+                    packageClasses.add( testClass );
+                    break;
                 }
             }
-        };
+        }
+        return packageClasses;
+    }
 
-        instrumentationTestExecutor = new ScreenshotServiceWrapper( instrumentationTestExecutor, project, getLog() );
+    /**
+     * Merges the reports of all shards into one report for the instrumentation package, and deletes them so that
+     * their tests are not counted twice.
+     */
+    private void mergeShardReports()
+    {
+        if ( ! parsedCreateReport || shardReports.isEmpty() )
+        {
+            return;
+        }
+        final File reportFile = new File( targetDirectory, "surefire-reports/TEST-" + parsedInstrumentationPackage
+                + ".xml" );
+        try
+        {
+            final Testsuite merged = TestReportMerger.merge( parsedInstrumentationPackage, shardReports );
+            TestReportMerger.write( merged, reportFile );
+            for ( File shardReport : shardReports )
+            {
+                FileUtils.deleteQuietly( shardReport );
+            }
+            getLog().info( "Merged the reports of " + shardReports.size() + " shards into "
+                    + reportFile.getAbsolutePath() );
+        }
+        catch ( JAXBException e )
+        {
+            getLog().error( "Failed to merge the test shard reports into " + reportFile.getAbsolutePath(), e );
+        }
+    }
+
+    /**
+     * Compares the reports of the devices, which ran the same tests, in a junit xml report and a json file with the
+     * result of each test on each device, and logs the totals of each device.
+     */
+    private void writeTestMatrix( List<IDevice> devices )
+    {
+        final Map<String, File> reports = new LinkedHashMap<String, File>();
+        for ( IDevice device : devices )
+        {
+            final File report = deviceReports.get( device );
+            if ( report != null && report.isFile() )
+            {
+                reports.put( DeviceHelper.getDescriptiveName( device ), report );
+            }
+        }
+        if ( reports.size() < 2 )
+        {
+            return;
+        }
 
-        doWithDevices( instrumentationTestExecutor );
+        final File xmlFile = new File( targetDirectory, "android-test-matrix.xml" );
+        final File jsonFile = new File( targetDirectory, "android-test-matrix.json" );
+        try
+        {
+            final TestMatrix matrix = TestMatrix.read( reports );
+            TestReportMerger.write( matrix.toTestsuite( parsedInstrumentationPackage ), xmlFile );
+            matrix.writeJson( jsonFile, SLOWEST_TESTS );
+            for ( String device : matrix.getDevices() )
+            {
+                final List<String> slowestTests = matrix.getSlowestTests( device, 1 );
+                getLog().info( device + ": " + matrix.count( device, TestMatrix.FAILED ) + " failed, "
+                        + matrix.count( device, TestMatrix.ERROR ) + " errors, "
+                        + matrix.count( device, TestMatrix.FLAKY ) + " flaky in "
+                        + String.format( "%.3f s", matrix.getTotalTime( device ) )
+                        + ( slowestTests.isEmpty() ? "" : ", slowest test " + slowestTests.get( 0 ) + " in "
+                        + String.format( "%.3f s", matrix.getTime( slowestTests.get( 0 ), device ) ) ) );
+            }
+            if ( ! matrix.isConsistent() )
+            {
+                getLog().warn( "The tests did not have the same results on all devices, see "
+                        + jsonFile.getAbsolutePath() );
+            }
+            getLog().info( "Test matrix of " + reports.size() + " devices written to " + xmlFile.getAbsolutePath()
+                    + " and " + jsonFile.getAbsolutePath() );
+        }
+        catch ( JAXBException | IOException e )
+        {
+            getLog().error( "Failed to write the test matrix of the devices", e );
+        }
     }
 
     private void addAllInstrumentationArgs(
@@ -535,6 +1504,71 @@ public abstract class AbstractInstrumentationMojo extends AbstractAndroidMojo
                 parsedCreateReport = testCreateReport;
             }
 
+            if ( StringUtils.isNotEmpty( test.getSharding() ) )
+            {
+                parsedSharding = test.getSharding();
+            }
+            else
+            {
+                parsedSharding = testSharding;
+            }
+            if ( test.getDurationHistory() != null )
+            {
+                parsedDurationHistory = test.getDurationHistory();
+            }
+            else
+            {
+                parsedDurationHistory = testDurationHistory;
+            }
+            if ( test.getRerunFailingTestsCount() != null )
+            {
+                parsedRerunFailingTestsCount = test.getRerunFailingTestsCount();
+            }
+            else
+            {
+                parsedRerunFailingTestsCount = testRerunFailingTestsCount;
+            }
+            if ( test.isRerunOnOtherDevice() != null )
+            {
+                parsedRerunOnOtherDevice = test.isRerunOnOtherDevice();
+            }
+            else
+            {
+                parsedRerunOnOtherDevice = testRerunOnOtherDevice;
+            }
+            if ( test.isResumeIncompleteRuns() != null )
+            {
+                parsedResumeIncompleteRuns = test.isResumeIncompleteRuns();
+            }
+            else
+            {
+                parsedResumeIncompleteRuns = testResumeIncompleteRuns;
+            }
+            if ( StringUtils.isNotEmpty( test.getEventStream() ) )
+            {
+                parsedEventStream = test.getEventStream();
+            }
+            else
+            {
+                parsedEventStream = testEventStream;
+            }
+            if ( test.isImpactSelection() != null )
+            {
+                parsedImpactSelection = test.isImpactSelection();
+            }
+            else
+            {
+                parsedImpactSelection = testImpactSelection;
+            }
+            if ( test.getImpactBaseline() != null )
+            {
+                parsedImpactBaseline = test.getImpactBaseline();
+            }
+            else
+            {
+                parsedImpactBaseline = testImpactBaseline;
+            }
+
             parsedInstrumentationArgs = InstrumentationArgumentParser.parse( test.getInstrumentationArgs() );
         }
         // no pom, we take properties
@@ -553,6 +1587,14 @@ public abstract class AbstractInstrumentationMojo extends AbstractAndroidMojo
             parsedDebug = testDebug;
             parsedLogOnly = testLogOnly;
             parsedCreateReport = testCreateReport;
+            parsedSharding = testSharding;
+            parsedDurationHistory = testDurationHistory;
+            parsedRerunFailingTestsCount = testRerunFailingTestsCount;
+            parsedRerunOnOtherDevice = testRerunOnOtherDevice;
+            parsedResumeIncompleteRuns = testResumeIncompleteRuns;
+            parsedEventStream = testEventStream;
+            parsedImpactSelection = testImpactSelection;
+            parsedImpactBaseline = testImpactBaseline;
             parsedInstrumentationArgs = InstrumentationArgumentParser.parse( testInstrumentationArgs );
         }
     }
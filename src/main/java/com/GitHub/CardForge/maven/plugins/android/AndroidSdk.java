@@ -72,12 +72,23 @@ public class AndroidSdk
     private File platformToolsPath;
     private File toolsPath;
 
-    private final IAndroidTarget androidTarget;
+    private final String apiLevel;
+    private IAndroidTarget androidTarget;
     private AndroidSdkHandler sdkManager;
     private int sdkMajorVersion;
     private final String buildToolsVersion;
     private final ProgressIndicatorImpl progressIndicator;
 
+    /**
+     * The build tools resolved by {@link #getBuildToolInfo()}, kept as every tool path lookup needs them.
+     */
+    private BuildToolInfo buildToolInfo;
+
+    /**
+     * Paths resolved by a previous build for the same configuration, {@code null} without an SDK path.
+     */
+    private final AndroidSdkLayoutIndex layoutIndex;
+
     public AndroidSdk( File sdkPath, String apiLevel )
     {
         this( sdkPath, apiLevel, null );
@@ -89,16 +100,21 @@ public class AndroidSdk
         this.buildToolsVersion = buildToolsVersion;
         this.progressIndicator = new ProgressIndicatorImpl();
 
+        if ( apiLevel == null )
+        {
+            apiLevel = DEFAULT_ANDROID_API_LEVEL;
+        }
+        this.apiLevel = apiLevel;
+
         if ( sdkPath != null )
         {
-            sdkManager = AndroidSdkHandler.getInstance( sdkPath );
             platformToolsPath = new File( sdkPath, SdkConstants.FD_PLATFORM_TOOLS );
             toolsPath = new File( sdkPath, SdkConstants.FD_TOOLS );
-
-            if ( sdkManager == null )
-            {
-                throw invalidSdkException( sdkPath, apiLevel );
-            }
+            layoutIndex = AndroidSdkLayoutIndex.load( sdkPath, apiLevel, buildToolsVersion );
+        }
+        else
+        {
+            layoutIndex = null;
         }
 
         /*
@@ -111,18 +127,90 @@ public class AndroidSdk
          */
         //loadSDKToolsMajorVersion();
 
-        if ( apiLevel == null )
-        {
-            apiLevel = DEFAULT_ANDROID_API_LEVEL;
-        }
         System.out.println( "API: " + apiLevel + " | SDK Path: " + sdkPath.getPath() + " | Buildtools: "
                 + buildToolsVersion );
 
+        if ( layoutIndex.isValid() )
+        {
+            // the SDK handler and platform are only loaded if something that is not indexed is asked for
+            return;
+        }
+
         androidTarget = findPlatformByApiLevel( apiLevel );
         if ( androidTarget == null )
         {
             throw invalidSdkException( sdkPath, apiLevel );
         }
+        indexLayout();
+    }
+
+    /**
+     * Records the paths of the platform and build tools in the layout index, so that the next build with the same
+     * SDK does not need to load the SDK handler. Nothing is recorded if the build tools can not be resolved, the
+     * error is then reported by the first build tool lookup, as without the index.
+     */
+    private void indexLayout()
+    {
+        final BuildToolInfo buildTools;
+        try
+        {
+            buildTools = getBuildToolInfo();
+        }
+        catch ( RuntimeException e )
+        {
+            return;
+        }
+
+        for ( BuildToolInfo.PathId pathId : BuildToolInfo.PathId.values() )
+        {
+            indexExistingPath( pathId.name(), buildTools.getPath( pathId ) );
+        }
+        indexExistingPath( AndroidSdkLayoutIndex.BUILD_TOOLS_LOCATION, buildTools.getLocation().getAbsolutePath() );
+        layoutIndex.put( AndroidSdkLayoutIndex.BUILD_TOOLS_REVISION, buildTools.getRevision().toString() );
+        indexExistingPath( AndroidSdkLayoutIndex.FRAMEWORK_AIDL,
+                androidTarget.getPath( IAndroidTarget.ANDROID_AIDL ) );
+        indexExistingPath( AndroidSdkLayoutIndex.ANDROID_JAR, androidTarget.getPath( IAndroidTarget.ANDROID_JAR ) );
+        indexExistingPath( AndroidSdkLayoutIndex.PLATFORM_LOCATION, androidTarget.getLocation() );
+        layoutIndex.save();
+    }
+
+    private void indexExistingPath( String key, String path )
+    {
+        if ( path != null && new File( path ).exists() )
+        {
+            layoutIndex.put( key, path );
+        }
+    }
+
+    private String getIndexedPath( String key )
+    {
+        return layoutIndex == null ? null : layoutIndex.get( key );
+    }
+
+    private synchronized AndroidSdkHandler getSdkManager()
+    {
+        if ( sdkManager == null )
+        {
+            sdkManager = AndroidSdkHandler.getInstance( sdkPath );
+            if ( sdkManager == null )
+            {
+                throw invalidSdkException( sdkPath, apiLevel );
+            }
+        }
+        return sdkManager;
+    }
+
+    private synchronized IAndroidTarget getAndroidTarget()
+    {
+        if ( androidTarget == null )
+        {
+            androidTarget = findPlatformByApiLevel( apiLevel );
+            if ( androidTarget == null )
+            {
+                throw invalidSdkException( sdkPath, apiLevel );
+            }
+        }
+        return androidTarget;
     }
 
     private InvalidSdkException invalidSdkException( File sdkPath, String platformOrApiLevel )
@@ -140,7 +228,7 @@ public class AndroidSdk
         {
             version = new AndroidVersion( apiLevel );
             String hashString = AndroidTargetHash.getPlatformHashString( version );
-            IAndroidTarget target = sdkManager.getAndroidTargetManager( progressIndicator )
+            IAndroidTarget target = getSdkManager().getAndroidTargetManager( progressIndicator )
                     .getTargetFromHashString( hashString, progressIndicator );
 
             // SdkManager may return a non-null IAndroidTarget that references nothing.
@@ -156,7 +244,7 @@ public class AndroidSdk
         }
 
         // fallback to searching for platform on standard Android platforms (isPlatform() is true)
-        for ( IAndroidTarget t: sdkManager.getAndroidTargetManager( null ).getTargets( null ) )
+        for ( IAndroidTarget t: getSdkManager().getAndroidTargetManager( null ).getTargets( null ) )
         {
             if ( t.isPlatform() && apiLevel.equals( t.getVersionName() ) )
             {
@@ -251,7 +339,7 @@ public class AndroidSdk
      */
     public String getBuildToolsLibDirectoryPath()
     {
-        File buildToolsLib = new File( getBuildToolInfo().getLocation(), "lib" );
+        File buildToolsLib = new File( getBuildToolsLocation(), "lib" );
         if ( buildToolsLib.exists() )
         {
             return buildToolsLib.getAbsolutePath();
@@ -265,8 +353,7 @@ public class AndroidSdk
      */
     public String getMainDexClassesRulesPath()
     {
-        File mainDexClassesRules = new File( getBuildToolInfo().getLocation(),
-                "mainDexClasses.rules" );
+        File mainDexClassesRules = new File( getBuildToolsLocation(), "mainDexClasses.rules" );
         if ( mainDexClassesRules.exists() )
         {
             return mainDexClassesRules.getAbsolutePath();
@@ -277,8 +364,11 @@ public class AndroidSdk
     public void assertThatBuildToolsVersionIsAtLeast( String version, String feature )
             throws InvalidSdkException, NumberFormatException
     {
-        if ( getBuildToolInfo().getRevision().
-                compareTo( Revision.parseRevision( version ) ) < 0 )
+        final String indexedRevision = getIndexedPath( AndroidSdkLayoutIndex.BUILD_TOOLS_REVISION );
+        final Revision revision = indexedRevision != null
+                ? Revision.parseRevision( indexedRevision )
+                : getBuildToolInfo().getRevision();
+        if ( revision.compareTo( Revision.parseRevision( version ) ) < 0 )
         {
             throw new InvalidSdkException( "Version of build tools must be at least "
                     + version + " for " + feature + " to work" );
@@ -359,15 +449,39 @@ public class AndroidSdk
 
     private String getPathForBuildTool( BuildToolInfo.PathId pathId )
     {
+        final String indexedPath = getIndexedPath( pathId.name() );
+        if ( indexedPath != null )
+        {
+            return indexedPath;
+        }
         return getBuildToolInfo().getPath( pathId );
     }
 
-    private BuildToolInfo getBuildToolInfo()
+    private File getBuildToolsLocation()
+    {
+        final String indexedPath = getIndexedPath( AndroidSdkLayoutIndex.BUILD_TOOLS_LOCATION );
+        if ( indexedPath != null )
+        {
+            return new File( indexedPath );
+        }
+        return getBuildToolInfo().getLocation();
+    }
+
+    private synchronized BuildToolInfo getBuildToolInfo()
+    {
+        if ( buildToolInfo == null )
+        {
+            buildToolInfo = resolveBuildToolInfo();
+        }
+        return buildToolInfo;
+    }
+
+    private BuildToolInfo resolveBuildToolInfo()
     {
         //First we use the build tools specified in the pom file
         if ( buildToolsVersion != null && !buildToolsVersion.equals( "" ) )
         {
-            BuildToolInfo buildToolInfo = sdkManager.getBuildToolInfo( Revision.parseRevision( buildToolsVersion ),
+            BuildToolInfo buildToolInfo = getSdkManager().getBuildToolInfo( Revision.parseRevision( buildToolsVersion ),
                     progressIndicator );
             if ( buildToolInfo != null )
             {
@@ -388,16 +502,13 @@ public class AndroidSdk
                     + " Check your Android SDK to install the build tools " + buildToolsVersion );
         }
 
-        if ( androidTarget != null )
+        BuildToolInfo targetBuildToolInfo = getAndroidTarget().getBuildToolInfo();
+        if ( targetBuildToolInfo != null )
         {
-            BuildToolInfo buildToolInfo = androidTarget.getBuildToolInfo();
-            if ( buildToolInfo != null )
-            {
-                return buildToolInfo;
-            }
+            return targetBuildToolInfo;
         }
-        // if no valid target is defined, or it has no build tools installed, try to use the latest
-        BuildToolInfo latestBuildToolInfo = sdkManager.getLatestBuildTool( progressIndicator, true );
+        // if the target has no build tools installed, try to use the latest
+        BuildToolInfo latestBuildToolInfo = getSdkManager().getLatestBuildTool( progressIndicator, true );
         if ( latestBuildToolInfo == null )
         {
             throw new InvalidSdkException( "Invalid SDK: Build-tools not found. Check the content of '"
@@ -438,7 +549,7 @@ public class AndroidSdk
         Predicate<Revision> majorVersionFilter = revision -> revision.getMajor() == majorVersion;
 
         // Fetch the latest local package that matches the prefix and major version
-        LocalPackage latestPackage = sdkManager.getLatestLocalPackageForPrefix(
+        LocalPackage latestPackage = getSdkManager().getLatestLocalPackageForPrefix(
                 prefix, majorVersionFilter, false, progressIndicator);
 
         if (latestPackage == null) {
@@ -455,7 +566,12 @@ public class AndroidSdk
      */
     public String getPathForFrameworkAidl()
     {
-        return androidTarget.getPath( IAndroidTarget.ANDROID_AIDL );
+        final String indexedPath = getIndexedPath( AndroidSdkLayoutIndex.FRAMEWORK_AIDL );
+        if ( indexedPath != null )
+        {
+            return indexedPath;
+        }
+        return getAndroidTarget().getPath( IAndroidTarget.ANDROID_AIDL );
     }
 
     /**
@@ -467,10 +583,15 @@ public class AndroidSdk
      */
     public File getAndroidJar() throws MojoExecutionException
     {
-        final String androidJarPath = androidTarget.getPath( IAndroidTarget.ANDROID_JAR );
+        final String indexedPath = getIndexedPath( AndroidSdkLayoutIndex.ANDROID_JAR );
+        if ( indexedPath != null )
+        {
+            return new File( indexedPath );
+        }
+        final String androidJarPath = getAndroidTarget().getPath( IAndroidTarget.ANDROID_JAR );
         if ( androidJarPath == null )
         {
-            throw new MojoExecutionException( "No AndroidJar found for " + androidTarget.getLocation() );
+            throw new MojoExecutionException( "No AndroidJar found for " + getAndroidTarget().getLocation() );
         }
         return new File ( androidJarPath );
     }
@@ -502,11 +623,16 @@ public class AndroidSdk
         final File platformsDirectory = new File( sdkPath, PLATFORMS_FOLDER_NAME );
         assertPathIsDirectory( platformsDirectory );
 
+        final String indexedPath = getIndexedPath( AndroidSdkLayoutIndex.PLATFORM_LOCATION );
         final File platformDirectory;
-        if ( androidTarget == null )
+        if ( indexedPath != null )
+        {
+            platformDirectory = new File( indexedPath );
+        }
+        else if ( getAndroidTarget() == null )
         {
             IAndroidTarget latestTarget = null;
-            AndroidTargetManager targetManager = sdkManager.getAndroidTargetManager( progressIndicator );
+            AndroidTargetManager targetManager = getSdkManager().getAndroidTargetManager( progressIndicator );
             for ( IAndroidTarget target: targetManager.getTargets( progressIndicator ) )
             {
                 if ( target.isPlatform() && (latestTarget == null
@@ -520,7 +646,7 @@ public class AndroidSdk
         }
         else
         {
-            platformDirectory = new File( androidTarget.getLocation() );
+            platformDirectory = new File( getAndroidTarget().getLocation() );
         }
         assertPathIsDirectory( platformDirectory );
         return platformDirectory;
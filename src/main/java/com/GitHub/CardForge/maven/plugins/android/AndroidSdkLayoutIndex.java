@@ -0,0 +1,189 @@
+package com.github.cardforge.maven.plugins.android;
+
+import com.github.cardforge.maven.plugins.android.common.Fingerprint;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Index of the tool and platform paths resolved for an Android SDK configuration, persisted between builds.
+ * <p>
+ * Resolving them requires the SDK handler to read the manifests of every installed package, which is slow on large
+ * or network mounted SDKs. The index is stamped with the package manifests of the installed platforms and build tools
+ * and their modification times, so it is discarded as soon as a platform or build tools package changes.
+ */
+final class AndroidSdkLayoutIndex
+{
+    static final String BUILD_TOOLS_LOCATION = "build-tools.location";
+    static final String BUILD_TOOLS_REVISION = "build-tools.revision";
+    static final String FRAMEWORK_AIDL = "platform.framework.aidl";
+    static final String ANDROID_JAR = "platform.android.jar";
+    static final String PLATFORM_LOCATION = "platform.location";
+
+    /**
+     * Folder, within the user home, in which the indexes are kept.
+     */
+    private static final String INDEX_FOLDER = ".android" + File.separator + "android-maven-plugin-sdk-index";
+
+    private static final String STAMP = "stamp";
+    private static final String[] PACKAGE_FOLDERS = { "platforms", "build-tools" };
+    private static final String[] PACKAGE_MANIFESTS = { "package.xml", "source.properties" };
+
+    private final File indexFile;
+    private final String stamp;
+    private final Properties values;
+
+    private AndroidSdkLayoutIndex( File indexFile, String stamp, Properties values )
+    {
+        this.indexFile = indexFile;
+        this.stamp = stamp;
+        this.values = values;
+    }
+
+    /**
+     * @param sdkPath           Path to the Android SDK.
+     * @param apiLevel          Platform or API level that was requested.
+     * @param buildToolsVersion Build tools version that was requested, may be {@code null}.
+     * @return the index for the configuration. It is empty if it did not exist or the SDK has changed since.
+     */
+    static AndroidSdkLayoutIndex load( File sdkPath, String apiLevel, String buildToolsVersion )
+    {
+        final String key = new Fingerprint()
+                .add( sdkPath.getAbsolutePath() )
+                .add( apiLevel )
+                .add( buildToolsVersion )
+                .getValue();
+        final File indexFile = new File( System.getProperty( "user.home" ),
+                INDEX_FOLDER + File.separator + key + ".properties" );
+        final String stamp = computeStamp( sdkPath );
+
+        final Properties values = new Properties();
+        if ( indexFile.isFile() )
+        {
+            try ( InputStream in = new FileInputStream( indexFile ) )
+            {
+                values.load( in );
+            }
+            catch ( IOException e )
+            {
+                values.clear();
+            }
+        }
+
+        if ( !stamp.equals( values.getProperty( STAMP ) ) || !allIndexedFilesExist( values ) )
+        {
+            values.clear();
+        }
+        return new AndroidSdkLayoutIndex( indexFile, stamp, values );
+    }
+
+    /**
+     * @return true if the index holds the resolved paths.
+     */
+    boolean isValid()
+    {
+        return values.containsKey( STAMP );
+    }
+
+    /**
+     * @param key   Name of the value, either one of the constants or the name of a build tool PathId.
+     * @return the indexed value, or {@code null} if it is not indexed.
+     */
+    String get( String key )
+    {
+        return values.getProperty( key );
+    }
+
+    void put( String key, String value )
+    {
+        if ( value != null )
+        {
+            values.setProperty( key, value );
+        }
+    }
+
+    /**
+     * Writes the index for the next build. Failing to write it only means that the next build will resolve the
+     * paths again.
+     * <p>
+     * Builds running at the same time share the index, so each writes its own temporary file and moves it over the
+     * index in one step.
+     */
+    void save()
+    {
+        values.setProperty( STAMP, stamp );
+        indexFile.getParentFile().mkdirs();
+        File tempFile = null;
+        try
+        {
+            tempFile = File.createTempFile( indexFile.getName(), ".tmp", indexFile.getParentFile() );
+            try ( OutputStream out = new FileOutputStream( tempFile ) )
+            {
+                values.store( out, "Android SDK layout index" );
+            }
+            Files.move( tempFile.toPath(), indexFile.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING );
+        }
+        catch ( IOException e )
+        {
+            // the next build resolves the paths again
+        }
+        finally
+        {
+            if ( tempFile != null )
+            {
+                tempFile.delete();
+            }
+        }
+    }
+
+    private static String computeStamp( File sdkPath )
+    {
+        final Fingerprint fingerprint = new Fingerprint();
+        for ( final String packageFolder : PACKAGE_FOLDERS )
+        {
+            final File folder = new File( sdkPath, packageFolder );
+            fingerprint.add( folder.getAbsolutePath() ).add( String.valueOf( folder.lastModified() ) );
+
+            final File[] packages = folder.listFiles();
+            if ( packages == null )
+            {
+                continue;
+            }
+            Arrays.sort( packages );
+            for ( final File packageDir : packages )
+            {
+                for ( final String packageManifest : PACKAGE_MANIFESTS )
+                {
+                    final File manifest = new File( packageDir, packageManifest );
+                    fingerprint.add( manifest.getAbsolutePath() ).add( String.valueOf( manifest.lastModified() ) );
+                }
+            }
+        }
+        return fingerprint.getValue();
+    }
+
+    private static boolean allIndexedFilesExist( Properties values )
+    {
+        for ( final String key : values.stringPropertyNames() )
+        {
+            if ( STAMP.equals( key ) || BUILD_TOOLS_REVISION.equals( key ) )
+            {
+                continue;
+            }
+            if ( !new File( values.getProperty( key ) ).exists() )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -10,20 +10,21 @@ import com.android.ddmlib.testrunner.TestIdentifier;
 import com.github.cardforge.maven.plugins.android.common.DeviceHelper;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.surefire.ObjectFactory;
 import org.apache.maven.surefire.Testsuite;
 
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
-
 import java.io.File;
 import java.io.IOException;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * AndroidTestRunListener produces a nice output for the log for the test run as well as an xml file compatible with
@@ -66,8 +67,14 @@ public class AndroidTestRunListener implements ITestRunListener
     private final String deviceLogLinePrefix;
 
     private final ObjectFactory objectFactory = new ObjectFactory();
-    private Testsuite report;
+    private JUnitReportWriter reportWriter;
     private Testsuite.Testcase currentTestCase;
+    private File reportFile;
+    private TestDurationHistory durationHistory;
+    private TestEventStream eventStream;
+    private final Set< TestIdentifier > startedTests = new LinkedHashSet< TestIdentifier >();
+    private final Set< TestIdentifier > failedTests = new LinkedHashSet< TestIdentifier >();
+    private final Set< TestIdentifier > passedTests = new LinkedHashSet< TestIdentifier >();
 
     /**
      * start time of current test case in millis, reset with each test start
@@ -103,6 +110,22 @@ public class AndroidTestRunListener implements ITestRunListener
         return this.log;
     }
 
+    /**
+     * @param durationHistory the history to record the duration of each test in, or <code>null</code> for none.
+     */
+    public void setDurationHistory( TestDurationHistory durationHistory )
+    {
+        this.durationHistory = durationHistory;
+    }
+
+    /**
+     * @param eventStream the stream to write the events of the test run to, or <code>null</code> for none.
+     */
+    public void setEventStream( TestEventStream eventStream )
+    {
+        this.eventStream = eventStream;
+    }
+
     @Override
     public void testRunStarted( String runName, int tCount )
     {
@@ -114,28 +137,17 @@ public class AndroidTestRunListener implements ITestRunListener
 
         this.testCount = tCount;
         getLog().info( deviceLogLinePrefix + INDENT + "Run started: " + runName + ", " + testCount + " tests:" );
+        emit( "runStarted", TestEventStream.fields( "runName", runName, "testCount", tCount ) );
 
         if ( createReport )
         {
-            report = new Testsuite();
-            report.setName( runName );
-            final Testsuite.Properties props = new Testsuite.Properties();
-            report.getProperties().add( props );
+            final Map< String, String > properties = new LinkedHashMap< String, String >();
             for ( Map.Entry< Object, Object > systemProperty : System.getProperties().entrySet() )
             {
-                final Testsuite.Properties.Property property = new Testsuite.Properties.Property();
-                property.setName( systemProperty.getKey().toString() );
-                property.setValue( systemProperty.getValue().toString() );
-                props.getProperty().add( property );
-            }
-            Map< String, String > deviceProperties = device.getProperties();
-            for ( Map.Entry< String, String > deviceProperty : deviceProperties.entrySet() )
-            {
-                final Testsuite.Properties.Property property = new Testsuite.Properties.Property();
-                property.setName( deviceProperty.getKey() );
-                property.setValue( deviceProperty.getValue() );
-                props.getProperty().add( property );
+                properties.put( systemProperty.getKey().toString(), systemProperty.getValue().toString() );
             }
+            properties.putAll( device.getProperties() );
+            startJunitReport( runName, properties );
         }
     }
 
@@ -143,6 +155,7 @@ public class AndroidTestRunListener implements ITestRunListener
     public void testIgnored( TestIdentifier testIdentifier )
     {
         ++testIgnoredCount;
+        emit( "testIgnored", testFields( testIdentifier ) );
 
         getLog().info( deviceLogLinePrefix + INDENT + INDENT + testIdentifier.toString() );
 
@@ -152,14 +165,17 @@ public class AndroidTestRunListener implements ITestRunListener
     public void testStarted( TestIdentifier testIdentifier )
     {
         testRunCount++;
+        startedTests.add( testIdentifier );
+        emit( "testStarted", testFields( testIdentifier ) );
         getLog().info(
                 deviceLogLinePrefix
                         + String.format( "%1$s%1$sStart [%2$d/%3$d]: %4$s", INDENT, testRunCount, testCount,
                         testIdentifier.toString() ) );
 
+        // reset start time for each test run
+        currentTestCaseStartTime = System.currentTimeMillis();
         if ( createReport )
-        { // reset start time for each test run
-            currentTestCaseStartTime = System.currentTimeMillis();
+        {
             currentTestCase = new Testsuite.Testcase();
             currentTestCase.setClassname( testIdentifier.getClassName() );
             currentTestCase.setName( testIdentifier.getTestName() );
@@ -179,6 +195,11 @@ public class AndroidTestRunListener implements ITestRunListener
         }
 
         ++testErrorCount;
+        failedTests.add( testIdentifier );
+        final Map< String, Object > errorFields = testFields( testIdentifier );
+        errorFields.put( "kind", "error" );
+        errorFields.put( "trace", trace );
+        emit( "testFailed", errorFields );
 
         getLog().info( deviceLogLinePrefix + INDENT + INDENT + testIdentifier.toString() );
         getLog().info( deviceLogLinePrefix + INDENT + INDENT + trace );
@@ -206,6 +227,11 @@ public class AndroidTestRunListener implements ITestRunListener
         }
 
         ++testFailureCount;
+        failedTests.add( testIdentifier );
+        final Map< String, Object > failureFields = testFields( testIdentifier );
+        failureFields.put( "kind", "failure" );
+        failureFields.put( "trace", trace );
+        emit( "testFailed", failureFields );
 
         getLog().info( deviceLogLinePrefix + INDENT + INDENT + testIdentifier.toString() );
         getLog().info( deviceLogLinePrefix + INDENT + INDENT + trace );
@@ -258,11 +284,32 @@ public class AndroidTestRunListener implements ITestRunListener
                         testIdentifier.toString() ) );
         logMetrics( testMetrics );
 
-        if ( createReport )
+        final long elapsed = System.currentTimeMillis() - currentTestCaseStartTime;
+        if ( durationHistory != null )
+        {
+            durationHistory.record( testIdentifier.getClassName(), elapsed );
+        }
+        if ( ! failedTests.contains( testIdentifier ) )
+        {
+            passedTests.add( testIdentifier );
+        }
+        final Map< String, Object > endFields = testFields( testIdentifier );
+        endFields.put( "duration", elapsed );
+        endFields.put( "metrics", testMetrics );
+        emit( "testEnded", endFields );
+
+        if ( createReport && reportWriter != null )
         {
-            double seconds = ( System.currentTimeMillis() - currentTestCaseStartTime ) / 1000.0;
+            double seconds = elapsed / 1000.0;
             currentTestCase.setTime( timeFormatter.format( seconds ) );
-            report.getTestcase().add( currentTestCase );
+            try
+            {
+                reportWriter.writeTestcase( currentTestCase );
+            }
+            catch ( IOException e )
+            {
+                junitReportFailed( e );
+            }
         }
     }
 
@@ -280,20 +327,14 @@ public class AndroidTestRunListener implements ITestRunListener
                         + testFailureCount + ",  Errors: " + testErrorCount
                         + ",  Ignored: " + testIgnoredCount );
 
-        if ( createReport )
-        {
-            report.setTests( Integer.toString( testCount ) );
-            report.setFailures( Integer.toString( testFailureCount ) );
-            report.setErrors( Integer.toString( testErrorCount ) );
-            report.setSkipped( Integer.toString( testIgnoredCount ) );
-            report.setTime( timeFormatter.format( elapsedTime / 1000.0 ) );
-        }
-
         logMetrics( runMetrics );
+        emit( "runEnded", TestEventStream.fields( "duration", elapsedTime, "testCount", testRunCount,
+                "failures", testFailureCount, "errors", testErrorCount, "ignored", testIgnoredCount,
+                "metrics", runMetrics ) );
 
-        if ( createReport )
+        if ( createReport && reportWriter != null )
         {
-            writeJunitReportToFile();
+            finishJunitReport( timeFormatter.format( elapsedTime / 1000.0 ) );
         }
     }
 
@@ -302,12 +343,14 @@ public class AndroidTestRunListener implements ITestRunListener
     {
         testRunFailureCause = errorMessage;
         getLog().info( deviceLogLinePrefix + INDENT + "Run failed: " + errorMessage );
+        emit( "runFailed", TestEventStream.fields( "message", errorMessage ) );
     }
 
     @Override
     public void testRunStopped( long elapsedTime )
     {
         getLog().info( deviceLogLinePrefix + INDENT + "Run stopped:" + elapsedTime );
+        emit( "runStopped", TestEventStream.fields( "duration", elapsedTime ) );
     }
 
     /**
@@ -372,9 +415,9 @@ public class AndroidTestRunListener implements ITestRunListener
     }
 
     /**
-     * Write the junit report xml file.
+     * Start the junit report xml file, to which each test case is written as it ends.
      */
-    private void writeJunitReportToFile()
+    private void startJunitReport( String runName, Map< String, String > properties )
     {
         try
         {
@@ -390,23 +433,51 @@ public class AndroidTestRunListener implements ITestRunListener
             }
 
             final File reportFile = new File( b.append( ".xml" ).toString() );
-            final JAXBContext jaxbContext = JAXBContext.newInstance( ObjectFactory.class );
-            final Marshaller marshaller = jaxbContext.createMarshaller();
-            marshaller.marshal( report, reportFile );
+            reportWriter = new JUnitReportWriter( reportFile, runName, properties );
+            this.reportFile = reportFile;
+        }
+        catch ( IOException e )
+        {
+            junitReportFailed( e );
+        }
+    }
 
+    /**
+     * Finish the junit report xml file with the totals of the test run.
+     */
+    private void finishJunitReport( String time )
+    {
+        try
+        {
+            reportWriter.finish( testCount, testFailureCount, testErrorCount, testIgnoredCount, time );
+            reportWriter = null;
             getLog().info( deviceLogLinePrefix + "Report file written to " + reportFile.getAbsolutePath() );
         }
         catch ( IOException e )
         {
-            threwException = true;
-            exceptionMessages.append( "Failed to write test report file" );
-            exceptionMessages.append( e.getMessage() );
+            junitReportFailed( e );
         }
-        catch ( JAXBException e )
+    }
+
+    private void junitReportFailed( IOException e )
+    {
+        threwException = true;
+        exceptionMessages.append( "Failed to write test report file" );
+        exceptionMessages.append( e.getMessage() );
+        IOUtils.closeQuietly( reportWriter );
+        reportWriter = null;
+    }
+
+    private Map< String, Object > testFields( TestIdentifier testIdentifier )
+    {
+        return TestEventStream.fields( "class", testIdentifier.getClassName(), "test", testIdentifier.getTestName() );
+    }
+
+    private void emit( String event, Map< String, ? > fields )
+    {
+        if ( eventStream != null )
         {
-            threwException = true;
-            exceptionMessages.append( "Failed to create jaxb context" );
-            exceptionMessages.append( e.getMessage() );
+            eventStream.emit( event, device.getSerialNumber(), fields );
         }
     }
 
@@ -431,6 +502,62 @@ public class AndroidTestRunListener implements ITestRunListener
         return testErrorCount > 0 || testFailureCount > 0;
     }
 
+    /**
+     * @return the junit xml report file of the test run, with the totals once the run ended, or <code>null</code> if
+     * none was written.
+     */
+    public File getReportFile()
+    {
+        return reportFile;
+    }
+
+    /**
+     * Adds the results of a run that resumed this run after it failed to complete, so that this listener holds the
+     * results of all tests. The run is complete if the resumed run completed.
+     *
+     * @param resumedRun the listener of the run of the tests that did not run
+     */
+    public void addResumedRun( AndroidTestRunListener resumedRun )
+    {
+        testRunCount += resumedRun.testRunCount;
+        testIgnoredCount += resumedRun.testIgnoredCount;
+        testFailureCount += resumedRun.testFailureCount;
+        testErrorCount += resumedRun.testErrorCount;
+        testRunFailureCause = resumedRun.testRunFailureCause;
+        startedTests.addAll( resumedRun.startedTests );
+        failedTests.addAll( resumedRun.failedTests );
+        passedTests.addAll( resumedRun.passedTests );
+        if ( resumedRun.threwException )
+        {
+            threwException = true;
+            exceptionMessages.append( resumedRun.exceptionMessages );
+        }
+    }
+
+    /**
+     * @return the tests that started, whether or not they ended, in the order they ran.
+     */
+    public Set< TestIdentifier > getStartedTests()
+    {
+        return Collections.unmodifiableSet( startedTests );
+    }
+
+    /**
+     * @return the tests that failed or had an error, in the order they ran.
+     */
+    public Set< TestIdentifier > getFailedTests()
+    {
+        return Collections.unmodifiableSet( failedTests );
+    }
+
+    /**
+     * @return the tests that ended without a failure or error, in the order they ran.
+     */
+    public Set< TestIdentifier > getPassedTests()
+    {
+        return Collections.unmodifiableSet( passedTests );
+    }
+
     /**
      * @return if the test run itself failed - a failure in the test infrastructure, not a test failure.
      */
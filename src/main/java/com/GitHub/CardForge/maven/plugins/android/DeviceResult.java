@@ -0,0 +1,78 @@
+package com.github.cardforge.maven.plugins.android;
+
+import com.android.ddmlib.IDevice;
+import com.github.cardforge.maven.plugins.android.common.DeviceHelper;
+
+/**
+ * The outcome of a {@link DeviceCallback} on one device, as collected by
+ * {@link AbstractAndroidMojo#doWithDevices(DeviceCallback)}.
+ */
+public final class DeviceResult
+{
+    /**
+     * How the callback ended on a device.
+     */
+    public enum Status
+    {
+        /** The callback returned normally. */
+        SUCCESS,
+        /** The callback threw a {@link org.apache.maven.plugin.MojoFailureException}. */
+        FAILURE,
+        /** The callback threw a {@link org.apache.maven.plugin.MojoExecutionException} or an unchecked exception. */
+        ERROR,
+        /** The callback did not finish within {@code android.deviceTimeout} and was interrupted. */
+        TIMED_OUT,
+        /** The callback was cancelled before it finished, because the build was interrupted. */
+        CANCELLED
+    }
+
+    private final IDevice device;
+    private final Status status;
+    private final Exception exception;
+    private final long durationMillis;
+
+    DeviceResult( IDevice device, Status status, Exception exception, long durationMillis )
+    {
+        this.device = device;
+        this.status = status;
+        this.exception = exception;
+        this.durationMillis = durationMillis;
+    }
+
+    public IDevice getDevice()
+    {
+        return device;
+    }
+
+    public Status getStatus()
+    {
+        return status;
+    }
+
+    /**
+     * @return the exception thrown by the callback, or {@code null} if it did not throw one.
+     */
+    public Exception getException()
+    {
+        return exception;
+    }
+
+    /**
+     * @return the time the callback ran on the device, in milliseconds. Zero if it never started.
+     */
+    public long getDurationMillis()
+    {
+        return durationMillis;
+    }
+
+    public boolean isSuccess()
+    {
+        return status == Status.SUCCESS;
+    }
+
+    @Override
+    public String toString()
+    {
+        return DeviceHelper.getDescriptiveName( device ) + ": " + status + " in " + durationMillis + " ms";
+    }
+}
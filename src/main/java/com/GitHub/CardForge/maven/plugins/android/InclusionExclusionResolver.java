@@ -1,20 +1,42 @@
 package com.github.cardforge.maven.plugins.android;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import com.android.annotations.NonNull;
 import com.android.annotations.Nullable;
-import com.google.common.base.Function;
-import com.google.common.base.Predicate;
-import com.google.common.base.Splitter;
 import org.apache.maven.artifact.Artifact;
 
-import static com.google.common.collect.FluentIterable.from;
-
 public class InclusionExclusionResolver
 {
 
+    /**
+     * Most filters kept at once. Mojos of all modules share a few configurations, but a daemon that stays up across
+     * builds would otherwise keep the filters of every build.
+     */
+    private static final int MAX_FILTERS = 32;
+
+    /**
+     * Most recently compiled filters, by their parameters. Guarded by itself.
+     */
+    private static final Map< List< Object >, Filter > FILTERS =
+            new LinkedHashMap< List< Object >, Filter >( 16, 0.75f, true )
+            {
+                @Override
+                protected boolean removeEldestEntry( Map.Entry< List< Object >, Filter > eldest )
+                {
+                    return size() > MAX_FILTERS;
+                }
+            };
+
     private InclusionExclusionResolver()
     {
     }
@@ -36,122 +58,153 @@ public class InclusionExclusionResolver
             @Nullable final Collection< String > includeArtifactQualifiers,
             @Nullable final Collection< String > excludeArtifactQualifiers )
     {
-        final boolean hasIncludeTypes = includeArtifactTypes != null;
-        final boolean hasExcludeTypes = excludeArtifactTypes != null;
-        final boolean hasIncludeQualifier = includeArtifactQualifiers != null;
-        final boolean hasExcludeQualifier = excludeArtifactQualifiers != null;
-        return from( artifacts )
-            .filter( new Predicate<Artifact>() {
-                @Override
-                public boolean apply( Artifact artifact )
-                {
-                    final boolean includedByType = hasIncludeTypes
-                            && includeArtifactTypes.contains( artifact.getType() );
-                    final boolean includedByQualifier = hasIncludeQualifier
-                            && match( artifact, includeArtifactQualifiers );
-                    final boolean excludedByType = hasExcludeTypes
-                            && excludeArtifactTypes.contains( artifact.getType() );
-                    final boolean excludedByQualifier = hasExcludeQualifier
-                            && match( artifact, excludeArtifactQualifiers );
-                    if ( !skipDependencies )
-                    {
-                        return !excludedByType && !excludedByQualifier
-                                || includedByQualifier
-                                || includedByType && !excludedByQualifier;
-                    }
-                    else
-                    {
-                        return includedByQualifier
-                                || includedByType && hasExcludeQualifier && !excludedByQualifier
-                                || includedByType;
-                    }
-                }
-
-                @Override
-                public boolean test( @Nullable Artifact input )
-                {
-                    return this.apply( input );
-                }
-            } )
-            .toSet();
+        return compile( skipDependencies, includeArtifactTypes, excludeArtifactTypes, includeArtifactQualifiers,
+                excludeArtifactQualifiers ).filter( artifacts );
     }
 
-    private static boolean match( final Artifact artifact, Iterable< String > artifactQualifiers )
+    /**
+     * Parses the inclusions and exclusions once into a {@link Filter} that can be applied to any number of artifacts.
+     * The most recently used filters are kept, so compiling the same parameters again returns the same filter.
+     *
+     * @see #filterArtifacts(Iterable, boolean, Collection, Collection, Collection, Collection)
+     * @throws IllegalArgumentException if one of the artifact qualifiers is invalid.
+     */
+    public static Filter compile( boolean skipDependencies, @Nullable Collection< String > includeArtifactTypes,
+            @Nullable Collection< String > excludeArtifactTypes,
+            @Nullable Collection< String > includeArtifactQualifiers,
+            @Nullable Collection< String > excludeArtifactQualifiers )
     {
-        return from( artifactQualifiers )
-            .filter( MUST_NOT_BE_BLANK )
-            .anyMatch( new Predicate< String >() {
-                @Override
-                public boolean apply( String artifactQualifier )
-                {
-                    return match( artifact, artifactQualifier );
-                }
+        final List< Object > key = Arrays.< Object >asList( skipDependencies, copyOf( includeArtifactTypes ),
+                copyOf( excludeArtifactTypes ), copyOf( includeArtifactQualifiers ),
+                copyOf( excludeArtifactQualifiers ) );
+        synchronized ( FILTERS )
+        {
+            Filter filter = FILTERS.get( key );
+            if ( filter == null )
+            {
+                filter = new Filter( skipDependencies, includeArtifactTypes, excludeArtifactTypes,
+                        includeArtifactQualifiers, excludeArtifactQualifiers );
+                FILTERS.put( key, filter );
+            }
+            return filter;
+        }
+    }
 
-                @Override
-                public boolean test( @Nullable String input )
-                {
-                    return this.apply( input );
-                }
-            } );
+    private static List< String > copyOf( @Nullable Collection< String > values )
+    {
+        return values == null ? null : new ArrayList< String >( values );
     }
 
-    private static boolean match( Artifact artifact, String artifactQualifier )
+    /**
+     * Inclusions and exclusions of artifacts by type and qualifier, parsed into hash lookups.
+     */
+    public static final class Filter
     {
-        final List< String > split = from( COLON_SPLITTER.split( artifactQualifier ) ).transform( TRIMMER ).toList();
-        final int count = split.size();
-        if ( split.isEmpty() || count > 3 )
-        {
-            throw new IllegalArgumentException( "Invalid artifact qualifier: " + artifactQualifier );
-        }
-        // check groupId
-        final String groupId = split.get( 0 );
-        if ( !groupId.equals( artifact.getGroupId() ) )
-        {
-            return false;
-        }
-        if ( count == 1 )
+        private final boolean skipDependencies;
+        private final Set< String > includeTypes;
+        private final Set< String > excludeTypes;
+        private final Qualifiers includeQualifiers;
+        private final Qualifiers excludeQualifiers;
+
+        private Filter( boolean skipDependencies, Collection< String > includeTypes, Collection< String > excludeTypes,
+                        Collection< String > includeQualifiers, Collection< String > excludeQualifiers )
         {
-            return true;
+            this.skipDependencies = skipDependencies;
+            this.includeTypes = includeTypes == null ? null : new HashSet< String >( includeTypes );
+            this.excludeTypes = excludeTypes == null ? null : new HashSet< String >( excludeTypes );
+            this.includeQualifiers = includeQualifiers == null ? null : new Qualifiers( includeQualifiers );
+            this.excludeQualifiers = excludeQualifiers == null ? null : new Qualifiers( excludeQualifiers );
         }
-        // check artifactId
-        final String artifactId = split.get( 1 );
-        if ( !artifactId.equals( artifact.getArtifactId() ) )
+
+        /**
+         * @return the artifacts that are included, in their original order.
+         */
+        public Collection< Artifact > filter( @NonNull Iterable< Artifact > artifacts )
         {
-            return false;
+            final Set< Artifact > included = new LinkedHashSet< Artifact >();
+            for ( Artifact artifact : artifacts )
+            {
+                if ( isIncluded( artifact ) )
+                {
+                    included.add( artifact );
+                }
+            }
+            return Collections.unmodifiableSet( included );
         }
-        if ( count == 2 )
+
+        public boolean isIncluded( Artifact artifact )
         {
-            return true;
+            final boolean includedByType = includeTypes != null && includeTypes.contains( artifact.getType() );
+            final boolean includedByQualifier = includeQualifiers != null && includeQualifiers.match( artifact );
+            final boolean excludedByType = excludeTypes != null && excludeTypes.contains( artifact.getType() );
+            final boolean excludedByQualifier = excludeQualifiers != null && excludeQualifiers.match( artifact );
+            if ( !skipDependencies )
+            {
+                return !excludedByType && !excludedByQualifier
+                        || includedByQualifier
+                        || includedByType && !excludedByQualifier;
+            }
+            else
+            {
+                return includedByQualifier
+                        || includedByType && excludeQualifiers != null && !excludedByQualifier
+                        || includedByType;
+            }
         }
-        // check version
-        final String version = split.get( 2 );
-        return version.equals( artifact.getVersion() );
     }
 
-    private static final Splitter COLON_SPLITTER = Splitter.on( ':' );
-
-    private static final Function< String, String > TRIMMER = new Function< String, String >()
+    /**
+     * Artifact qualifiers of the form {@code groupId[:artifactId[:version]]}, by their number of parts.
+     */
+    private static final class Qualifiers
     {
-        @Override
-        public String apply( String value )
-        {
-            return value.trim();
-        }
-    };
+        private final Set< String > groupIds = new HashSet< String >();
+        private final Set< String > artifactIds = new HashSet< String >();
+        private final Set< String > versions = new HashSet< String >();
 
-    private static final Predicate< String > MUST_NOT_BE_BLANK = new Predicate< String >()
-    {
-        @Override
-        public boolean apply( String value )
+        Qualifiers( Collection< String > artifactQualifiers )
         {
-            return !value.trim().isEmpty();
+            for ( String artifactQualifier : artifactQualifiers )
+            {
+                if ( artifactQualifier.trim().isEmpty() )
+                {
+                    continue;
+                }
+                final String[] split = artifactQualifier.split( ":", -1 );
+                if ( split.length > 3 )
+                {
+                    throw new IllegalArgumentException( "Invalid artifact qualifier: " + artifactQualifier );
+                }
+                final StringBuilder key = new StringBuilder( split[ 0 ].trim() );
+                for ( int i = 1; i < split.length; i++ )
+                {
+                    key.append( ':' ).append( split[ i ].trim() );
+                }
+                if ( split.length == 1 )
+                {
+                    groupIds.add( key.toString() );
+                }
+                else if ( split.length == 2 )
+                {
+                    artifactIds.add( key.toString() );
+                }
+                else
+                {
+                    versions.add( key.toString() );
+                }
+            }
         }
 
-        @Override
-        public boolean test( @Nullable String input )
+        boolean match( Artifact artifact )
         {
-            return this.apply( input );
+            if ( groupIds.contains( artifact.getGroupId() ) )
+            {
+                return true;
+            }
+            final String artifactId = artifact.getGroupId() + ':' + artifact.getArtifactId();
+            return artifactIds.contains( artifactId )
+                    || !versions.isEmpty() && versions.contains( artifactId + ':' + artifact.getVersion() );
         }
-    };
+    }
 
 }
@@ -0,0 +1,248 @@
+package com.github.cardforge.maven.plugins.android;
+
+import org.apache.maven.surefire.Testsuite;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+/**
+ * <p>Writes a junit xml report one test case at a time, as the tests end, so that the memory used does not grow with
+ * the number of tests and a run that is aborted still leaves a well-formed report of the tests that ended.</p>
+ *
+ * <p>After each test case the file ends with the closing tag of the suite, which the next test case overwrites. The
+ * totals of the suite are only known at the end, so {@link #finish} writes the report again with them, copying the
+ * test cases over from the file.</p>
+ */
+public final class JUnitReportWriter implements Closeable
+{
+    private static final String ENCODING = "UTF-8";
+    private static final byte[] SUITE_END = "</testsuite>\n".getBytes( StandardCharsets.UTF_8 );
+
+    private final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+    private final File reportFile;
+    private final String name;
+    private final Map<String, String> properties;
+    private final FileChannel channel;
+    private final long testcasesStart;
+    private long testcasesEnd;
+
+    /**
+     * Starts the report, with the properties but without the totals of the suite.
+     *
+     * @param reportFile the report file, which is replaced
+     * @param name       the name of the suite
+     * @param properties the properties of the suite, e.g. of the system and the device
+     * @throws IOException if the report cannot be written
+     */
+    public JUnitReportWriter( File reportFile, String name, Map<String, String> properties ) throws IOException
+    {
+        this.reportFile = reportFile;
+        this.name = name;
+        this.properties = properties;
+        this.channel = FileChannel.open( reportFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING );
+        try
+        {
+            final ByteArrayOutputStream header = new ByteArrayOutputStream();
+            writeHeader( header, null, null, null, null, null );
+            testcasesStart = write( header, 0 );
+            testcasesEnd = testcasesStart;
+        }
+        catch ( IOException e )
+        {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the report file.
+     */
+    public File getReportFile()
+    {
+        return reportFile;
+    }
+
+    /**
+     * Appends a test case to the report.
+     *
+     * @throws IOException if the report cannot be written
+     */
+    public void writeTestcase( Testsuite.Testcase testcase ) throws IOException
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try
+        {
+            final XMLStreamWriter writer = outputFactory.createXMLStreamWriter( out, ENCODING );
+            writer.writeStartElement( "testcase" );
+            writeAttribute( writer, "name", testcase.getName() );
+            writeAttribute( writer, "classname", testcase.getClassname() );
+            writeAttribute( writer, "group", testcase.getGroup() );
+            writeAttribute( writer, "time", testcase.getTime() );
+            for ( Testsuite.Testcase.Failure failure : testcase.getFailure() )
+            {
+                writeFailure( writer, "failure", failure.getValue(), failure.getMessage(), failure.getType(),
+                        failure.getTime() );
+            }
+            for ( Testsuite.Testcase.RerunFailure failure : testcase.getRerunFailure() )
+            {
+                writeFailure( writer, "rerunFailure", failure.getValue(), failure.getMessage(), failure.getType(),
+                        failure.getTime() );
+            }
+            for ( Testsuite.Testcase.FlakyFailure failure : testcase.getFlakyFailure() )
+            {
+                writeFailure( writer, "flakyFailure", failure.getValue(), failure.getMessage(), failure.getType(),
+                        failure.getTime() );
+            }
+            if ( testcase.getSkipped() != null )
+            {
+                final Testsuite.Testcase.Skipped skipped = testcase.getSkipped().getValue();
+                writeFailure( writer, "skipped", skipped.getValue(), skipped.getMessage(), null, null );
+            }
+            if ( testcase.getError() != null )
+            {
+                final Testsuite.Testcase.Error error = testcase.getError().getValue();
+                writeFailure( writer, "error", error.getValue(), error.getMessage(), error.getType(), null );
+            }
+            writer.writeEndElement();
+            writer.writeCharacters( "\n" );
+            writer.close();
+        }
+        catch ( XMLStreamException e )
+        {
+            throw new IOException( "Failed to write test case " + testcase.getClassname() + "#" + testcase.getName(),
+                    e );
+        }
+        testcasesEnd += write( out, testcasesEnd );
+    }
+
+    /**
+     * Writes the report with the totals of the suite, replacing the file once it is complete, and closes it.
+     *
+     * @throws IOException if the report cannot be written
+     */
+    public void finish( int tests, int failures, int errors, int skipped, String time ) throws IOException
+    {
+        final File finishedFile = new File( reportFile.getPath() + ".tmp" );
+        try
+        {
+            try ( FileChannel finished = FileChannel.open( finishedFile.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING ) )
+            {
+                final ByteArrayOutputStream header = new ByteArrayOutputStream();
+                writeHeader( header, Integer.toString( tests ), Integer.toString( failures ),
+                        Integer.toString( errors ), Integer.toString( skipped ), time );
+                finished.write( ByteBuffer.wrap( header.toByteArray() ) );
+                long position = testcasesStart;
+                while ( position < testcasesEnd )
+                {
+                    position += channel.transferTo( position, testcasesEnd - position, finished );
+                }
+                finished.write( ByteBuffer.wrap( SUITE_END ) );
+            }
+            close();
+            Files.move( finishedFile.toPath(), reportFile.toPath(), StandardCopyOption.REPLACE_EXISTING );
+        }
+        finally
+        {
+            finishedFile.delete();
+        }
+    }
+
+    /**
+     * Closes the report, leaving the test cases written so far without the totals of the suite.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    private void writeHeader( OutputStream out, String tests, String failures, String errors, String skipped,
+                              String time ) throws IOException
+    {
+        try
+        {
+            final XMLStreamWriter writer = outputFactory.createXMLStreamWriter( out, ENCODING );
+            writer.writeStartDocument( ENCODING, "1.0" );
+            writer.writeCharacters( "\n" );
+            writer.writeStartElement( "testsuite" );
+            writeAttribute( writer, "name", name );
+            writeAttribute( writer, "time", time );
+            writeAttribute( writer, "tests", tests );
+            writeAttribute( writer, "errors", errors );
+            writeAttribute( writer, "skipped", skipped );
+            writeAttribute( writer, "failures", failures );
+            writer.writeCharacters( "\n" );
+            writer.writeStartElement( "properties" );
+            for ( Map.Entry<String, String> property : properties.entrySet() )
+            {
+                writer.writeEmptyElement( "property" );
+                writeAttribute( writer, "name", property.getKey() );
+                writeAttribute( writer, "value", property.getValue() );
+            }
+            writer.writeEndElement();
+            writer.writeCharacters( "\n" );
+            writer.flush();
+        }
+        catch ( XMLStreamException e )
+        {
+            throw new IOException( "Failed to write the header of " + reportFile, e );
+        }
+    }
+
+    private static void writeFailure( XMLStreamWriter writer, String element, String value, String message,
+                                      String type, String time ) throws XMLStreamException
+    {
+        writer.writeStartElement( element );
+        writeAttribute( writer, "message", message );
+        writeAttribute( writer, "type", type );
+        writeAttribute( writer, "time", time );
+        if ( value != null )
+        {
+            writer.writeCharacters( value );
+        }
+        writer.writeEndElement();
+    }
+
+    private static void writeAttribute( XMLStreamWriter writer, String attribute, String value )
+            throws XMLStreamException
+    {
+        if ( value != null )
+        {
+            writer.writeAttribute( attribute, value );
+        }
+    }
+
+    /**
+     * Writes the bytes followed by the closing tag of the suite, so that the file stays well-formed.
+     *
+     * @return the number of bytes written before the closing tag.
+     */
+    private int write( ByteArrayOutputStream out, long position ) throws IOException
+    {
+        final int length = out.size();
+        out.write( SUITE_END );
+        final ByteBuffer buffer = ByteBuffer.wrap( out.toByteArray() );
+        while ( buffer.hasRemaining() )
+        {
+            position += channel.write( buffer, position );
+        }
+        channel.truncate( position );
+        return length;
+    }
+}
@@ -0,0 +1,152 @@
+package com.github.cardforge.maven.plugins.android;
+
+import com.android.ddmlib.testrunner.ITestRunListener;
+import com.android.ddmlib.testrunner.TestIdentifier;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the tests of a run without results, e.g. of a log only run that lists the tests the instrumentation runner
+ * would run.
+ */
+public final class TestCollector implements ITestRunListener
+{
+    private final List<TestIdentifier> tests = new ArrayList<TestIdentifier>();
+
+    /**
+     * @return the tests of the run, in the order they were reported.
+     */
+    public List<TestIdentifier> getTests()
+    {
+        return Collections.unmodifiableList( tests );
+    }
+
+    /**
+     * @param ranTests the tests that already ran
+     * @return the tests that did not run yet, as names for the <code>class</code> instrumentation argument: the class
+     * if none of its tests ran, else each of its remaining tests as <code>class#method</code>.
+     */
+    public List<String> getTestsNotIn( Collection<TestIdentifier> ranTests )
+    {
+        final Map<String, List<TestIdentifier>> remainingByClass = new LinkedHashMap<String, List<TestIdentifier>>();
+        final Map<String, Boolean> classRan = new LinkedHashMap<String, Boolean>();
+        for ( TestIdentifier test : tests )
+        {
+            if ( ! remainingByClass.containsKey( test.getClassName() ) )
+            {
+                remainingByClass.put( test.getClassName(), new ArrayList<TestIdentifier>() );
+                classRan.put( test.getClassName(), false );
+            }
+            if ( ranTests.contains( test ) )
+            {
+                classRan.put( test.getClassName(), true );
+            }
+            else
+            {
+                remainingByClass.get( test.getClassName() ).add( test );
+            }
+        }
+
+        final List<String> testNames = new ArrayList<String>();
+        for ( Map.Entry<String, List<TestIdentifier>> remaining : remainingByClass.entrySet() )
+        {
+            if ( ! classRan.get( remaining.getKey() ) )
+            {
+                testNames.add( remaining.getKey() );
+                continue;
+            }
+            for ( TestIdentifier test : remaining.getValue() )
+            {
+                testNames.add( test.getClassName() + "#" + test.getTestName() );
+            }
+        }
+        return testNames;
+    }
+
+    /**
+     * Splits test names into batches for the <code>class</code> instrumentation argument, so that each batch keeps
+     * the <code>am instrument</code> command short enough for the shell of the device.
+     *
+     * @param testNames the names of classes or of tests as <code>class#method</code>
+     * @param maxLength the most characters of the names of a batch, with the commas between them. A longer name
+     *                  gets a batch of its own.
+     * @return the batches, in the order of the names
+     */
+    public static List<List<String>> batch( List<String> testNames, int maxLength )
+    {
+        final List<List<String>> batches = new ArrayList<List<String>>();
+        List<String> batch = new ArrayList<String>();
+        int length = 0;
+        for ( String testName : testNames )
+        {
+            final int nameLength = batch.isEmpty() ? testName.length() : testName.length() + 1;
+            if ( ! batch.isEmpty() && length + nameLength > maxLength )
+            {
+                batches.add( batch );
+                batch = new ArrayList<String>();
+                length = testName.length();
+            }
+            else
+            {
+                length += nameLength;
+            }
+            batch.add( testName );
+        }
+        if ( ! batch.isEmpty() )
+        {
+            batches.add( batch );
+        }
+        return batches;
+    }
+
+    @Override
+    public void testRunStarted( String runName, int testCount )
+    {
+    }
+
+    @Override
+    public void testStarted( TestIdentifier test )
+    {
+        tests.add( test );
+    }
+
+    @Override
+    public void testFailed( TestIdentifier test, String trace )
+    {
+    }
+
+    @Override
+    public void testAssumptionFailure( TestIdentifier test, String trace )
+    {
+    }
+
+    @Override
+    public void testIgnored( TestIdentifier test )
+    {
+    }
+
+    @Override
+    public void testEnded( TestIdentifier test, Map<String, String> testMetrics )
+    {
+    }
+
+    @Override
+    public void testRunFailed( String errorMessage )
+    {
+    }
+
+    @Override
+    public void testRunStopped( long elapsedTime )
+    {
+    }
+
+    @Override
+    public void testRunEnded( long elapsedTime, Map<String, String> runMetrics )
+    {
+    }
+}
@@ -0,0 +1,134 @@
+package com.github.cardforge.maven.plugins.android;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Durations of instrumentation test classes in milliseconds, kept between builds so that the next run can split the
+ * classes into shards that take about the same time.
+ * <p>
+ * The durations of a run are added up per class while the run goes on, and replace the previous durations of those
+ * classes when the history is saved. Classes that did not run keep their previous duration.
+ */
+public final class TestDurationHistory
+{
+    private final File historyFile;
+    private final Properties durations;
+    private final Map<String, Long> recorded = new HashMap<String, Long>();
+
+    private TestDurationHistory( File historyFile, Properties durations )
+    {
+        this.historyFile = historyFile;
+        this.durations = durations;
+    }
+
+    /**
+     * @param historyFile the file the history is kept in
+     * @return the history. It is empty if the file does not exist or cannot be read.
+     */
+    public static TestDurationHistory load( File historyFile )
+    {
+        final Properties durations = new Properties();
+        if ( historyFile.isFile() )
+        {
+            try ( InputStream in = new FileInputStream( historyFile ) )
+            {
+                durations.load( in );
+            }
+            catch ( IOException e )
+            {
+                durations.clear();
+            }
+        }
+        return new TestDurationHistory( historyFile, durations );
+    }
+
+    /**
+     * @return the duration of the class in the last run it took part in, or {@code null} if it has no history.
+     */
+    public synchronized Long getDuration( String testClass )
+    {
+        final String duration = durations.getProperty( testClass );
+        if ( duration == null )
+        {
+            return null;
+        }
+        try
+        {
+            return Long.valueOf( duration );
+        }
+        catch ( NumberFormatException e )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * @return the duration of each of the classes that has history.
+     */
+    public synchronized Map<String, Long> getDurations( Iterable<String> testClasses )
+    {
+        final Map<String, Long> classDurations = new HashMap<String, Long>();
+        for ( String testClass : testClasses )
+        {
+            final Long duration = getDuration( testClass );
+            if ( duration != null )
+            {
+                classDurations.put( testClass, duration );
+            }
+        }
+        return classDurations;
+    }
+
+    /**
+     * Adds the duration of a test to the duration of its class in this run.
+     */
+    public synchronized void record( String testClass, long millis )
+    {
+        final Long total = recorded.get( testClass );
+        recorded.put( testClass, ( total == null ? 0 : total ) + Math.max( 0, millis ) );
+    }
+
+    /**
+     * Writes the history for the next build through a temporary file of its own, so that the file left behind is
+     * always complete, even if builds save it at the same time.
+     *
+     * @throws IOException if the history cannot be written. This only means that the next build splits the classes
+     *                     with older durations.
+     */
+    public synchronized void save() throws IOException
+    {
+        if ( recorded.isEmpty() )
+        {
+            return;
+        }
+        for ( Map.Entry<String, Long> entry : recorded.entrySet() )
+        {
+            durations.setProperty( entry.getKey(), Long.toString( entry.getValue() ) );
+        }
+        final File directory = historyFile.getAbsoluteFile().getParentFile();
+        directory.mkdirs();
+        final File tempFile = File.createTempFile( "." + historyFile.getName() + "-", ".tmp", directory );
+        try
+        {
+            try ( OutputStream out = new FileOutputStream( tempFile ) )
+            {
+                durations.store( out, "Instrumentation test class durations in milliseconds" );
+            }
+            Files.move( tempFile.toPath(), historyFile.toPath(), StandardCopyOption.REPLACE_EXISTING );
+        }
+        finally
+        {
+            Files.deleteIfExists( tempFile.toPath() );
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.github.cardforge.maven.plugins.android;
+
+import com.google.api.client.json.JsonGenerator;
+import com.google.api.client.json.jackson2.JacksonFactory;
+
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>Streams the events of test runs as JSON Lines, one json object per line, so that progress can be followed while
+ * the tests run. Each event has its <code>event</code> name, the <code>serial</code> number of the device and the
+ * <code>time</code> in milliseconds since the stream was opened, taken from a monotonic clock, next to the fields of
+ * the event.</p>
+ *
+ * <p>The devices share the stream. If it cannot be written, e.g. as the listening socket went away, the events are
+ * dropped with a warning, and the tests are not affected.</p>
+ */
+public final class TestEventStream implements Closeable
+{
+    private static final String SOCKET_PREFIX = "tcp://";
+
+    private final OutputStream out;
+    private final Closeable resource;
+    private final Log log;
+    private final long startNanos = System.nanoTime();
+    private boolean broken;
+
+    private TestEventStream( OutputStream out, Closeable resource, Log log )
+    {
+        this.out = out;
+        this.resource = resource;
+        this.log = log;
+    }
+
+    /**
+     * @param target a file, which is replaced, or <code>tcp://host:port</code> for a socket listening on a port
+     * @throws IOException if the file cannot be created or the socket cannot be connected
+     */
+    public static TestEventStream open( String target, Log log ) throws IOException
+    {
+        if ( target.startsWith( SOCKET_PREFIX ) )
+        {
+            final String address = target.substring( SOCKET_PREFIX.length() );
+            final int colon = address.lastIndexOf( ':' );
+            if ( colon < 0 )
+            {
+                throw new IOException( "No port in " + target + ", expected " + SOCKET_PREFIX + "host:port" );
+            }
+            final int port;
+            try
+            {
+                port = Integer.parseInt( address.substring( colon + 1 ) );
+            }
+            catch ( NumberFormatException e )
+            {
+                throw new IOException( "Invalid port in " + target, e );
+            }
+            final Socket socket = new Socket( address.substring( 0, colon ), port );
+            return new TestEventStream( new BufferedOutputStream( socket.getOutputStream() ), socket, log );
+        }
+        final File file = new File( target );
+        file.getAbsoluteFile().getParentFile().mkdirs();
+        final OutputStream out = new BufferedOutputStream( new FileOutputStream( file ) );
+        return new TestEventStream( out, out, log );
+    }
+
+    /**
+     * Writes an event without fields other than the common ones.
+     */
+    public void emit( String event, String serial )
+    {
+        emit( event, serial, Collections.<String, Object>emptyMap() );
+    }
+
+    /**
+     * Writes an event and flushes it.
+     *
+     * @param fields the fields of the event, as strings, numbers, booleans or maps of strings
+     */
+    public void emit( String event, String serial, Map<String, ?> fields )
+    {
+        final long time = ( System.nanoTime() - startNanos ) / 1000000;
+        final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        try
+        {
+            final JsonGenerator json = JacksonFactory.getDefaultInstance().createJsonGenerator( line,
+                    StandardCharsets.UTF_8 );
+            json.writeStartObject();
+            json.writeFieldName( "event" );
+            json.writeString( event );
+            json.writeFieldName( "serial" );
+            json.writeString( serial );
+            json.writeFieldName( "time" );
+            json.writeNumber( time );
+            for ( Map.Entry<String, ?> field : fields.entrySet() )
+            {
+                json.writeFieldName( field.getKey() );
+                writeValue( json, field.getValue() );
+            }
+            json.writeEndObject();
+            json.flush();
+            line.write( '\n' );
+        }
+        catch ( IOException e )
+        {
+            log.warn( "Failed to write test event " + event, e );
+            return;
+        }
+
+        synchronized ( this )
+        {
+            if ( broken )
+            {
+                return;
+            }
+            try
+            {
+                line.writeTo( out );
+                out.flush();
+            }
+            catch ( IOException e )
+            {
+                broken = true;
+                log.warn( "Failed to write the test event stream, dropping further events", e );
+            }
+        }
+    }
+
+    /**
+     * @return a map of the fields, in the order given as name and value pairs.
+     */
+    public static Map<String, Object> fields( Object... namesAndValues )
+    {
+        final Map<String, Object> fields = new LinkedHashMap<String, Object>();
+        for ( int i = 0; i + 1 < namesAndValues.length; i += 2 )
+        {
+            fields.put( String.valueOf( namesAndValues[ i ] ), namesAndValues[ i + 1 ] );
+        }
+        return fields;
+    }
+
+    @Override
+    public synchronized void close() throws IOException
+    {
+        try
+        {
+            out.flush();
+        }
+        finally
+        {
+            resource.close();
+        }
+    }
+
+    private static void writeValue( JsonGenerator json, Object value ) throws IOException
+    {
+        if ( value == null )
+        {
+            json.writeNull();
+        }
+        else if ( value instanceof Boolean )
+        {
+            json.writeBoolean( ( Boolean ) value );
+        }
+        else if ( value instanceof Integer )
+        {
+            json.writeNumber( ( Integer ) value );
+        }
+        else if ( value instanceof Long )
+        {
+            json.writeNumber( ( Long ) value );
+        }
+        else if ( value instanceof Map )
+        {
+            json.writeStartObject();
+            for ( Map.Entry<?, ?> entry : ( ( Map<?, ?> ) value ).entrySet() )
+            {
+                json.writeFieldName( String.valueOf( entry.getKey() ) );
+                writeValue( json, entry.getValue() );
+            }
+            json.writeEndObject();
+        }
+        else
+        {
+            json.writeString( value.toString() );
+        }
+    }
+}
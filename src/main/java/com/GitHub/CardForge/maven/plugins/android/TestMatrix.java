@@ -0,0 +1,400 @@
+package com.github.cardforge.maven.plugins.android;
+
+import com.google.api.client.json.JsonGenerator;
+import com.google.api.client.json.jackson2.JacksonFactory;
+
+import org.apache.maven.surefire.ObjectFactory;
+import org.apache.maven.surefire.Testsuite;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * <p>The results of the same tests run on several devices, by test and device, to compare the devices: what failed
+ * where, how long each device took and which tests are slowest on it, and whether the tests had the same result on
+ * all devices.</p>
+ *
+ * <p>The matrix is written as a junit xml report with one test case per test, failed for each device it failed on,
+ * and as compact json.</p>
+ */
+public final class TestMatrix
+{
+    public static final String PASSED = "passed";
+    public static final String FLAKY = "flaky";
+    public static final String FAILED = "failed";
+    public static final String ERROR = "error";
+    public static final String SKIPPED = "skipped";
+
+    private final List<String> devices = new ArrayList<String>();
+    // the test case of each device by test, as class#method
+    private final Map<String, Map<String, Testsuite.Testcase>> testcases =
+            new TreeMap<String, Map<String, Testsuite.Testcase>>();
+    private final NumberFormat reportTimeFormatter = new DecimalFormat( "#0.000" );
+    private final NumberFormat timeFormatter = new DecimalFormat( "#0.000", DecimalFormatSymbols.getInstance(
+            Locale.ENGLISH ) );
+
+    /**
+     * @param reports the junit xml report of each device, by device name
+     * @return the matrix of the reports
+     * @throws JAXBException if a report cannot be read
+     */
+    public static TestMatrix read( Map<String, File> reports ) throws JAXBException
+    {
+        final Unmarshaller unmarshaller = JAXBContext.newInstance( ObjectFactory.class ).createUnmarshaller();
+        final TestMatrix matrix = new TestMatrix();
+        for ( Map.Entry<String, File> report : reports.entrySet() )
+        {
+            matrix.add( report.getKey(), ( Testsuite ) unmarshaller.unmarshal( report.getValue() ) );
+        }
+        return matrix;
+    }
+
+    /**
+     * Adds the results of a device.
+     */
+    public void add( String device, Testsuite suite )
+    {
+        devices.add( device );
+        for ( Testsuite.Testcase testcase : suite.getTestcase() )
+        {
+            final String test = testcase.getClassname() + "#" + testcase.getName();
+            Map<String, Testsuite.Testcase> deviceTestcases = testcases.get( test );
+            if ( deviceTestcases == null )
+            {
+                deviceTestcases = new LinkedHashMap<String, Testsuite.Testcase>();
+                testcases.put( test, deviceTestcases );
+            }
+            deviceTestcases.put( device, testcase );
+        }
+    }
+
+    public List<String> getDevices()
+    {
+        return Collections.unmodifiableList( devices );
+    }
+
+    /**
+     * @return the tests, as class#method, in order.
+     */
+    public List<String> getTests()
+    {
+        return new ArrayList<String>( testcases.keySet() );
+    }
+
+    /**
+     * @return the result of the test on the device, one of {@link #PASSED}, {@link #FLAKY}, {@link #FAILED},
+     * {@link #ERROR} or {@link #SKIPPED}, or <code>null</code> if it did not run on the device.
+     */
+    public String getResult( String test, String device )
+    {
+        final Map<String, Testsuite.Testcase> deviceTestcases = testcases.get( test );
+        final Testsuite.Testcase testcase = deviceTestcases == null ? null : deviceTestcases.get( device );
+        if ( testcase == null )
+        {
+            return null;
+        }
+        if ( testcase.getError() != null )
+        {
+            return ERROR;
+        }
+        if ( ! testcase.getFailure().isEmpty() )
+        {
+            return FAILED;
+        }
+        if ( testcase.getSkipped() != null )
+        {
+            return SKIPPED;
+        }
+        return testcase.getFlakyFailure().isEmpty() ? PASSED : FLAKY;
+    }
+
+    /**
+     * @return if the test ran on all devices with the same result, counting flaky as passed.
+     */
+    public boolean isConsistent( String test )
+    {
+        String first = null;
+        for ( String device : devices )
+        {
+            final String result = getResult( test, device );
+            if ( result == null )
+            {
+                return false;
+            }
+            final String outcome = FLAKY.equals( result ) ? PASSED : result;
+            if ( first == null )
+            {
+                first = outcome;
+            }
+            else if ( ! first.equals( outcome ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return if all tests are consistent.
+     */
+    public boolean isConsistent()
+    {
+        for ( String test : testcases.keySet() )
+        {
+            if ( ! isConsistent( test ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return how many tests had the result on the device.
+     */
+    public int count( String device, String result )
+    {
+        int count = 0;
+        for ( String test : testcases.keySet() )
+        {
+            if ( result.equals( getResult( test, device ) ) )
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the time of the test on the device in seconds, 0 if it did not run on the device.
+     */
+    public double getTime( String test, String device )
+    {
+        final Testsuite.Testcase testcase = testcases.get( test ).get( device );
+        if ( testcase == null || testcase.getTime() == null )
+        {
+            return 0;
+        }
+        try
+        {
+            return reportTimeFormatter.parse( testcase.getTime().trim() ).doubleValue();
+        }
+        catch ( ParseException e )
+        {
+            return 0;
+        }
+    }
+
+    /**
+     * @return the time of all tests on the device in seconds.
+     */
+    public double getTotalTime( String device )
+    {
+        double time = 0;
+        for ( String test : testcases.keySet() )
+        {
+            time += getTime( test, device );
+        }
+        return time;
+    }
+
+    /**
+     * @return the slowest tests that ran on the device, slowest first.
+     */
+    public List<String> getSlowestTests( final String device, int count )
+    {
+        final List<String> tests = new ArrayList<String>();
+        for ( Map.Entry<String, Map<String, Testsuite.Testcase>> test : testcases.entrySet() )
+        {
+            if ( test.getValue().containsKey( device ) )
+            {
+                tests.add( test.getKey() );
+            }
+        }
+        Collections.sort( tests, new Comparator<String>()
+        {
+            @Override
+            public int compare( String a, String b )
+            {
+                return Double.compare( getTime( b, device ), getTime( a, device ) );
+            }
+        } );
+        return tests.subList( 0, Math.min( count, tests.size() ) );
+    }
+
+    /**
+     * @param name the name of the suite
+     * @return a suite with a test case per test, with the longest time of any device, a failure for each device it
+     * failed or had an error on, and the totals of each device and the consistency as properties.
+     */
+    public Testsuite toTestsuite( String name )
+    {
+        final Testsuite suite = new Testsuite();
+        suite.setName( name );
+        final Testsuite.Properties properties = new Testsuite.Properties();
+        suite.getProperties().add( properties );
+        for ( String device : devices )
+        {
+            addProperty( properties, "device." + device + ".tests", Integer.toString( count( device, PASSED )
+                    + count( device, FLAKY ) + count( device, FAILED ) + count( device, ERROR )
+                    + count( device, SKIPPED ) ) );
+            addProperty( properties, "device." + device + ".failures", Integer.toString( count( device, FAILED ) ) );
+            addProperty( properties, "device." + device + ".errors", Integer.toString( count( device, ERROR ) ) );
+            addProperty( properties, "device." + device + ".time", timeFormatter.format( getTotalTime( device ) ) );
+        }
+        addProperty( properties, "consistent", Boolean.toString( isConsistent() ) );
+
+        int failures = 0;
+        int skipped = 0;
+        double time = 0;
+        for ( String test : testcases.keySet() )
+        {
+            final Testsuite.Testcase testcase = new Testsuite.Testcase();
+            testcase.setClassname( test.substring( 0, test.lastIndexOf( '#' ) ) );
+            testcase.setName( test.substring( test.lastIndexOf( '#' ) + 1 ) );
+            double testTime = 0;
+            boolean skippedEverywhere = true;
+            for ( Map.Entry<String, Testsuite.Testcase> deviceTestcase : testcases.get( test ).entrySet() )
+            {
+                final String device = deviceTestcase.getKey();
+                testTime = Math.max( testTime, getTime( test, device ) );
+                skippedEverywhere &= deviceTestcase.getValue().getSkipped() != null;
+                for ( Testsuite.Testcase.Failure failure : deviceTestcase.getValue().getFailure() )
+                {
+                    testcase.getFailure().add( createFailure( device, failure.getValue(), failure.getMessage(),
+                            failure.getType() ) );
+                }
+                if ( deviceTestcase.getValue().getError() != null )
+                {
+                    final Testsuite.Testcase.Error error = deviceTestcase.getValue().getError().getValue();
+                    testcase.getFailure().add( createFailure( device, error.getValue(), error.getMessage(),
+                            error.getType() ) );
+                }
+            }
+            if ( skippedEverywhere )
+            {
+                testcase.setSkipped( new ObjectFactory().createTestsuiteTestcaseSkipped(
+                        new Testsuite.Testcase.Skipped() ) );
+                skipped++;
+            }
+            failures += testcase.getFailure().isEmpty() ? 0 : 1;
+            testcase.setTime( timeFormatter.format( testTime ) );
+            time += testTime;
+            suite.getTestcase().add( testcase );
+        }
+        suite.setTests( Integer.toString( testcases.size() ) );
+        suite.setFailures( Integer.toString( failures ) );
+        suite.setErrors( "0" );
+        suite.setSkipped( Integer.toString( skipped ) );
+        suite.setTime( timeFormatter.format( time ) );
+        return suite;
+    }
+
+    /**
+     * Writes the matrix as json: the totals and slowest tests of each device, and the results of each test in the
+     * order of the devices.
+     *
+     * @param slowestTests how many of the slowest tests of each device to list
+     * @throws IOException if the file cannot be written
+     */
+    public void writeJson( File jsonFile, int slowestTests ) throws IOException
+    {
+        try ( OutputStream out = new FileOutputStream( jsonFile ) )
+        {
+            final JsonGenerator json = JacksonFactory.getDefaultInstance().createJsonGenerator( out,
+                    StandardCharsets.UTF_8 );
+            json.writeStartObject();
+            json.writeFieldName( "consistent" );
+            json.writeBoolean( isConsistent() );
+            json.writeFieldName( "devices" );
+            json.writeStartArray();
+            for ( String device : devices )
+            {
+                json.writeStartObject();
+                json.writeFieldName( "name" );
+                json.writeString( device );
+                for ( String result : new String[] { PASSED, FLAKY, FAILED, ERROR, SKIPPED } )
+                {
+                    json.writeFieldName( result );
+                    json.writeNumber( count( device, result ) );
+                }
+                json.writeFieldName( "time" );
+                json.writeNumber( timeFormatter.format( getTotalTime( device ) ) );
+                json.writeFieldName( "slowest" );
+                json.writeStartArray();
+                for ( String test : getSlowestTests( device, slowestTests ) )
+                {
+                    json.writeStartObject();
+                    json.writeFieldName( "test" );
+                    json.writeString( test );
+                    json.writeFieldName( "time" );
+                    json.writeNumber( timeFormatter.format( getTime( test, device ) ) );
+                    json.writeEndObject();
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeFieldName( "tests" );
+            json.writeStartObject();
+            for ( String test : testcases.keySet() )
+            {
+                json.writeFieldName( test );
+                json.writeStartArray();
+                for ( String device : devices )
+                {
+                    final String result = getResult( test, device );
+                    if ( result == null )
+                    {
+                        json.writeNull();
+                    }
+                    else
+                    {
+                        json.writeString( result );
+                    }
+                }
+                json.writeEndArray();
+            }
+            json.writeEndObject();
+            json.writeEndObject();
+            json.flush();
+        }
+    }
+
+    private static void addProperty( Testsuite.Properties properties, String name, String value )
+    {
+        final Testsuite.Properties.Property property = new Testsuite.Properties.Property();
+        property.setName( name );
+        property.setValue( value );
+        properties.getProperty().add( property );
+    }
+
+    private static Testsuite.Testcase.Failure createFailure( String device, String value, String message,
+                                                             String type )
+    {
+        final Testsuite.Testcase.Failure failure = new Testsuite.Testcase.Failure();
+        failure.setValue( value );
+        failure.setMessage( device + ": " + ( message == null ? "" : message ) );
+        failure.setType( type );
+        return failure;
+    }
+}
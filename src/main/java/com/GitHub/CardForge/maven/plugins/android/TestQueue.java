@@ -0,0 +1,98 @@
+package com.github.cardforge.maven.plugins.android;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Test classes shared by the devices of a test run. Each device takes the next class when it is done with the
+ * previous one, so a fast device never waits while a slow one still has classes left.</p>
+ *
+ * <p>A class taken by a device that then drops out is put back for the other devices. Until every taken class is
+ * either done or put back, {@link #take()} waits instead of reporting the queue as drained.</p>
+ */
+public final class TestQueue
+{
+    private final Deque<String> testClasses;
+    private int taken;
+
+    /**
+     * Queues classes without a duration first, as any of them might be long, and then the others longest first, so
+     * that the run does not end waiting on one long class.
+     *
+     * @param testClasses the test classes to run
+     * @param durations   the expected duration of the classes that ran before, in milliseconds
+     */
+    public TestQueue( List<String> testClasses, final Map<String, Long> durations )
+    {
+        final List<String> ordered = new ArrayList<String>( testClasses );
+        Collections.sort( ordered, new Comparator<String>()
+        {
+            @Override
+            public int compare( String a, String b )
+            {
+                final Long durationA = durations.get( a );
+                final Long durationB = durations.get( b );
+                if ( durationA == null )
+                {
+                    return durationB == null ? 0 : -1;
+                }
+                if ( durationB == null )
+                {
+                    return 1;
+                }
+                return durationB.compareTo( durationA );
+            }
+        } );
+        this.testClasses = new ArrayDeque<String>( ordered );
+    }
+
+    /**
+     * @return the next class to run, or <code>null</code> once all classes are done.
+     * @throws InterruptedException if interrupted while waiting on the classes taken by other devices
+     */
+    public synchronized String take() throws InterruptedException
+    {
+        while ( testClasses.isEmpty() && taken > 0 )
+        {
+            wait();
+        }
+        final String testClass = testClasses.poll();
+        if ( testClass != null )
+        {
+            taken++;
+        }
+        return testClass;
+    }
+
+    /**
+     * Marks a class taken with {@link #take()} as done, whatever its result.
+     */
+    public synchronized void done( String testClass )
+    {
+        taken--;
+        notifyAll();
+    }
+
+    /**
+     * Puts a class taken with {@link #take()} back at the head of the queue, for another device to run.
+     */
+    public synchronized void putBack( String testClass )
+    {
+        taken--;
+        testClasses.addFirst( testClass );
+        notifyAll();
+    }
+
+    /**
+     * @return the classes that are neither done nor taken.
+     */
+    public synchronized List<String> getRemaining()
+    {
+        return new ArrayList<String>( testClasses );
+    }
+}
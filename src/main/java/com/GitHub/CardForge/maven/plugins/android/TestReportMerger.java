@@ -0,0 +1,223 @@
+package com.github.cardforge.maven.plugins.android;
+
+import org.apache.maven.surefire.ObjectFactory;
+import org.apache.maven.surefire.Testsuite;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+
+import java.io.File;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges the junit xml reports written by {@link AndroidTestRunListener} for parts of a test run, e.g. the shards run
+ * on different devices or the reruns of failed tests.
+ */
+public final class TestReportMerger
+{
+    /**
+     * time format of the xml files, as written by {@link AndroidTestRunListener}
+     */
+    private static final String TIME_FORMAT = "#0.000";
+
+    private TestReportMerger()
+    {
+    }
+
+    /**
+     * @param name    the name of the merged suite
+     * @param reports the report files to merge
+     * @return a suite with the test cases of all reports, the totals added up and the properties of the first report
+     * @throws JAXBException if a report cannot be read
+     */
+    public static Testsuite merge( String name, Collection<File> reports ) throws JAXBException
+    {
+        final NumberFormat timeFormatter = new DecimalFormat( TIME_FORMAT );
+        final Unmarshaller unmarshaller = JAXBContext.newInstance( ObjectFactory.class ).createUnmarshaller();
+        final Testsuite merged = new Testsuite();
+        merged.setName( name );
+        int tests = 0;
+        int failures = 0;
+        int errors = 0;
+        int skipped = 0;
+        double time = 0;
+        for ( File report : reports )
+        {
+            final Testsuite suite = ( Testsuite ) unmarshaller.unmarshal( report );
+            if ( merged.getProperties().isEmpty() )
+            {
+                merged.getProperties().addAll( suite.getProperties() );
+            }
+            merged.getTestcase().addAll( suite.getTestcase() );
+            tests += parseCount( suite.getTests() );
+            failures += parseCount( suite.getFailures() );
+            errors += parseCount( suite.getErrors() );
+            skipped += parseCount( suite.getSkipped() );
+            time += parseTime( timeFormatter, suite.getTime() );
+        }
+        merged.setTests( Integer.toString( tests ) );
+        merged.setFailures( Integer.toString( failures ) );
+        merged.setErrors( Integer.toString( errors ) );
+        merged.setSkipped( Integer.toString( skipped ) );
+        merged.setTime( timeFormatter.format( time ) );
+        return merged;
+    }
+
+    /**
+     * Records the reruns of the failed tests of a run in its report. A test that passed in a rerun is flaky: its
+     * failures and errors, including those of the reruns, are kept as <code>flakyFailure</code> and it no longer counts
+     * as failed. A test that failed in every rerun keeps its failure, with a <code>rerunFailure</code> for each rerun.
+     *
+     * @param reportFile   the report of the run, which is rewritten
+     * @param rerunReports the reports of the reruns, in the order they ran
+     * @throws JAXBException if a report cannot be read or written
+     */
+    public static void applyReruns( File reportFile, Collection<File> rerunReports ) throws JAXBException
+    {
+        final Unmarshaller unmarshaller = JAXBContext.newInstance( ObjectFactory.class ).createUnmarshaller();
+        final Map<String, List<Testsuite.Testcase>> reruns = new HashMap<String, List<Testsuite.Testcase>>();
+        for ( File rerunReport : rerunReports )
+        {
+            for ( Testsuite.Testcase attempt : ( ( Testsuite ) unmarshaller.unmarshal( rerunReport ) ).getTestcase() )
+            {
+                List<Testsuite.Testcase> attempts = reruns.get( getKey( attempt ) );
+                if ( attempts == null )
+                {
+                    attempts = new ArrayList<Testsuite.Testcase>();
+                    reruns.put( getKey( attempt ), attempts );
+                }
+                attempts.add( attempt );
+            }
+        }
+
+        final Testsuite suite = ( Testsuite ) unmarshaller.unmarshal( reportFile );
+        int failures = parseCount( suite.getFailures() );
+        int errors = parseCount( suite.getErrors() );
+        for ( Testsuite.Testcase testcase : suite.getTestcase() )
+        {
+            final boolean failed = ! testcase.getFailure().isEmpty();
+            final boolean errored = testcase.getError() != null;
+            final List<Testsuite.Testcase> attempts = reruns.get( getKey( testcase ) );
+            if ( ! failed && ! errored || attempts == null )
+            {
+                continue;
+            }
+
+            boolean passed = false;
+            for ( Testsuite.Testcase attempt : attempts )
+            {
+                passed |= attempt.getFailure().isEmpty() && attempt.getError() == null;
+            }
+            if ( passed )
+            {
+                final List<Testsuite.Testcase> runs = new ArrayList<Testsuite.Testcase>();
+                runs.add( testcase );
+                runs.addAll( attempts );
+                for ( Testsuite.Testcase run : runs )
+                {
+                    for ( Testsuite.Testcase.Failure failure : run.getFailure() )
+                    {
+                        testcase.getFlakyFailure().add( createFlakyFailure( failure.getValue(), failure.getMessage(),
+                                failure.getType(), run.getTime() ) );
+                    }
+                    if ( run.getError() != null )
+                    {
+                        final Testsuite.Testcase.Error error = run.getError().getValue();
+                        testcase.getFlakyFailure().add( createFlakyFailure( error.getValue(), error.getMessage(),
+                                error.getType(), run.getTime() ) );
+                    }
+                }
+                testcase.getFailure().clear();
+                testcase.setError( null );
+                failures -= failed ? 1 : 0;
+                errors -= errored ? 1 : 0;
+            }
+            else
+            {
+                for ( Testsuite.Testcase attempt : attempts )
+                {
+                    for ( Testsuite.Testcase.Failure failure : attempt.getFailure() )
+                    {
+                        testcase.getRerunFailure().add( createRerunFailure( failure.getValue(), failure.getMessage(),
+                                failure.getType(), attempt.getTime() ) );
+                    }
+                    if ( attempt.getError() != null )
+                    {
+                        final Testsuite.Testcase.Error error = attempt.getError().getValue();
+                        testcase.getRerunFailure().add( createRerunFailure( error.getValue(), error.getMessage(),
+                                error.getType(), attempt.getTime() ) );
+                    }
+                }
+            }
+        }
+        suite.setFailures( Integer.toString( failures ) );
+        suite.setErrors( Integer.toString( errors ) );
+        write( suite, reportFile );
+    }
+
+    /**
+     * Writes a suite to a junit xml report file.
+     *
+     * @throws JAXBException if the file cannot be written
+     */
+    public static void write( Testsuite suite, File reportFile ) throws JAXBException
+    {
+        JAXBContext.newInstance( ObjectFactory.class ).createMarshaller().marshal( suite, reportFile );
+    }
+
+    private static String getKey( Testsuite.Testcase testcase )
+    {
+        return testcase.getClassname() + "#" + testcase.getName();
+    }
+
+    private static Testsuite.Testcase.FlakyFailure createFlakyFailure( String value, String message, String type,
+                                                                       String time )
+    {
+        final Testsuite.Testcase.FlakyFailure flakyFailure = new Testsuite.Testcase.FlakyFailure();
+        flakyFailure.setValue( value );
+        flakyFailure.setMessage( message );
+        flakyFailure.setType( type );
+        flakyFailure.setTime( time );
+        return flakyFailure;
+    }
+
+    private static Testsuite.Testcase.RerunFailure createRerunFailure( String value, String message, String type,
+                                                                       String time )
+    {
+        final Testsuite.Testcase.RerunFailure rerunFailure = new Testsuite.Testcase.RerunFailure();
+        rerunFailure.setValue( value );
+        rerunFailure.setMessage( message );
+        rerunFailure.setType( type );
+        rerunFailure.setTime( time );
+        return rerunFailure;
+    }
+
+    private static int parseCount( String count )
+    {
+        return count == null ? 0 : Integer.parseInt( count.trim() );
+    }
+
+    private static double parseTime( NumberFormat timeFormatter, String time )
+    {
+        if ( time == null )
+        {
+            return 0;
+        }
+        try
+        {
+            return timeFormatter.parse( time.trim() ).doubleValue();
+        }
+        catch ( ParseException e )
+        {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.github.cardforge.maven.plugins.android;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Splits instrumentation test classes into shards, one for each device the tests run on. With the durations of an
+ * earlier run the shards are balanced by expected time, otherwise by number of classes.</p>
+ *
+ * <p>Example, three classes on two devices:</p>
+ * <pre>
+ *     shards[0] = [ ATest, CTest ]
+ *     shards[1] = [ BTest ]
+ * </pre>
+ */
+public final class TestShards
+{
+    private TestShards()
+    {
+    }
+
+    /**
+     * Deals the test classes out to the shards in turn, so that no shard has more than one class more than another.
+     *
+     * @param testClasses the test classes to split
+     * @param shardCount  the number of shards, at least 1
+     * @return {@code shardCount} lists of test classes, some of them empty if there are fewer classes than shards
+     * @throws IllegalArgumentException when {@code shardCount} is less than 1
+     */
+    public static List<List<String>> split( final List<String> testClasses, final int shardCount )
+    {
+        if ( shardCount < 1 )
+        {
+            throw new IllegalArgumentException( "shardCount must be at least 1, was " + shardCount );
+        }
+
+        final List<List<String>> shards = new ArrayList<List<String>>( shardCount );
+        for ( int i = 0; i < shardCount; i++ )
+        {
+            shards.add( new ArrayList<String>() );
+        }
+        for ( int i = 0; i < testClasses.size(); i++ )
+        {
+            shards.get( i % shardCount ).add( testClasses.get( i ) );
+        }
+        return shards;
+    }
+
+    /**
+     * Packs the classes with a known duration into the shards, longest first, each into the shard with the least
+     * expected time so far. The classes without a duration are then dealt out in turn, starting with the shard with
+     * the least expected time.
+     *
+     * @param testClasses the test classes to split
+     * @param shardCount  the number of shards, at least 1
+     * @param durations   the expected duration of the classes that ran before, in milliseconds
+     * @return {@code shardCount} lists of test classes, some of them empty if there are fewer classes than shards
+     * @throws IllegalArgumentException when {@code shardCount} is less than 1
+     */
+    public static List<List<String>> split( final List<String> testClasses, final int shardCount,
+                                            final Map<String, Long> durations )
+    {
+        if ( shardCount < 1 )
+        {
+            throw new IllegalArgumentException( "shardCount must be at least 1, was " + shardCount );
+        }
+
+        final List<String> knownClasses = new ArrayList<String>();
+        final List<String> newClasses = new ArrayList<String>();
+        for ( String testClass : testClasses )
+        {
+            if ( durations.containsKey( testClass ) )
+            {
+                knownClasses.add( testClass );
+            }
+            else
+            {
+                newClasses.add( testClass );
+            }
+        }
+        // longest first, by name for equal durations so that the same history gives the same shards
+        Collections.sort( knownClasses, new Comparator<String>()
+        {
+            @Override
+            public int compare( String a, String b )
+            {
+                final int byDuration = durations.get( b ).compareTo( durations.get( a ) );
+                return byDuration != 0 ? byDuration : a.compareTo( b );
+            }
+        } );
+
+        final List<Shard> shards = new ArrayList<Shard>( shardCount );
+        for ( int i = 0; i < shardCount; i++ )
+        {
+            shards.add( new Shard( i ) );
+        }
+        for ( String testClass : knownClasses )
+        {
+            Collections.min( shards ).add( testClass, durations.get( testClass ) );
+        }
+        final List<Shard> byExpectedTime = new ArrayList<Shard>( shards );
+        Collections.sort( byExpectedTime );
+        for ( int i = 0; i < newClasses.size(); i++ )
+        {
+            byExpectedTime.get( i % shardCount ).add( newClasses.get( i ), 0 );
+        }
+
+        final List<List<String>> classes = new ArrayList<List<String>>( shardCount );
+        for ( Shard shard : shards )
+        {
+            classes.add( shard.testClasses );
+        }
+        return classes;
+    }
+
+    /**
+     * A shard being packed, ordered by expected time and then by index.
+     */
+    private static final class Shard implements Comparable<Shard>
+    {
+        private final int index;
+        private final List<String> testClasses = new ArrayList<String>();
+        private long expectedTime;
+
+        Shard( int index )
+        {
+            this.index = index;
+        }
+
+        void add( String testClass, long duration )
+        {
+            testClasses.add( testClass );
+            expectedTime += duration;
+        }
+
+        @Override
+        public int compareTo( Shard other )
+        {
+            if ( expectedTime != other.expectedTime )
+            {
+                return expectedTime < other.expectedTime ? -1 : 1;
+            }
+            return index - other.index;
+        }
+    }
+}
@@ -15,17 +15,28 @@
  */
 package com.github.cardforge.maven.plugins.android.asm;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.maven.plugin.MojoExecutionException;
-import org.codehaus.plexus.util.DirectoryWalkListener;
-import org.codehaus.plexus.util.DirectoryWalker;
 import org.objectweb.asm.ClassReader;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.LinkedList;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Finds Android instrumentation test classes to be run by InstrumentationTestRunner 
@@ -38,6 +49,28 @@ public class AndroidTestFinder
 
     private static final String[] TEST_PACKAGES = { "junit/framework/", "android/test/" };
 
+    /**
+     * directories of version control systems, which are not searched for classes
+     */
+    private static final Set<String> SCM_DIRECTORIES = new HashSet<String>( Arrays.asList( "RCS", "CVS", "SCCS",
+            ".svn", ".arch-ids", ".bzr", "_MTN", ".hg", ".git" ) );
+
+    /**
+     * the least number of class files worth a thread of their own
+     */
+    private static final int MIN_CLASS_FILES_PER_THREAD = 500;
+
+    private static final int PARSING_OPTIONS = ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES
+            | ClassReader.SKIP_CODE;
+
+    /**
+     * Tells whether any class in the directory looks like a test. Large directories are split between threads, and
+     * all threads stop at the first test found.
+     *
+     * @param classesBaseDirectory the directory of compiled classes
+     * @return <code>true</code> if a test class was found
+     * @throws MojoExecutionException if a class file cannot be read
+     */
     public static boolean containsAndroidTests( File classesBaseDirectory ) throws MojoExecutionException
     {
 
@@ -46,68 +79,203 @@ public class AndroidTestFinder
             throw new IllegalArgumentException( "classesBaseDirectory must be a valid directory!" );
         }
 
-        final List<File> classFiles = findEligebleClassFiles( classesBaseDirectory );
-        final DescendantFinder descendantFinder = new DescendantFinder( TEST_PACKAGES );
-        final AnnotatedFinder annotationFinder = new AnnotatedFinder( TEST_PACKAGES );
+        final List<Path> classFiles = findEligibleClassFiles( classesBaseDirectory );
+        final AtomicBoolean found = new AtomicBoolean( false );
+        final int threads = Math.min( Runtime.getRuntime().availableProcessors(),
+                classFiles.size() / MIN_CLASS_FILES_PER_THREAD );
+        if ( threads <= 1 )
+        {
+            findTestClass( classFiles, found );
+            return found.get();
+        }
 
-        for ( File classFile : classFiles )
+        final ExecutorService executor = Executors.newFixedThreadPool( threads );
+        try
         {
-            ClassReader classReader;
-            FileInputStream inputStream = null;
-            try
+            final List<Future<Void>> searches = new ArrayList<Future<Void>>();
+            for ( int i = 0; i < threads; i++ )
             {
-                inputStream = new FileInputStream( classFile );
-                classReader = new ClassReader( inputStream );
-
-                classReader.accept( descendantFinder, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES
-                        | ClassReader.SKIP_CODE );
-                classReader.accept( annotationFinder, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES
-                        | ClassReader.SKIP_CODE );
+                final List<Path> part = classFiles.subList( classFiles.size() * i / threads,
+                        classFiles.size() * ( i + 1 ) / threads );
+                searches.add( executor.submit( new Callable<Void>()
+                {
+                    @Override
+                    public Void call() throws MojoExecutionException
+                    {
+                        findTestClass( part, found );
+                        return null;
+                    }
+                } ) );
             }
-            catch ( IOException e )
+            for ( Future<Void> search : searches )
             {
-                throw new MojoExecutionException( "Error reading " + classFile + ".\nCould not determine whether it "
-                        + "contains tests. Please specify with plugin config parameter "
-                        + "<enableIntegrationTest>true|false</enableIntegrationTest>.", e );
+                search.get();
             }
-            finally
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException( "Interrupted while looking for tests in " + classesBaseDirectory, e );
+        }
+        catch ( ExecutionException e )
+        {
+            if ( e.getCause() instanceof MojoExecutionException )
             {
-                IOUtils.closeQuietly( inputStream );
+                throw ( MojoExecutionException ) e.getCause();
             }
+            throw new MojoExecutionException( "Error looking for tests in " + classesBaseDirectory, e.getCause() );
+        }
+        finally
+        {
+            executor.shutdownNow();
         }
+        return found.get();
+    }
 
-        return descendantFinder.isDescendantFound() || annotationFinder.isDescendantFound();
+    /**
+     * Finds the test classes that the instrumentation runner can be pointed at one by one: concrete classes that
+     * descend from <code>junit.framework</code> or <code>android.test</code>, are run with a runner or have
+     * <code>org.junit.Test</code> methods.
+     *
+     * @param classesBaseDirectory the directory of compiled classes
+     * @return the names of the test classes, sorted
+     * @throws MojoExecutionException if a class file cannot be read
+     * @see #discoverTestClasses(File)
+     */
+    public static List<String> findTestClasses( File classesBaseDirectory ) throws MojoExecutionException
+    {
+        return discoverTestClasses( classesBaseDirectory ).getTestClasses();
     }
 
-    private static List<File> findEligebleClassFiles( File classesBaseDirectory )
+    /**
+     * Finds the test classes like {@link #findTestClasses(File)}, along with the classes that could not be told apart
+     * from tests because they extend classes of dependencies.
+     *
+     * @param classesBaseDirectory the directory of compiled classes
+     * @return the test classes and the unresolved classes, sorted
+     * @throws MojoExecutionException if a class file cannot be read
+     */
+    public static TestClasses discoverTestClasses( File classesBaseDirectory ) throws MojoExecutionException
     {
-        final List<File> classFiles = new LinkedList<File>();
-        final DirectoryWalker walker = new DirectoryWalker();
-        walker.setBaseDir( classesBaseDirectory );
-        walker.addSCMExcludes();
-        walker.addInclude( "**/*.class" );
-        walker.addDirectoryWalkListener( new DirectoryWalkListener()
+        if ( classesBaseDirectory == null || ! classesBaseDirectory.isDirectory() )
+        {
+            throw new IllegalArgumentException( "classesBaseDirectory must be a valid directory!" );
+        }
+
+        final TestClassCollector collector = new TestClassCollector( TEST_PACKAGES );
+        for ( Path classFile : findEligibleClassFiles( classesBaseDirectory ) )
         {
-            public void directoryWalkStarting( File basedir )
+            try
             {
+                new ClassReader( Files.readAllBytes( classFile ) ).accept( collector, PARSING_OPTIONS );
             }
-
-            public void directoryWalkStep( int percentage, File file )
+            catch ( IOException e )
             {
-                classFiles.add( file );
+                throw new MojoExecutionException( "Error reading " + classFile + ".\nCould not determine whether it "
+                        + "is a test class.", e );
             }
+        }
+
+        return new TestClasses( collector.getTestClasses(), collector.getUnresolvedClasses() );
+    }
 
-            public void directoryWalkFinished()
+    /**
+     * Reads the class files until one of them, or one read by another thread, looks like a test.
+     */
+    private static void findTestClass( List<Path> classFiles, AtomicBoolean found ) throws MojoExecutionException
+    {
+        final TestClassFinder finder = new TestClassFinder( TEST_PACKAGES );
+        for ( Path classFile : classFiles )
+        {
+            if ( found.get() )
             {
+                return;
             }
-
-            public void debug( String message )
+            try
+            {
+                new ClassReader( Files.readAllBytes( classFile ) ).accept( finder, PARSING_OPTIONS );
+            }
+            catch ( IOException e )
+            {
+                throw new MojoExecutionException( "Error reading " + classFile + ".\nCould not determine whether it "
+                        + "contains tests. Please specify with plugin config parameter "
+                        + "<enableIntegrationTest>true|false</enableIntegrationTest>.", e );
+            }
+            if ( finder.isFound() )
             {
+                found.set( true );
+                return;
             }
-        } );
-        walker.scan();
+        }
+    }
+
+    private static List<Path> findEligibleClassFiles( final File classesBaseDirectory ) throws MojoExecutionException
+    {
+        final Path baseDirectory = classesBaseDirectory.toPath();
+        final List<Path> classFiles = new ArrayList<Path>();
+        try
+        {
+            Files.walkFileTree( baseDirectory, new SimpleFileVisitor<Path>()
+            {
+                @Override
+                public FileVisitResult preVisitDirectory( Path directory, BasicFileAttributes attributes )
+                {
+                    return ! directory.equals( baseDirectory )
+                            && SCM_DIRECTORIES.contains( directory.getFileName().toString() )
+                            ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile( Path file, BasicFileAttributes attributes )
+                {
+                    if ( attributes.isRegularFile() && file.getFileName().toString().endsWith( ".class" ) )
+                    {
+                        classFiles.add( file );
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            } );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Error listing the classes in " + classesBaseDirectory, e );
+        }
+        // sorted so that the parts of the search do not depend on the order of the file system
+        Collections.sort( classFiles );
         return classFiles;
     }
 
+    /**
+     * The test classes found in a directory, and the classes that may be tests too.
+     */
+    public static final class TestClasses
+    {
+        private final List<String> testClasses;
+        private final List<String> unresolvedClasses;
 
+        private TestClasses( List<String> testClasses, List<String> unresolvedClasses )
+        {
+            Collections.sort( testClasses );
+            Collections.sort( unresolvedClasses );
+            this.testClasses = Collections.unmodifiableList( testClasses );
+            this.unresolvedClasses = Collections.unmodifiableList( unresolvedClasses );
+        }
+
+        /**
+         * @return the names of the test classes, sorted
+         */
+        public List<String> getTestClasses()
+        {
+            return testClasses;
+        }
+
+        /**
+         * @return the names of the classes that could not be told apart from tests, sorted. The test classes are
+         * only complete if there are none.
+         */
+        public List<String> getUnresolvedClasses()
+        {
+            return unresolvedClasses;
+        }
+    }
 }
@@ -0,0 +1,302 @@
+package com.github.cardforge.maven.plugins.android.asm;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Collects the classes a class refers to: its superclass and interfaces, the types of its fields, methods and
+ * annotations, and the classes used in the code of its methods. Visits one class at a time.
+ * <p>
+ * Also collects the values of the constant fields of the class, which the compiler copies into the classes that use
+ * them, so that those do not refer to the class.
+ */
+class ClassDependencyCollector extends ClassVisitor
+{
+    private final Set<String> dependencies = new TreeSet<String>();
+    private final Map<String, String> constants = new TreeMap<String, String>();
+    private String className;
+
+    private final AnnotationVisitor annotationVisitor = new AnnotationVisitor( Opcodes.ASM5 )
+    {
+        @Override
+        public void visit( String name, Object value )
+        {
+            if ( value instanceof Type )
+            {
+                addType( ( Type ) value );
+            }
+        }
+
+        @Override
+        public void visitEnum( String name, String desc, String value )
+        {
+            addDescriptor( desc );
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation( String name, String desc )
+        {
+            addDescriptor( desc );
+            return this;
+        }
+
+        @Override
+        public AnnotationVisitor visitArray( String name )
+        {
+            return this;
+        }
+    };
+
+    private final FieldVisitor fieldVisitor = new FieldVisitor( Opcodes.ASM5 )
+    {
+        @Override
+        public AnnotationVisitor visitAnnotation( String desc, boolean visible )
+        {
+            addDescriptor( desc );
+            return annotationVisitor;
+        }
+    };
+
+    private final MethodVisitor methodVisitor = new MethodVisitor( Opcodes.ASM5 )
+    {
+        @Override
+        public AnnotationVisitor visitAnnotationDefault()
+        {
+            return annotationVisitor;
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation( String desc, boolean visible )
+        {
+            addDescriptor( desc );
+            return annotationVisitor;
+        }
+
+        @Override
+        public AnnotationVisitor visitParameterAnnotation( int parameter, String desc, boolean visible )
+        {
+            addDescriptor( desc );
+            return annotationVisitor;
+        }
+
+        @Override
+        public void visitTypeInsn( int opcode, String type )
+        {
+            addInternalName( type );
+        }
+
+        @Override
+        public void visitFieldInsn( int opcode, String owner, String name, String desc )
+        {
+            addInternalName( owner );
+            addDescriptor( desc );
+        }
+
+        @Override
+        public void visitMethodInsn( int opcode, String owner, String name, String desc, boolean itf )
+        {
+            addInternalName( owner );
+            addMethodDescriptor( desc );
+        }
+
+        @Override
+        public void visitInvokeDynamicInsn( String name, String desc, Handle bsm, Object... bsmArgs )
+        {
+            addMethodDescriptor( desc );
+            addHandle( bsm );
+            for ( Object bsmArg : bsmArgs )
+            {
+                addConstant( bsmArg );
+            }
+        }
+
+        @Override
+        public void visitLdcInsn( Object cst )
+        {
+            addConstant( cst );
+        }
+
+        @Override
+        public void visitMultiANewArrayInsn( String desc, int dims )
+        {
+            addDescriptor( desc );
+        }
+
+        @Override
+        public void visitTryCatchBlock( Label start, Label end, Label handler, String type )
+        {
+            if ( type != null )
+            {
+                addInternalName( type );
+            }
+        }
+    };
+
+    ClassDependencyCollector()
+    {
+        super( Opcodes.ASM5 );
+    }
+
+    @Override
+    public void visit( int version, int access, String name, String signature, String superName, String[] interfaces )
+    {
+        className = name;
+        dependencies.clear();
+        constants.clear();
+        if ( superName != null )
+        {
+            addInternalName( superName );
+        }
+        if ( interfaces != null )
+        {
+            for ( String anInterface : interfaces )
+            {
+                addInternalName( anInterface );
+            }
+        }
+    }
+
+    @Override
+    public void visitOuterClass( String owner, String name, String desc )
+    {
+        addInternalName( owner );
+    }
+
+    @Override
+    public AnnotationVisitor visitAnnotation( String desc, boolean visible )
+    {
+        addDescriptor( desc );
+        return annotationVisitor;
+    }
+
+    @Override
+    public void visitInnerClass( String name, String outerName, String innerName, int access )
+    {
+        addInternalName( name );
+    }
+
+    @Override
+    public FieldVisitor visitField( int access, String name, String desc, String signature, Object value )
+    {
+        addDescriptor( desc );
+        if ( value != null )
+        {
+            constants.put( name + " " + desc, String.valueOf( value ) );
+        }
+        return fieldVisitor;
+    }
+
+    @Override
+    public MethodVisitor visitMethod( int access, String name, String desc, String signature, String[] exceptions )
+    {
+        addMethodDescriptor( desc );
+        if ( exceptions != null )
+        {
+            for ( String exception : exceptions )
+            {
+                addInternalName( exception );
+            }
+        }
+        return methodVisitor;
+    }
+
+    /**
+     * @return the internal name of the class visited last.
+     */
+    String getClassName()
+    {
+        return className;
+    }
+
+    /**
+     * @return the internal names of the classes that the class visited last refers to, without itself.
+     */
+    Set<String> getDependencies()
+    {
+        final Set<String> result = new TreeSet<String>( dependencies );
+        result.remove( className );
+        return result;
+    }
+
+    /**
+     * @return the values of the constant fields of the class visited last, by field name and descriptor.
+     */
+    Map<String, String> getConstants()
+    {
+        return Collections.unmodifiableMap( constants );
+    }
+
+    private void addInternalName( String internalName )
+    {
+        if ( internalName.startsWith( "[" ) )
+        {
+            addDescriptor( internalName );
+        }
+        else
+        {
+            dependencies.add( internalName );
+        }
+    }
+
+    private void addDescriptor( String desc )
+    {
+        addType( Type.getType( desc ) );
+    }
+
+    private void addMethodDescriptor( String desc )
+    {
+        addType( Type.getReturnType( desc ) );
+        for ( Type argumentType : Type.getArgumentTypes( desc ) )
+        {
+            addType( argumentType );
+        }
+    }
+
+    private void addType( Type type )
+    {
+        switch ( type.getSort() )
+        {
+            case Type.ARRAY:
+                addType( type.getElementType() );
+                break;
+            case Type.OBJECT:
+                dependencies.add( type.getInternalName() );
+                break;
+            case Type.METHOD:
+                addMethodDescriptor( type.getDescriptor() );
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void addHandle( Handle handle )
+    {
+        addInternalName( handle.getOwner() );
+        addMethodDescriptor( handle.getDesc() );
+    }
+
+    private void addConstant( Object constant )
+    {
+        if ( constant instanceof Type )
+        {
+            addType( ( Type ) constant );
+        }
+        else if ( constant instanceof Handle )
+        {
+            addHandle( ( Handle ) constant );
+        }
+    }
+}
@@ -0,0 +1,590 @@
+package com.github.cardforge.maven.plugins.android.asm;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.objectweb.asm.ClassReader;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * <p>The classes of a build with a checksum of each class and the classes each of them refers to, kept between builds
+ * to tell which test classes may be affected by the changes since a baseline build.</p>
+ *
+ * <p>Classes in directories and in archives are parsed for their dependencies, so that a test is affected by a change
+ * to a class it reaches through the classes of a jar, such as the jar of the tested app. Resources and manifests are
+ * not classes, and their checksum is kept as a whole: any change to them may affect any test. That includes the
+ * entries of archives other than classes, such as the manifest and resources of the apk of the tested app, but not
+ * its dex files: its classes are expected on the classpath as a jar too.</p>
+ *
+ * <p>The compiler copies the values of constant fields into the classes that use them, which then no longer refer
+ * to the class declaring them. A checksum of the constant values of each class is kept, and any change to them may
+ * affect any test.</p>
+ */
+public final class ClassDependencyGraph
+{
+    private static final String HEADER = "# Class dependency graph for test impact selection";
+    private static final String RESOURCES = "resources";
+    private static final String CLASS = "class";
+    private static final String CONSTANTS = "constants";
+
+    private static final int PARSING_OPTIONS = ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES;
+
+    private final String resourcesChecksum;
+    private final Map<String, String> checksums;
+    private final Map<String, Set<String>> dependencies;
+    // only of the classes that have constant fields
+    private final Map<String, String> constantsChecksums;
+
+    private ClassDependencyGraph( String resourcesChecksum, Map<String, String> checksums,
+                                  Map<String, Set<String>> dependencies, Map<String, String> constantsChecksums )
+    {
+        this.resourcesChecksum = resourcesChecksum;
+        this.checksums = checksums;
+        this.dependencies = dependencies;
+        this.constantsChecksums = constantsChecksums;
+    }
+
+    /**
+     * @param classpath directories of compiled classes, and archives such as jars, aars and apks. Files that do not
+     *                  exist are ignored, and files that are not archives count as resources.
+     * @param resources directories and files whose changes may affect any test, such as resources and manifests.
+     *                  Files that do not exist and <code>null</code> are ignored.
+     * @throws MojoExecutionException if a class or a resource cannot be read
+     */
+    public static ClassDependencyGraph build( Collection<File> classpath, Collection<File> resources )
+            throws MojoExecutionException
+    {
+        final Map<String, String> checksums = new TreeMap<String, String>();
+        final Map<String, Set<String>> dependencies = new TreeMap<String, Set<String>>();
+        final Map<String, String> constantsChecksums = new TreeMap<String, String>();
+        final ClassDependencyCollector collector = new ClassDependencyCollector();
+        final CRC32 resourcesCrc = new CRC32();
+        final List<File> otherResources = new ArrayList<File>( resources );
+        for ( File entry : classpath )
+        {
+            if ( entry.isDirectory() )
+            {
+                for ( Path classFile : listFiles( entry, ".class" ) )
+                {
+                    final byte[] bytes;
+                    try
+                    {
+                        bytes = Files.readAllBytes( classFile );
+                        new ClassReader( bytes ).accept( collector, PARSING_OPTIONS );
+                    }
+                    catch ( IOException | RuntimeException e )
+                    {
+                        throw new MojoExecutionException( "Error reading " + classFile
+                                + ".\nCould not determine the classes it depends on.", e );
+                    }
+                    addClass( collector, checksum( bytes ), checksums, dependencies, constantsChecksums );
+                }
+            }
+            else if ( entry.isFile() && ! addArchive( entry, collector, checksums, dependencies, constantsChecksums,
+                    resourcesCrc ) )
+            {
+                otherResources.add( entry );
+            }
+        }
+        checksumResources( otherResources, resourcesCrc );
+        return new ClassDependencyGraph( Long.toHexString( resourcesCrc.getValue() ), checksums, dependencies,
+                constantsChecksums );
+    }
+
+    /**
+     * @param graphFile the file the graph was saved to
+     * @return the graph, or {@code null} if the file does not exist or cannot be read.
+     */
+    public static ClassDependencyGraph load( File graphFile )
+    {
+        if ( ! graphFile.isFile() )
+        {
+            return null;
+        }
+        String resourcesChecksum = null;
+        final Map<String, String> checksums = new TreeMap<String, String>();
+        final Map<String, Set<String>> dependencies = new TreeMap<String, Set<String>>();
+        final Map<String, String> constantsChecksums = new TreeMap<String, String>();
+        try ( BufferedReader reader = new BufferedReader( new InputStreamReader( new FileInputStream( graphFile ),
+                StandardCharsets.UTF_8 ) ) )
+        {
+            String line;
+            while ( ( line = reader.readLine() ) != null )
+            {
+                final String[] fields = line.trim().split( " " );
+                if ( fields.length == 2 && RESOURCES.equals( fields[ 0 ] ) )
+                {
+                    resourcesChecksum = fields[ 1 ];
+                }
+                else if ( fields.length >= 3 && CLASS.equals( fields[ 0 ] ) )
+                {
+                    final Set<String> classDependencies = new TreeSet<String>();
+                    for ( int i = 3; i < fields.length; i++ )
+                    {
+                        classDependencies.add( fields[ i ] );
+                    }
+                    checksums.put( fields[ 1 ], fields[ 2 ] );
+                    dependencies.put( fields[ 1 ], classDependencies );
+                }
+                else if ( fields.length == 3 && CONSTANTS.equals( fields[ 0 ] ) )
+                {
+                    constantsChecksums.put( fields[ 1 ], fields[ 2 ] );
+                }
+                else if ( ! line.isEmpty() && ! line.startsWith( "#" ) )
+                {
+                    return null;
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            return null;
+        }
+        return resourcesChecksum == null ? null
+                : new ClassDependencyGraph( resourcesChecksum, checksums, dependencies, constantsChecksums );
+    }
+
+    /**
+     * Writes the graph to a temporary file of its own first, so that the file left behind is always complete, even if
+     * builds save it at the same time.
+     *
+     * @throws IOException if the graph cannot be written
+     */
+    public void save( File graphFile ) throws IOException
+    {
+        final File directory = graphFile.getAbsoluteFile().getParentFile();
+        directory.mkdirs();
+        final File tempFile = File.createTempFile( "." + graphFile.getName() + "-", ".tmp", directory );
+        try
+        {
+            write( tempFile );
+            Files.move( tempFile.toPath(), graphFile.toPath(), StandardCopyOption.REPLACE_EXISTING );
+        }
+        finally
+        {
+            Files.deleteIfExists( tempFile.toPath() );
+        }
+    }
+
+    private void write( File file ) throws IOException
+    {
+        try ( Writer writer = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( file ),
+                StandardCharsets.UTF_8 ) ) )
+        {
+            writer.write( HEADER + "\n" );
+            writer.write( RESOURCES + " " + resourcesChecksum + "\n" );
+            for ( Map.Entry<String, String> entry : checksums.entrySet() )
+            {
+                final StringBuilder line = new StringBuilder( CLASS ).append( ' ' ).append( entry.getKey() )
+                        .append( ' ' ).append( entry.getValue() );
+                final Set<String> classDependencies = dependencies.get( entry.getKey() );
+                if ( classDependencies != null )
+                {
+                    for ( String dependency : classDependencies )
+                    {
+                        line.append( ' ' ).append( dependency );
+                    }
+                }
+                writer.write( line.append( '\n' ).toString() );
+            }
+            for ( Map.Entry<String, String> entry : constantsChecksums.entrySet() )
+            {
+                writer.write( CONSTANTS + " " + entry.getKey() + " " + entry.getValue() + "\n" );
+            }
+        }
+    }
+
+    /**
+     * @return the classes the class refers to directly, empty if the class is not known.
+     */
+    public Set<String> getDependencies( String className )
+    {
+        final Set<String> classDependencies = dependencies.get( className );
+        return classDependencies == null ? Collections.<String>emptySet()
+                : Collections.unmodifiableSet( classDependencies );
+    }
+
+    /**
+     * @return if the resources differ from the ones of the baseline.
+     */
+    public boolean isResourcesChanged( ClassDependencyGraph baseline )
+    {
+        return ! resourcesChecksum.equals( baseline.resourcesChecksum );
+    }
+
+    /**
+     * @return the classes of both builds whose constant values differ, so that classes which copied the previous
+     * values may be affected without depending on them.
+     */
+    public Set<String> getClassesWithChangedConstants( ClassDependencyGraph baseline )
+    {
+        final Set<String> changed = new TreeSet<String>();
+        for ( String className : checksums.keySet() )
+        {
+            if ( baseline.checksums.containsKey( className ) && ! StringUtils.equals(
+                    constantsChecksums.get( className ), baseline.constantsChecksums.get( className ) ) )
+            {
+                changed.add( className );
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @return the classes that were added, changed or removed since the baseline.
+     */
+    public Set<String> getChangedClasses( ClassDependencyGraph baseline )
+    {
+        final Set<String> changed = new TreeSet<String>();
+        for ( Map.Entry<String, String> entry : checksums.entrySet() )
+        {
+            if ( ! entry.getValue().equals( baseline.checksums.get( entry.getKey() ) ) )
+            {
+                changed.add( entry.getKey() );
+            }
+        }
+        for ( String className : baseline.checksums.keySet() )
+        {
+            if ( ! checksums.containsKey( className ) )
+            {
+                changed.add( className );
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Selects the classes that changed since the baseline or depend, directly or through other classes, on a class
+     * that changed. The dependents of all changed classes are found in one walk of the graph backwards.
+     *
+     * @param classNames the classes to select from, e.g. the test classes
+     * @return the selected classes, in the order given
+     */
+    public List<String> selectAffected( Collection<String> classNames, ClassDependencyGraph baseline )
+    {
+        final Map<String, List<String>> dependents = new HashMap<String, List<String>>();
+        for ( Map.Entry<String, Set<String>> entry : dependencies.entrySet() )
+        {
+            for ( String dependency : entry.getValue() )
+            {
+                List<String> classDependents = dependents.get( dependency );
+                if ( classDependents == null )
+                {
+                    classDependents = new ArrayList<String>();
+                    dependents.put( dependency, classDependents );
+                }
+                classDependents.add( entry.getKey() );
+            }
+        }
+
+        final Set<String> affected = new HashSet<String>( getChangedClasses( baseline ) );
+        final Deque<String> pending = new ArrayDeque<String>( affected );
+        while ( ! pending.isEmpty() )
+        {
+            final List<String> classDependents = dependents.get( pending.poll() );
+            if ( classDependents != null )
+            {
+                for ( String dependent : classDependents )
+                {
+                    if ( affected.add( dependent ) )
+                    {
+                        pending.add( dependent );
+                    }
+                }
+            }
+        }
+
+        final List<String> selected = new ArrayList<String>();
+        for ( String className : classNames )
+        {
+            if ( affected.contains( className ) )
+            {
+                selected.add( className );
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Adds the class the collector visited last, unless a class of the same name came earlier on the classpath.
+     */
+    private static void addClass( ClassDependencyCollector collector, String checksum, Map<String, String> checksums,
+                                  Map<String, Set<String>> dependencies, Map<String, String> constantsChecksums )
+    {
+        final String className = toClassName( collector.getClassName() );
+        if ( checksums.containsKey( className ) )
+        {
+            return;
+        }
+        final Set<String> classDependencies = new TreeSet<String>();
+        for ( String dependency : collector.getDependencies() )
+        {
+            classDependencies.add( toClassName( dependency ) );
+        }
+        checksums.put( className, checksum );
+        dependencies.put( className, classDependencies );
+        if ( ! collector.getConstants().isEmpty() )
+        {
+            final StringBuilder constants = new StringBuilder();
+            for ( Map.Entry<String, String> constant : collector.getConstants().entrySet() )
+            {
+                constants.append( constant.getKey() ).append( '=' ).append( constant.getValue() ).append( '\n' );
+            }
+            constantsChecksums.put( className, checksum( constants.toString().getBytes( StandardCharsets.UTF_8 ) ) );
+        }
+    }
+
+    /**
+     * Parses the classes of an archive and of the jars inside it, such as the <code>classes.jar</code> of an aar.
+     * The other entries are added to the resources, except for dex files, which cannot be parsed and change with
+     * the classes anyway, and for signatures.
+     *
+     * @return <code>false</code> if the file is not an archive
+     */
+    private static boolean addArchive( File archive, ClassDependencyCollector collector,
+                                       Map<String, String> checksums, Map<String, Set<String>> dependencies,
+                                       Map<String, String> constantsChecksums, CRC32 resourcesCrc )
+            throws MojoExecutionException
+    {
+        final ZipFile zipFile;
+        try
+        {
+            zipFile = new ZipFile( archive );
+        }
+        catch ( ZipException e )
+        {
+            return false;
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Error reading " + archive, e );
+        }
+
+        // sorted, so that the order of the entries does not change the checksum
+        final Map<String, Long> resourceEntries = new TreeMap<String, Long>();
+        try
+        {
+            final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while ( entries.hasMoreElements() )
+            {
+                final ZipEntry entry = entries.nextElement();
+                final String name = entry.getName();
+                if ( entry.isDirectory() || isDexOrSignature( name ) )
+                {
+                    continue;
+                }
+                if ( name.endsWith( ".jar" ) )
+                {
+                    try ( InputStream in = zipFile.getInputStream( entry ) )
+                    {
+                        addNestedJar( name, in, collector, checksums, dependencies, constantsChecksums,
+                                resourceEntries );
+                    }
+                }
+                else if ( ! isClass( name ) || ! addArchivedClass( readEntry( zipFile, entry ), collector, checksums,
+                        dependencies, constantsChecksums ) )
+                {
+                    resourceEntries.put( name, entry.getCrc() );
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Error reading the entries of " + archive, e );
+        }
+        finally
+        {
+            IOUtils.closeQuietly( zipFile );
+        }
+
+        for ( Map.Entry<String, Long> resourceEntry : resourceEntries.entrySet() )
+        {
+            resourcesCrc.update( ( resourceEntry.getKey() + " " + Long.toHexString( resourceEntry.getValue() ) )
+                    .getBytes( StandardCharsets.UTF_8 ) );
+        }
+        return true;
+    }
+
+    private static void addNestedJar( String jarName, InputStream in, ClassDependencyCollector collector,
+                                      Map<String, String> checksums, Map<String, Set<String>> dependencies,
+                                      Map<String, String> constantsChecksums, Map<String, Long> resourceEntries )
+            throws IOException
+    {
+        final ZipInputStream jar = new ZipInputStream( in );
+        ZipEntry entry;
+        while ( ( entry = jar.getNextEntry() ) != null )
+        {
+            final String name = entry.getName();
+            if ( entry.isDirectory() || isDexOrSignature( name ) )
+            {
+                continue;
+            }
+            final byte[] bytes = IOUtils.toByteArray( jar );
+            if ( ! isClass( name )
+                    || ! addArchivedClass( bytes, collector, checksums, dependencies, constantsChecksums ) )
+            {
+                resourceEntries.put( jarName + "!/" + name, crc( bytes ) );
+            }
+        }
+    }
+
+    /**
+     * @return <code>false</code> if the class cannot be parsed, e.g. as it is too recent for ASM, so that it is
+     * handled as a resource: a change to it then makes all tests run.
+     */
+    private static boolean addArchivedClass( byte[] bytes, ClassDependencyCollector collector,
+                                             Map<String, String> checksums, Map<String, Set<String>> dependencies,
+                                             Map<String, String> constantsChecksums )
+    {
+        try
+        {
+            new ClassReader( bytes ).accept( collector, PARSING_OPTIONS );
+        }
+        catch ( RuntimeException e )
+        {
+            return false;
+        }
+        addClass( collector, checksum( bytes ), checksums, dependencies, constantsChecksums );
+        return true;
+    }
+
+    private static byte[] readEntry( ZipFile zipFile, ZipEntry entry ) throws IOException
+    {
+        try ( InputStream in = zipFile.getInputStream( entry ) )
+        {
+            return IOUtils.toByteArray( in );
+        }
+    }
+
+    /**
+     * @return if the entry is a class to parse, leaving out the classes for other versions of Java in
+     * <code>META-INF/versions</code>.
+     */
+    private static boolean isClass( String entryName )
+    {
+        return entryName.endsWith( ".class" ) && ! entryName.startsWith( "META-INF/" );
+    }
+
+    private static boolean isDexOrSignature( String entryName )
+    {
+        final String upperCaseName = entryName.toUpperCase( Locale.ENGLISH );
+        return upperCaseName.endsWith( ".DEX" ) || upperCaseName.equals( "META-INF/MANIFEST.MF" )
+                || upperCaseName.startsWith( "META-INF/" ) && ( upperCaseName.endsWith( ".SF" )
+                || upperCaseName.endsWith( ".RSA" ) || upperCaseName.endsWith( ".DSA" )
+                || upperCaseName.endsWith( ".EC" ) );
+    }
+
+    private static void checksumResources( Collection<File> resources, CRC32 crc ) throws MojoExecutionException
+    {
+        final byte[] buffer = new byte[ 8192 ];
+        for ( File resource : resources )
+        {
+            if ( resource == null )
+            {
+                continue;
+            }
+            final List<Path> files = resource.isDirectory() ? listFiles( resource, "" )
+                    : resource.isFile() ? Collections.singletonList( resource.toPath() )
+                    : Collections.<Path>emptyList();
+            for ( Path file : files )
+            {
+                final Path name = resource.isDirectory() ? resource.toPath().relativize( file ) : file.getFileName();
+                crc.update( name.toString().getBytes( StandardCharsets.UTF_8 ) );
+                try ( InputStream in = Files.newInputStream( file ) )
+                {
+                    int read;
+                    while ( ( read = in.read( buffer ) ) >= 0 )
+                    {
+                        crc.update( buffer, 0, read );
+                    }
+                }
+                catch ( IOException e )
+                {
+                    throw new MojoExecutionException( "Error reading " + file, e );
+                }
+            }
+        }
+    }
+
+    private static String checksum( byte[] bytes )
+    {
+        return Long.toHexString( crc( bytes ) );
+    }
+
+    private static long crc( byte[] bytes )
+    {
+        final CRC32 crc = new CRC32();
+        crc.update( bytes );
+        return crc.getValue();
+    }
+
+    private static String toClassName( String internalName )
+    {
+        return internalName.replace( '/', '.' );
+    }
+
+    /**
+     * @return the files in the directory and its subdirectories whose names end with the suffix, sorted
+     */
+    private static List<Path> listFiles( File directory, final String suffix ) throws MojoExecutionException
+    {
+        final List<Path> files = new ArrayList<Path>();
+        try
+        {
+            Files.walkFileTree( directory.toPath(), new SimpleFileVisitor<Path>()
+            {
+                @Override
+                public FileVisitResult visitFile( Path file, BasicFileAttributes attributes )
+                {
+                    if ( attributes.isRegularFile() && file.getFileName().toString().endsWith( suffix ) )
+                    {
+                        files.add( file );
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            } );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Error listing the files in " + directory, e );
+        }
+        Collections.sort( files );
+        return files;
+    }
+}
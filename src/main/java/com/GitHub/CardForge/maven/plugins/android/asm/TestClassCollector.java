@@ -0,0 +1,182 @@
+package com.github.cardforge.maven.plugins.android.asm;
+
+import org.apache.commons.lang3.StringUtils;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects the superclass, test runner and test methods of every class it visits, so that the runnable test classes
+ * can be told apart once all of them have been read, including those that extend a test class of the same project.
+ */
+class TestClassCollector extends ClassVisitor
+{
+    private static final String TEST_RUNNER = "Lorg/junit/runner/RunWith;";
+    private static final String TEST_METHOD = "Lorg/junit/Test;";
+
+    /**
+     * Packages of the platform, whose classes neither are run with a runner nor have test methods.
+     */
+    private static final String[] PLATFORM_PACKAGES = { "java/", "javax/", "android/", "androidx/", "dalvik/",
+            "kotlin/" };
+
+    private final String[] parentPackages;
+    private final Map<String, String> superNames = new HashMap<String, String>();
+    private final Set<String> concreteClasses = new HashSet<String>();
+    private final Set<String> runWithClasses = new HashSet<String>();
+    private final Set<String> testMethodClasses = new HashSet<String>();
+
+    private String currentClass;
+
+    /**
+     * @param parentPackages Packages whose descendants are tests, formatted with <code>/</code> (slash) instead of
+     *                       <code>.</code> (dot). For example: <code>junit/framework/</code>
+     */
+    TestClassCollector( String... parentPackages )
+    {
+        super( Opcodes.ASM4 );
+        this.parentPackages = parentPackages;
+    }
+
+    @Override
+    public void visit( int version, int access, String name, String signature, String superName, String[] interfaces )
+    {
+        currentClass = name;
+        superNames.put( name, superName );
+        if ( ( access & ( Opcodes.ACC_ABSTRACT | Opcodes.ACC_INTERFACE ) ) == 0 )
+        {
+            concreteClasses.add( name );
+        }
+    }
+
+    @Override
+    public AnnotationVisitor visitAnnotation( String desc, boolean visible )
+    {
+        // any runner can be pointed at the class, not only AndroidJUnit4
+        if ( TEST_RUNNER.equals( desc ) )
+        {
+            runWithClasses.add( currentClass );
+        }
+        return null;
+    }
+
+    @Override
+    public MethodVisitor visitMethod( int access, String name, String desc, String signature, String[] exceptions )
+    {
+        if ( testMethodClasses.contains( currentClass ) )
+        {
+            return null;
+        }
+        final String declaringClass = currentClass;
+        return new MethodVisitor( Opcodes.ASM4 )
+        {
+            @Override
+            public AnnotationVisitor visitAnnotation( String desc, boolean visible )
+            {
+                if ( TEST_METHOD.equals( desc ) )
+                {
+                    testMethodClasses.add( declaringClass );
+                }
+                return null;
+            }
+        };
+    }
+
+    /**
+     * @return the concrete, top level test classes visited, as binary names with <code>.</code> (dot).
+     */
+    List<String> getTestClasses()
+    {
+        final List<String> testClasses = new ArrayList<String>();
+        for ( String name : concreteClasses )
+        {
+            if ( !name.contains( "$" ) && isTest( name ) )
+            {
+                testClasses.add( name.replace( '/', '.' ) );
+            }
+        }
+        return testClasses;
+    }
+
+    /**
+     * @return the concrete classes visited that could not be told apart from tests, as binary names with
+     * <code>.</code> (dot): top level classes extending a class that was not visited and is not of the platform,
+     * which may be run with a runner or have test methods, and nested test classes of top level classes that are not
+     * tests themselves. The test classes are only complete if there are none.
+     */
+    List<String> getUnresolvedClasses()
+    {
+        final List<String> unresolvedClasses = new ArrayList<String>();
+        for ( String name : concreteClasses )
+        {
+            final boolean unresolved;
+            if ( name.contains( "$" ) )
+            {
+                final String topLevelClass = StringUtils.substringBefore( name, "$" );
+                unresolved = isTest( name )
+                        && !( concreteClasses.contains( topLevelClass ) && isTest( topLevelClass ) );
+            }
+            else
+            {
+                unresolved = !isTest( name ) && hasUnknownAncestor( name );
+            }
+            if ( unresolved )
+            {
+                unresolvedClasses.add( name.replace( '/', '.' ) );
+            }
+        }
+        return unresolvedClasses;
+    }
+
+    private boolean isTest( String name )
+    {
+        // @RunWith and test methods are inherited, and test base classes may be declared in this project
+        final Set<String> visited = new HashSet<String>();
+        for ( String type = name; type != null && visited.add( type ); type = superNames.get( type ) )
+        {
+            if ( runWithClasses.contains( type ) || testMethodClasses.contains( type ) )
+            {
+                return true;
+            }
+            final String superName = superNames.get( type );
+            for ( String testPackage : parentPackages )
+            {
+                if ( StringUtils.startsWith( superName, testPackage ) )
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean hasUnknownAncestor( String name )
+    {
+        final Set<String> visited = new HashSet<String>();
+        String type = name;
+        while ( superNames.containsKey( type ) && visited.add( type ) )
+        {
+            type = superNames.get( type );
+        }
+        if ( type == null || superNames.containsKey( type ) )
+        {
+            return false;
+        }
+        for ( String platformPackage : PLATFORM_PACKAGES )
+        {
+            if ( type.startsWith( platformPackage ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.cardforge.maven.plugins.android.asm;
+
+import org.apache.commons.lang3.StringUtils;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * Tells in a single pass whether a class looks like a test: it directly extends a class of a test package or is run
+ * with <code>AndroidJUnit4</code>. Holds the result of the last class visited, so each thread needs its own finder.
+ */
+class TestClassFinder extends ClassVisitor
+{
+    private static final String TEST_RUNNER = "Lorg/junit/runner/RunWith;";
+
+    private final String[] parentPackages;
+    private boolean found;
+
+    /**
+     * @param parentPackages Packages whose descendants are tests, formatted with <code>/</code> (slash) instead of
+     *                       <code>.</code> (dot). For example: <code>junit/framework/</code>
+     */
+    TestClassFinder( String... parentPackages )
+    {
+        super( Opcodes.ASM4 );
+        this.parentPackages = parentPackages;
+    }
+
+    @Override
+    public void visit( int version, int access, String name, String signature, String superName, String[] interfaces )
+    {
+        found = false;
+        for ( String testPackage : parentPackages )
+        {
+            if ( StringUtils.startsWith( superName, testPackage ) )
+            {
+                found = true;
+            }
+        }
+    }
+
+    @Override
+    public AnnotationVisitor visitAnnotation( String desc, boolean visible )
+    {
+        if ( found || ! TEST_RUNNER.equals( desc ) )
+        {
+            return null;
+        }
+        return new AnnotationVisitor( Opcodes.ASM4 )
+        {
+            @Override
+            public void visit( String name, Object value )
+            {
+                if ( value instanceof Type && ( ( Type ) value ).getClassName().contains( "AndroidJUnit4" ) )
+                {
+                    found = true;
+                }
+            }
+        };
+    }
+
+    /**
+     * @return if the last class visited looks like a test.
+     */
+    boolean isFound()
+    {
+        return found;
+    }
+}
@@ -0,0 +1,209 @@
+package com.github.cardforge.maven.plugins.android.common;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The values of an <code>AndroidManifest.xml</code> that are used throughout the build.
+ * <p>
+ * Each manifest is parsed once per session. The parsed values are cached by the path of the manifest and the hash of
+ * its content, so a manifest that is rewritten during the build (eg by the manifest-update goal) is parsed again.
+ */
+public final class AndroidManifestMetadata
+{
+    private static final String ANDROID_NAMESPACE = "http://schemas.android.com/apk/res/android";
+    private static final String ACTION_MAIN = "android.intent.action.MAIN";
+    private static final String CATEGORY_LAUNCHER = "android.intent.category.LAUNCHER";
+
+    /**
+     * Metadata of every manifest parsed in this session, by absolute path.
+     */
+    private static final ConcurrentMap<String, AndroidManifestMetadata> CACHE =
+            new ConcurrentHashMap<String, AndroidManifestMetadata>();
+
+    private final String hash;
+    private final String packageName;
+    private final String instrumentationRunner;
+    private final String minSdkVersion;
+    private final String targetSdkVersion;
+    private final String launcherActivity;
+
+    private AndroidManifestMetadata( String hash, Element manifest )
+    {
+        this.hash = hash;
+        this.packageName = manifest.getAttribute( "package" );
+        this.instrumentationRunner = getAndroidAttribute( getFirstElement( manifest, "instrumentation" ), "name" );
+
+        final Element usesSdk = getFirstElement( manifest, "uses-sdk" );
+        this.minSdkVersion = getAndroidAttribute( usesSdk, "minSdkVersion" );
+        this.targetSdkVersion = getAndroidAttribute( usesSdk, "targetSdkVersion" );
+        this.launcherActivity = findLauncherActivity( manifest, packageName );
+    }
+
+    /**
+     * @param manifestFile  AndroidManifest.xml to read.
+     * @return the metadata of the manifest, parsing it only if it has changed since it was last parsed.
+     * @throws IOException if the manifest could not be read or parsed.
+     */
+    public static AndroidManifestMetadata forManifest( File manifestFile ) throws IOException
+    {
+        final String key = manifestFile.getAbsolutePath();
+        final String hash = new Fingerprint().add( manifestFile ).getValue();
+        final AndroidManifestMetadata cached = CACHE.get( key );
+        if ( cached != null && cached.hash.equals( hash ) )
+        {
+            return cached;
+        }
+
+        final AndroidManifestMetadata metadata = parse( manifestFile, hash );
+        CACHE.put( key, metadata );
+        return metadata;
+    }
+
+    /**
+     * @return the package attribute of the manifest.
+     */
+    public String getPackageName()
+    {
+        return packageName;
+    }
+
+    /**
+     * @return the name of the first instrumentation declared in the manifest, or {@code null} if there is none.
+     */
+    public String getInstrumentationRunner()
+    {
+        return instrumentationRunner;
+    }
+
+    /**
+     * @return the minSdkVersion of the uses-sdk element, or {@code null} if not declared.
+     */
+    public String getMinSdkVersion()
+    {
+        return minSdkVersion;
+    }
+
+    /**
+     * @return the targetSdkVersion of the uses-sdk element, or {@code null} if not declared.
+     */
+    public String getTargetSdkVersion()
+    {
+        return targetSdkVersion;
+    }
+
+    /**
+     * @return the fully qualified name of the first activity that has an intent-filter for the MAIN action and the
+     *      LAUNCHER category, or {@code null} if there is no such activity.
+     */
+    public String getLauncherActivity()
+    {
+        return launcherActivity;
+    }
+
+    private static AndroidManifestMetadata parse( File manifestFile, String hash ) throws IOException
+    {
+        if ( !manifestFile.isFile() )
+        {
+            throw new IOException( "AndroidManifest.xml not found : " + manifestFile );
+        }
+        try
+        {
+            final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware( true );
+            final Document document = factory.newDocumentBuilder().parse( manifestFile );
+            return new AndroidManifestMetadata( hash, document.getDocumentElement() );
+        }
+        catch ( ParserConfigurationException e )
+        {
+            throw new IOException( "Could not parse " + manifestFile, e );
+        }
+        catch ( SAXException e )
+        {
+            throw new IOException( "Could not parse " + manifestFile, e );
+        }
+    }
+
+    private static String findLauncherActivity( Element manifest, String packageName )
+    {
+        final Element application = getFirstElement( manifest, "application" );
+        if ( application == null )
+        {
+            return null;
+        }
+
+        final NodeList activities = application.getElementsByTagName( "activity" );
+        for ( int i = 0; i < activities.getLength(); i++ )
+        {
+            final Element activity = (Element) activities.item( i );
+            String activityName = getAndroidAttribute( activity, "name" );
+            if ( activityName != null && isLauncher( activity ) )
+            {
+                if ( !activityName.contains( "." ) )
+                {
+                    activityName = "." + activityName;
+                }
+                if ( activityName.startsWith( "." ) )
+                {
+                    activityName = packageName + activityName;
+                }
+                return activityName;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isLauncher( Element activity )
+    {
+        final NodeList intentFilters = activity.getElementsByTagName( "intent-filter" );
+        for ( int i = 0; i < intentFilters.getLength(); i++ )
+        {
+            final Element intentFilter = (Element) intentFilters.item( i );
+            if ( hasNamedChild( intentFilter, "action", ACTION_MAIN )
+                    && hasNamedChild( intentFilter, "category", CATEGORY_LAUNCHER ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasNamedChild( Element parent, String tagName, String name )
+    {
+        final NodeList children = parent.getElementsByTagName( tagName );
+        for ( int i = 0; i < children.getLength(); i++ )
+        {
+            if ( name.equals( getAndroidAttribute( (Element) children.item( i ), "name" ) ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Element getFirstElement( Element parent, String tagName )
+    {
+        final NodeList elements = parent.getElementsByTagName( tagName );
+        final Node node = elements.getLength() > 0 ? elements.item( 0 ) : null;
+        return (Element) node;
+    }
+
+    private static String getAndroidAttribute( Element element, String name )
+    {
+        if ( element == null || !element.hasAttributeNS( ANDROID_NAMESPACE, name ) )
+        {
+            return null;
+        }
+        return element.getAttributeNS( ANDROID_NAMESPACE, name );
+    }
+}
@@ -0,0 +1,107 @@
+package com.github.cardforge.maven.plugins.android.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * The entry names of a jar, aar, apklib or apk archive.
+ * <p>
+ * Each archive's central directory is read once per session, however many projects or goals query it. The names are
+ * cached by the path of the archive along with its size and modification time, so an archive that is rebuilt during
+ * the session is read again.
+ */
+public final class ArchiveIndex
+{
+    /**
+     * Index of every archive read in this session, by absolute path.
+     */
+    private static final ConcurrentMap<File, ArchiveIndex> CACHE = new ConcurrentHashMap<File, ArchiveIndex>();
+
+    private final long lastModified;
+    private final long length;
+    private final Set<String> entryNames;
+
+    private ArchiveIndex( long lastModified, long length, Set<String> entryNames )
+    {
+        this.lastModified = lastModified;
+        this.length = length;
+        this.entryNames = entryNames;
+    }
+
+    /**
+     * @param archive   Archive to index.
+     * @return the index of the archive, reading it only if it has changed since it was last read.
+     * @throws IOException if the archive could not be read.
+     */
+    public static ArchiveIndex forArchive( File archive ) throws IOException
+    {
+        final File key = archive.getAbsoluteFile();
+        final ArchiveIndex cached = CACHE.get( key );
+        if ( cached != null && cached.isCurrent( key ) )
+        {
+            return cached;
+        }
+        final ArchiveIndex index = read( key );
+        CACHE.put( key, index );
+        return index;
+    }
+
+    private static ArchiveIndex read( File archive ) throws IOException
+    {
+        final long lastModified = archive.lastModified();
+        final long length = archive.length();
+        final Set<String> entryNames = new LinkedHashSet<String>();
+        try ( ZipFile zipFile = new ZipFile( archive ) )
+        {
+            final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while ( entries.hasMoreElements() )
+            {
+                entryNames.add( entries.nextElement().getName() );
+            }
+        }
+        return new ArchiveIndex( lastModified, length, Collections.unmodifiableSet( entryNames ) );
+    }
+
+    private boolean isCurrent( File archive )
+    {
+        return archive.lastModified() == lastModified && archive.length() == length;
+    }
+
+    /**
+     * @param prefix    Folder of the entries, eg libs/
+     * @param suffix    End of the entry names, eg .jar, or an empty String for all files.
+     * @return the names of the files (not directories) below the prefix whose name ends with the suffix.
+     */
+    public List<String> getFiles( String prefix, String suffix )
+    {
+        final List<String> files = new ArrayList<String>();
+        for ( final String entryName : entryNames )
+        {
+            if ( entryName.startsWith( prefix ) && entryName.endsWith( suffix ) && !entryName.endsWith( "/" )
+                    && entryName.length() > prefix.length() + suffix.length() )
+            {
+                files.add( entryName );
+            }
+        }
+        return files;
+    }
+
+    /**
+     * @param prefix    Folder of the entries, eg jni/
+     * @return true if the archive contains any file below the prefix.
+     */
+    public boolean hasFilesUnder( String prefix )
+    {
+        return !getFiles( prefix, "" ).isEmpty();
+    }
+}
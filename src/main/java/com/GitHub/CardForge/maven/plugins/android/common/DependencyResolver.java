@@ -1,6 +1,7 @@
 package com.github.cardforge.maven.plugins.android.common;
 
 import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.repository.ArtifactRepository;
 import org.apache.maven.artifact.resolver.ArtifactResolutionRequest;
 import org.apache.maven.artifact.resolver.ArtifactResolutionResult;
 import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
@@ -12,9 +13,14 @@ import org.apache.maven.shared.dependency.graph.DependencyGraphBuilder;
 import org.apache.maven.shared.dependency.graph.DependencyGraphBuilderException;
 import org.apache.maven.shared.dependency.graph.DependencyNode;
 import org.codehaus.plexus.logging.Logger;
+import org.eclipse.aether.SessionData;
 
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static com.github.cardforge.maven.plugins.android.common.AndroidExtension.AAR;
 import static com.github.cardforge.maven.plugins.android.common.AndroidExtension.APK;
@@ -22,11 +28,19 @@ import static com.github.cardforge.maven.plugins.android.common.AndroidExtension
 
 /**
  * Resolves the aar and apklib dependencies for an Artifact.
+ * <p>
+ * The library dependencies of an artifact are memoized for the session, so that libraries shared by several modules
+ * of a reactor are only resolved once. Concurrent use from several threads is supported.
  *
  * @author William Ferguson - william.ferguson@xandar.com.au
  */
 public final class DependencyResolver
 {
+    /**
+     * Key of the resolved library dependencies in the repository session data.
+     */
+    private static final String SESSION_DEPENDENCIES_KEY = DependencyResolver.class.getName() + ".dependencies";
+
     private final Logger log;
     private final DependencyGraphBuilder dependencyGraphBuilder;
 
@@ -82,6 +96,13 @@ public final class DependencyResolver
 
         log.debug( "MavenSession = " + session + "  repositorySystem = " + repositorySystem );
 
+        final ConcurrentMap<String, Set<Artifact>> resolved = getSessionDependencies( session );
+        final String key = resolved == null ? null : getLibraryKey( session, artifact );
+        if ( resolved != null && resolved.containsKey( key ) )
+        {
+            return new HashSet<Artifact>( resolved.get( key ) );
+        }
+
         final ArtifactResolutionRequest request = new ArtifactResolutionRequest();
         request.setArtifact( artifact );
         request.setResolveRoot( false );        // Don't include source artifact in result
@@ -103,6 +124,44 @@ public final class DependencyResolver
             }
         }
 
+        if ( resolved != null )
+        {
+            resolved.putIfAbsent( key, Collections.unmodifiableSet( new HashSet<Artifact>( libraryDeps ) ) );
+        }
         return libraryDeps;
     }
+
+    /**
+     * The libraries of an artifact depend on the repositories they are resolved from, which may differ per project.
+     */
+    private static String getLibraryKey( MavenSession session, Artifact artifact )
+    {
+        final StringBuilder key = new StringBuilder( "library:" ).append( artifact.getId() );
+        final List<ArtifactRepository> repositories = session.getCurrentProject().getRemoteArtifactRepositories();
+        if ( repositories != null )
+        {
+            for ( final ArtifactRepository repository : repositories )
+            {
+                key.append( ' ' ).append( repository.getId() );
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * @param session MavenSession whose repository session holds the dependencies.
+     * @return the library dependencies resolved in this session by key, or {@code null} if there is no repository
+     * session.
+     */
+    @SuppressWarnings( "unchecked" )
+    private static ConcurrentMap<String, Set<Artifact>> getSessionDependencies( MavenSession session )
+    {
+        if ( session == null || session.getRepositorySession() == null )
+        {
+            return null;
+        }
+        final SessionData data = session.getRepositorySession().getData();
+        data.set( SESSION_DEPENDENCIES_KEY, null, new ConcurrentHashMap<String, Set<Artifact>>() );
+        return ( ConcurrentMap<String, Set<Artifact>> ) data.get( SESSION_DEPENDENCIES_KEY );
+    }
 }
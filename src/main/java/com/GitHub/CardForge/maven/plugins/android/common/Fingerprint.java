@@ -0,0 +1,108 @@
+package com.github.cardforge.maven.plugins.android.common;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Computes a content hash over a sequence of strings and files.
+ * <p>
+ * Used to decide whether the inputs of a build step have changed since the step was last executed.
+ */
+public final class Fingerprint
+{
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final MessageDigest digest;
+
+    public Fingerprint()
+    {
+        try
+        {
+            digest = MessageDigest.getInstance( "SHA-256" );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            throw new IllegalStateException( "SHA-256 is not supported by this JVM", e );
+        }
+    }
+
+    /**
+     * Adds a value to the fingerprint. A {@code null} value is distinct from an empty value.
+     *
+     * @param value Value to add.
+     * @return this Fingerprint.
+     */
+    public Fingerprint add( String value )
+    {
+        if ( value == null )
+        {
+            digest.update( (byte) 0 );
+        }
+        else
+        {
+            digest.update( (byte) 1 );
+            digest.update( value.getBytes( StandardCharsets.UTF_8 ) );
+            // Separate the values so that "ab" + "c" differs from "a" + "bc".
+            digest.update( (byte) 0 );
+        }
+        return this;
+    }
+
+    /**
+     * Adds the content of a file to the fingerprint. A missing file is distinct from an empty file.
+     *
+     * @param file File whose content to add.
+     * @return this Fingerprint.
+     * @throws IOException if the file could not be read.
+     */
+    public Fingerprint add( File file ) throws IOException
+    {
+        if ( file == null || !file.isFile() )
+        {
+            digest.update( (byte) 0 );
+            return this;
+        }
+
+        digest.update( (byte) 1 );
+        final byte[] buffer = new byte[ 8192 ];
+        try ( InputStream in = new FileInputStream( file ) )
+        {
+            int read;
+            while ( ( read = in.read( buffer ) ) != -1 )
+            {
+                digest.update( buffer, 0, read );
+            }
+        }
+        digest.update( (byte) 0 );
+        return this;
+    }
+
+    /**
+     * @return the hex encoded hash of everything that has been added so far.
+     */
+    public String getValue()
+    {
+        final byte[] hash;
+        try
+        {
+            hash = ( (MessageDigest) digest.clone() ).digest();
+        }
+        catch ( CloneNotSupportedException e )
+        {
+            throw new IllegalStateException( "Could not compute fingerprint", e );
+        }
+
+        final char[] chars = new char[ hash.length * 2 ];
+        for ( int i = 0; i < hash.length; i++ )
+        {
+            chars[ i * 2 ] = HEX_DIGITS[ ( hash[ i ] >> 4 ) & 0xf ];
+            chars[ i * 2 + 1 ] = HEX_DIGITS[ hash[ i ] & 0xf ];
+        }
+        return new String( chars );
+    }
+}
@@ -156,6 +156,24 @@ public final class UnpackedLibHelper
         }
     }
 
+    /**
+     * @param artifact  Android dependency whose archive to index.
+     * @return the index of the entries of the archive of the artifact, shared by all projects of the session.
+     * @throws MojoExecutionException if the artifact could not be resolved or read.
+     */
+    public ArchiveIndex getArchiveIndex( Artifact artifact ) throws MojoExecutionException
+    {
+        final File archive = getArtifactToFile( artifact );
+        try
+        {
+            return ArchiveIndex.forArchive( archive );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Could not read the entries of " + archive, e );
+        }
+    }
+
     public File getArtifactToFile( Artifact artifact ) throws MojoExecutionException
     {
         final File artifactFile = artifactResolverHelper.resolveArtifactToFile( artifact );
@@ -31,6 +31,8 @@ public class Proguard
     private Boolean includeJdkLibs;
     private String[] options;
     private Boolean attachMap;
+    private Boolean inProcess;
+    private Boolean isolatedClassLoader;
 
     public Boolean isSkip()
     {
@@ -86,4 +88,14 @@ public class Proguard
     {
         return options;
     }
+
+    public Boolean isInProcess()
+    {
+        return inProcess;
+    }
+
+    public Boolean isIsolatedClassLoader()
+    {
+        return isolatedClassLoader;
+    }
 }
@@ -1,5 +1,6 @@
 package com.github.cardforge.maven.plugins.android.configuration;
 
+import java.io.File;
 import java.util.List;
 
 /**
@@ -71,6 +72,38 @@ public class Test
      * Mirror of {@link AbstractInstrumentationMojo#testFailSafe}
      */
     private Boolean failSafe;
+    /**
+     * Mirror of {@link AbstractInstrumentationMojo#testSharding}
+     */
+    private String sharding;
+    /**
+     * Mirror of {@link AbstractInstrumentationMojo#testDurationHistory}
+     */
+    private File durationHistory;
+    /**
+     * Mirror of {@link AbstractInstrumentationMojo#testRerunFailingTestsCount}
+     */
+    private Integer rerunFailingTestsCount;
+    /**
+     * Mirror of {@link AbstractInstrumentationMojo#testRerunOnOtherDevice}
+     */
+    private Boolean rerunOnOtherDevice;
+    /**
+     * Mirror of {@link AbstractInstrumentationMojo#testResumeIncompleteRuns}
+     */
+    private Boolean resumeIncompleteRuns;
+    /**
+     * Mirror of {@link AbstractInstrumentationMojo#testEventStream}
+     */
+    private String eventStream;
+    /**
+     * Mirror of {@link AbstractInstrumentationMojo#testImpactSelection}
+     */
+    private Boolean impactSelection;
+    /**
+     * Mirror of {@link AbstractInstrumentationMojo#testImpactBaseline}
+     */
+    private File impactBaseline;
 
 
     public String getSkip()
@@ -147,4 +180,44 @@ public class Test
     {
         return failSafe;
     }
+
+    public String getSharding()
+    {
+        return sharding;
+    }
+
+    public File getDurationHistory()
+    {
+        return durationHistory;
+    }
+
+    public Integer getRerunFailingTestsCount()
+    {
+        return rerunFailingTestsCount;
+    }
+
+    public Boolean isRerunOnOtherDevice()
+    {
+        return rerunOnOtherDevice;
+    }
+
+    public Boolean isResumeIncompleteRuns()
+    {
+        return resumeIncompleteRuns;
+    }
+
+    public String getEventStream()
+    {
+        return eventStream;
+    }
+
+    public Boolean isImpactSelection()
+    {
+        return impactSelection;
+    }
+
+    public File getImpactBaseline()
+    {
+        return impactBaseline;
+    }
 }
@@ -0,0 +1,139 @@
+package com.github.cardforge.maven.plugins.android.phase01generatesources;
+
+import com.github.cardforge.maven.plugins.android.common.Fingerprint;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Index of the AIDL files in a Collection of source directories.
+ * <p>
+ * The fingerprint of an AIDL file covers the files it imports and the files of the same packages, so each file is
+ * part of the fingerprints of many others. Each file is read once, when it is first looked up, and its hash and
+ * imports are kept for the other fingerprints of the execution.
+ */
+final class AidlSourceIndex
+{
+    private static final Pattern IMPORT_PATTERN = Pattern.compile( "^\\s*import\\s+([\\w.]+)\\s*;.*$" );
+
+    private final Collection<File> sourceDirs;
+    // by path relative to the source directories, null if no source directory has the file
+    private final Map<String, AidlSource> sources = new HashMap<>();
+    private final Map<String, List<String>> packageFiles = new HashMap<>();
+
+    /**
+     * @param sourceDirs Source directories in which to look for AIDL files, in order.
+     */
+    AidlSourceIndex( Collection<File> sourceDirs )
+    {
+        this.sourceDirs = sourceDirs;
+    }
+
+    /**
+     * @param relativePath AIDL file, relative to its source directory.
+     * @return the hash of the content of the file in the first source directory that has it,
+     * or {@code null} if none has it.
+     * @throws IOException if the file could not be read.
+     */
+    String getHash( String relativePath ) throws IOException
+    {
+        final AidlSource source = getSource( relativePath );
+        return source == null ? null : source.hash;
+    }
+
+    /**
+     * @param relativePath AIDL file, relative to its source directory.
+     * @return the qualified names the file imports, empty if no source directory has it.
+     * @throws IOException if the file could not be read.
+     */
+    List<String> getImports( String relativePath ) throws IOException
+    {
+        final AidlSource source = getSource( relativePath );
+        return source == null ? Collections.<String>emptyList() : source.imports;
+    }
+
+    /**
+     * @param packagePath Package, as a path relative to the source directories.
+     * @return the AIDL files of the package in all source directories, relative to their source directory, sorted.
+     */
+    List<String> getPackageFiles( String packagePath )
+    {
+        List<String> files = packageFiles.get( packagePath );
+        if ( files == null )
+        {
+            final Set<String> sortedFiles = new TreeSet<>();
+            for ( final File sourceDir : sourceDirs )
+            {
+                final String[] names = new File( sourceDir, packagePath ).list();
+                if ( names == null )
+                {
+                    continue;
+                }
+                for ( final String name : names )
+                {
+                    if ( name.endsWith( ".aidl" ) )
+                    {
+                        sortedFiles.add( packagePath.isEmpty() ? name : packagePath + File.separator + name );
+                    }
+                }
+            }
+            files = new ArrayList<>( sortedFiles );
+            packageFiles.put( packagePath, files );
+        }
+        return files;
+    }
+
+    private AidlSource getSource( String relativePath ) throws IOException
+    {
+        if ( sources.containsKey( relativePath ) )
+        {
+            return sources.get( relativePath );
+        }
+
+        AidlSource source = null;
+        for ( final File sourceDir : sourceDirs )
+        {
+            final File file = new File( sourceDir, relativePath );
+            if ( file.isFile() )
+            {
+                final String content = FileUtils.readFileToString( file, "UTF-8" );
+                final List<String> imports = new ArrayList<>();
+                for ( final String line : content.split( "\r?\n" ) )
+                {
+                    final Matcher matcher = IMPORT_PATTERN.matcher( line );
+                    if ( matcher.matches() )
+                    {
+                        imports.add( matcher.group( 1 ) );
+                    }
+                }
+                source = new AidlSource( new Fingerprint().add( content ).getValue(), imports );
+                break;
+            }
+        }
+        sources.put( relativePath, source );
+        return source;
+    }
+
+    private static final class AidlSource
+    {
+        private final String hash;
+        private final List<String> imports;
+
+        private AidlSource( String hash, List<String> imports )
+        {
+            this.hash = hash;
+            this.imports = imports;
+        }
+    }
+}
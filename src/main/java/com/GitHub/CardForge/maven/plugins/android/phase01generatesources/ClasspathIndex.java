@@ -0,0 +1,152 @@
+package com.github.cardforge.maven.plugins.android.phase01generatesources;
+
+import com.github.cardforge.maven.plugins.android.common.ArchiveIndex;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Index of the classes available in a Collection of classpath elements.
+ * <p>
+ * The class entries of each jar are read from its central directory, in parallel, through the {@link ArchiveIndex}
+ * that is shared with the other modules of the session. Lookups are then simple hash lookups
+ * instead of a linear scan of the classpath by a ClassLoader.
+ * <p>
+ * Files that cannot be read as archives are skipped with a warning, as a ClassLoader would skip them.
+ */
+final class ClasspathIndex
+{
+    private final List<File> directories = new ArrayList<>();
+    private final Set<String> jarClassEntries = new HashSet<>();
+
+    private ClasspathIndex()
+    {
+    }
+
+    /**
+     * @param classpathElements Jars or directories to index.
+     * @param log               Log to warn about the jars that could not be read.
+     * @return ClasspathIndex of the supplied classpath elements.
+     * @throws IOException if the jars could not be indexed.
+     */
+    static ClasspathIndex create( List<String> classpathElements, Log log ) throws IOException
+    {
+        final ClasspathIndex index = new ClasspathIndex();
+        final List<File> jars = new ArrayList<>();
+        for ( final String element : classpathElements )
+        {
+            final File file = new File( element );
+            if ( file.isDirectory() )
+            {
+                index.directories.add( file );
+            }
+            else if ( file.isFile() )
+            {
+                jars.add( file );
+            }
+        }
+
+        final List<Set<String>> jarClassEntries = getJarClassEntries( jars );
+        for ( int i = 0; i < jars.size(); i++ )
+        {
+            final Set<String> entries = jarClassEntries.get( i );
+            if ( entries == null )
+            {
+                log.warn( "Ignoring classpath element " + jars.get( i ) + " as it could not be read as an archive" );
+                continue;
+            }
+            index.jarClassEntries.addAll( entries );
+        }
+        return index;
+    }
+
+    /**
+     * @param className Fully qualified name of the class, eg com.foo.R
+     * @return true if one of the classpath elements contains the class.
+     */
+    boolean containsClass( String className )
+    {
+        final String entryName = className.replace( '.', '/' ) + ".class";
+        if ( jarClassEntries.contains( entryName ) )
+        {
+            return true;
+        }
+        for ( final File directory : directories )
+        {
+            if ( new File( directory, entryName ).isFile() )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the class entries of each jar, or {@code null} for a jar that could not be read.
+     */
+    private static List<Set<String>> getJarClassEntries( List<File> jars ) throws IOException
+    {
+        final List<Set<String>> result = new ArrayList<>( jars.size() );
+        if ( jars.isEmpty() )
+        {
+            return result;
+        }
+
+        final int threadCount = Math.min( jars.size(), Runtime.getRuntime().availableProcessors() );
+        final ExecutorService executor = Executors.newFixedThreadPool( threadCount );
+        try
+        {
+            final List<Future<Set<String>>> futures = new ArrayList<>( jars.size() );
+            for ( final File jar : jars )
+            {
+                futures.add( executor.submit( new Callable<Set<String>>()
+                {
+                    @Override
+                    public Set<String> call()
+                    {
+                        try
+                        {
+                            return new HashSet<>( ArchiveIndex.forArchive( jar ).getFiles( "", ".class" ) );
+                        }
+                        catch ( IOException e )
+                        {
+                            return null;
+                        }
+                    }
+                } ) );
+            }
+            for ( final Future<Set<String>> future : futures )
+            {
+                result.add( future.get() );
+            }
+            return result;
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException( "Interrupted while indexing the classpath", e );
+        }
+        catch ( ExecutionException e )
+        {
+            if ( e.getCause() instanceof IOException )
+            {
+                throw ( IOException ) e.getCause();
+            }
+            throw new IOException( "Could not index the classpath", e.getCause() );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -1,53 +1,51 @@
 package com.github.cardforge.maven.plugins.android.phase01generatesources;
 
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
 
 /**
  * Looks for duplicate layout files across Android resource packages.
+ * <p>
+ * Layout files are indexed by name as they are added, so finding the conflicts is a single pass over the index.
  */
 final class ConflictingLayoutDetector
 {
-    private Map<String, Collection<String>> map = new HashMap<String, Collection<String>>();
+    private final Map<String, Set<String>> packageNamesByLayoutFile = new HashMap<String, Set<String>>();
 
     public void addLayoutFiles( String packageName, String[] layoutFiles )
     {
-        map.put( packageName, Arrays.asList( layoutFiles ) );
+        for ( final String layoutFile : layoutFiles )
+        {
+            Set<String> packageNames = packageNamesByLayoutFile.get( layoutFile );
+            if ( packageNames == null )
+            {
+                packageNames = new TreeSet<String>();
+                packageNamesByLayoutFile.put( layoutFile, packageNames );
+            }
+            packageNames.add( packageName );
+        }
     }
 
     public Collection<ConflictingLayout> getConflictingLayouts()
     {
         final Map<String, ConflictingLayout> result = new TreeMap<String, ConflictingLayout>();
-        for ( final String entryA : map.keySet() )
+        for ( final Map.Entry<String, Set<String>> entry : packageNamesByLayoutFile.entrySet() )
         {
-            for ( final String entryB : map.keySet() )
+            if ( entry.getValue().size() < 2 )
             {
-                if ( entryA.equals( entryB ) )
-                {
-                    continue;
-                }
-
-                // Find any layout files that are in both packages.
-                final Set<String> tmp = new HashSet<String>();
-                tmp.addAll( map.get( entryA ) );
-                tmp.retainAll( map.get( entryB ) );
+                continue;
+            }
 
-                for ( final String layoutFile : tmp )
-                {
-                    if ( !result.containsKey( layoutFile ) )
-                    {
-                        result.put( layoutFile, new ConflictingLayout( layoutFile ) );
-                    }
-                    final ConflictingLayout layout = result.get( layoutFile );
-                    layout.addPackageName( entryA );
-                    layout.addPackageName( entryB );
-                }
+            final ConflictingLayout layout = new ConflictingLayout( entry.getKey() );
+            for ( final String packageName : entry.getValue() )
+            {
+                layout.addPackageName( packageName );
             }
+            result.put( entry.getKey(), layout );
         }
 
         return result.values();
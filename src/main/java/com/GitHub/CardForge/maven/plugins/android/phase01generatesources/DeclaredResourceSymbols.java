@@ -0,0 +1,200 @@
+package com.github.cardforge.maven.plugins.android.phase01generatesources;
+
+import org.apache.commons.io.FileUtils;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The resource symbols a library declares in its own res directory, keyed by type and name as in an R.txt file,
+ * eg "string app_name".
+ * <p>
+ * A resource the library overrides from one of its dependencies is declared by the library too, so it is kept in
+ * the non transitive R of the library.
+ */
+final class DeclaredResourceSymbols
+{
+    private static final Pattern NEW_ID = Pattern.compile( "@\\+id/([\\w.]+)" );
+
+    private static final Map<String, String> VALUE_TYPES = new HashMap<String, String>();
+
+    static
+    {
+        for ( String type : new String[] { "string", "color", "dimen", "bool", "integer", "fraction", "plurals",
+                "drawable", "id", "style", "attr", "array" } )
+        {
+            VALUE_TYPES.put( type, type );
+        }
+        VALUE_TYPES.put( "string-array", "array" );
+        VALUE_TYPES.put( "integer-array", "array" );
+        VALUE_TYPES.put( "declare-styleable", "styleable" );
+    }
+
+    private final Set<String> keys = new HashSet<String>();
+
+    private DeclaredResourceSymbols()
+    {
+    }
+
+    /**
+     * @param resDirectory  Res directory of the library, which may not exist.
+     * @return the symbols declared by the files of the res directory.
+     * @throws IOException if a resource file could not be read or parsed.
+     */
+    static DeclaredResourceSymbols collect( File resDirectory ) throws IOException
+    {
+        final DeclaredResourceSymbols symbols = new DeclaredResourceSymbols();
+        final File[] typeDirectories = resDirectory.listFiles();
+        if ( typeDirectories == null )
+        {
+            return symbols;
+        }
+        for ( final File typeDirectory : typeDirectories )
+        {
+            final File[] files = typeDirectory.listFiles();
+            if ( files == null )
+            {
+                continue;
+            }
+            // eg drawable-hdpi holds drawables
+            final String type = typeDirectory.getName().split( "-" )[ 0 ];
+            for ( final File file : files )
+            {
+                if ( "values".equals( type ) )
+                {
+                    symbols.addValues( file );
+                    continue;
+                }
+                // eg icon.9.png declares drawable icon
+                symbols.add( type, file.getName().split( "\\." )[ 0 ] );
+                if ( file.getName().endsWith( ".xml" ) )
+                {
+                    final Matcher matcher = NEW_ID.matcher( FileUtils.readFileToString( file, "UTF-8" ) );
+                    while ( matcher.find() )
+                    {
+                        symbols.add( "id", matcher.group( 1 ) );
+                    }
+                }
+            }
+        }
+        return symbols;
+    }
+
+    /**
+     * @param line  Line of an R.txt file, eg "int drawable icon 0x7f020000".
+     * @return whether the symbol of the line is declared, a styleable attribute such as
+     *         "int styleable Button_android_text 0" being declared with its styleable.
+     */
+    boolean declares( String line )
+    {
+        final String[] tokens = line.trim().split( "\\s+" );
+        if ( tokens.length < 3 )
+        {
+            return false;
+        }
+        final String type = tokens[ 1 ];
+        final String name = tokens[ 2 ];
+        if ( keys.contains( type + " " + name ) )
+        {
+            return true;
+        }
+        if ( "styleable".equals( type ) )
+        {
+            for ( int i = name.indexOf( '_' ); i > 0; i = name.indexOf( '_', i + 1 ) )
+            {
+                if ( keys.contains( type + " " + name.substring( 0, i ) ) )
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    int size()
+    {
+        return keys.size();
+    }
+
+    private void addValues( File valuesFile ) throws IOException
+    {
+        if ( !valuesFile.getName().endsWith( ".xml" ) )
+        {
+            return;
+        }
+        final Document document;
+        try
+        {
+            document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse( valuesFile );
+        }
+        catch ( ParserConfigurationException | SAXException e )
+        {
+            throw new IOException( "Could not parse " + valuesFile, e );
+        }
+        final NodeList values = document.getDocumentElement().getChildNodes();
+        for ( int i = 0; i < values.getLength(); i++ )
+        {
+            if ( values.item( i ).getNodeType() != Node.ELEMENT_NODE )
+            {
+                continue;
+            }
+            final Element value = ( Element ) values.item( i );
+            final String type = "item".equals( value.getTagName() ) ? value.getAttribute( "type" )
+                    : VALUE_TYPES.get( value.getTagName() );
+            if ( type == null || type.isEmpty() )
+            {
+                continue;
+            }
+            add( type, value.getAttribute( "name" ) );
+            addNestedValues( value );
+        }
+    }
+
+    /**
+     * The attributes of a styleable and the enum and flag values of an attribute are declared too.
+     */
+    private void addNestedValues( Element value )
+    {
+        final NodeList children = value.getChildNodes();
+        for ( int i = 0; i < children.getLength(); i++ )
+        {
+            if ( children.item( i ).getNodeType() != Node.ELEMENT_NODE )
+            {
+                continue;
+            }
+            final Element child = ( Element ) children.item( i );
+            final String name = child.getAttribute( "name" );
+            if ( "attr".equals( child.getTagName() ) && !name.contains( ":" ) )
+            {
+                add( "attr", name );
+                addNestedValues( child );
+            }
+            else if ( "enum".equals( child.getTagName() ) || "flag".equals( child.getTagName() ) )
+            {
+                add( "id", name );
+            }
+        }
+    }
+
+    private void add( String type, String name )
+    {
+        if ( !name.isEmpty() )
+        {
+            // R.txt names use underscores, eg style Theme.Custom is Theme_Custom
+            keys.add( type + " " + name.replace( '.', '_' ).replace( ':', '_' ) );
+        }
+    }
+}
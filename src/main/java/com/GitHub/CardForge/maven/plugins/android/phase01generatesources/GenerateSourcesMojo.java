@@ -22,6 +22,7 @@ import com.github.cardforge.maven.plugins.android.ExecutionException;
 import com.github.cardforge.maven.plugins.android.common.AaptCommandBuilder;
 import com.github.cardforge.maven.plugins.android.common.DependencyResolver;
 import com.github.cardforge.maven.plugins.android.common.FileRetriever;
+import com.github.cardforge.maven.plugins.android.common.Fingerprint;
 import com.github.cardforge.maven.plugins.android.configuration.BuildConfigConstant;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
@@ -53,8 +54,12 @@ import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -62,7 +67,12 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
@@ -119,6 +129,22 @@ public class GenerateSourcesMojo extends AbstractAndroidMojo
     @Parameter( defaultValue = "true" )
     private boolean failOnDuplicatePackages;
 
+    /**
+     * <p>Whether the R class generated for each APKLIB dependency should only contain the resources
+     * declared in the res directory of that library, instead of also containing all the resources of its library
+     * dependencies. Resources the library overrides from its dependencies are declared by the library too.</p>
+     *
+     * <p>Non transitive R classes greatly reduce the size of the generated sources and the number of dex fields
+     * for projects with many APKLIB dependencies. Library code must then reference resources of its dependencies
+     * through the R class of the package that declares them.</p>
+     *
+     * <p>This only applies to APKLIB dependencies. AAR dependencies are not affected and always get their full R
+     * class: the prebuilt classes of an AAR were compiled against the resources of its dependencies too, and would
+     * fail with <code>NoSuchFieldError</code> at runtime without them.</p>
+     */
+    @Parameter( property = "android.nonTransitiveRClass", defaultValue = "false" )
+    private boolean nonTransitiveRClass;
+
     /**
      * Override default generated folder containing aidl classes
      */
@@ -175,6 +201,16 @@ public class GenerateSourcesMojo extends AbstractAndroidMojo
     @Parameter( defaultValue = "true" )
     private boolean failOnNonStandardStructure;
 
+    /**
+     * Matches the layout files within a resource folder.
+     */
+    private static final String LAYOUT_FILES_PATTERN = "layout*/*.xml";
+
+    /**
+     * Name of the file, within the target directory, holding the fingerprints of the compiled aidl files.
+     */
+    private static final String AIDL_FINGERPRINTS_FILE = "aidl-fingerprints.properties";
+
     /**
      * Which dependency scopes should not be included when unpacking dependencies
      */
@@ -182,6 +218,16 @@ public class GenerateSourcesMojo extends AbstractAndroidMojo
             Artifact.SCOPE_SYSTEM, Artifact.SCOPE_IMPORT
     );
 
+    /**
+     * Layout files of the project and its library dependencies, collected while the libraries are extracted.
+     */
+    private final ConflictingLayoutDetector conflictingLayoutDetector = new ConflictingLayoutDetector();
+
+    /**
+     * Ids of the library dependencies whose layout files have been added to the {@link #conflictingLayoutDetector}.
+     */
+    private final Set<String> layoutScannedArtifactIds = new HashSet<String>();
+
     /**
      * Generates the sources.
      *
@@ -455,11 +501,13 @@ public class GenerateSourcesMojo extends AbstractAndroidMojo
             {
                 getLog().info( "Extracting apklib " + artifact.getArtifactId() + "..." );
                 extractApklib( artifact );
+                addLibraryLayoutFiles( artifact );
             }
             else if ( type.equals( AAR ) )
             {
                 getLog().info( "Extracting aar " + artifact.getArtifactId() + "..." );
                 extractAarLib( artifact );
+                addLibraryLayoutFiles( artifact );
             }
             else if ( type.equals( APK ) )
             {
@@ -681,21 +729,18 @@ public class GenerateSourcesMojo extends AbstractAndroidMojo
      */
     private void checkForConflictingLayouts() throws MojoExecutionException
     {
-        final ConflictingLayoutDetector detector = new ConflictingLayoutDetector();
-
         // Add layout files for this project
-        final FileRetriever retriever = new FileRetriever( "layout*/*.xml" );
-        detector.addLayoutFiles( getAndroidManifestPackageName(), retriever.getFileNames( resourceDirectory ) );
+        final FileRetriever retriever = new FileRetriever( LAYOUT_FILES_PATTERN );
+        conflictingLayoutDetector.addLayoutFiles( getAndroidManifestPackageName(),
+                retriever.getFileNames( resourceDirectory ) );
 
-        // Add layout files for all dependencies.
+        // Add layout files for any dependencies that were not extracted by this build.
         for ( final Artifact dependency : getTransitiveDependencyArtifacts( AAR, APKLIB ) )
         {
-            final String packageName = extractPackageNameFromAndroidArtifact( dependency );
-            final String[] layoutFiles = retriever.getFileNames( getUnpackedLibResourceFolder( dependency ) );
-            detector.addLayoutFiles( packageName, layoutFiles );
+            addLibraryLayoutFiles( dependency );
         }
 
-        final Collection<ConflictingLayout> conflictingLayouts = detector.getConflictingLayouts();
+        final Collection<ConflictingLayout> conflictingLayouts = conflictingLayoutDetector.getConflictingLayouts();
         getLog().debug( "checkConflictingLayouts - conflicts : " + conflictingLayouts );
         if ( !conflictingLayouts.isEmpty() )
         {
@@ -737,6 +782,24 @@ public class GenerateSourcesMojo extends AbstractAndroidMojo
         }
     }
 
+    /**
+     * Adds the layout files of the library to the {@link #conflictingLayoutDetector}, unless already added.
+     *
+     * @param library AAR or APKLIB dependency whose layout files to add.
+     * @throws MojoExecutionException if the package name of the library could not be determined.
+     */
+    private void addLibraryLayoutFiles( Artifact library ) throws MojoExecutionException
+    {
+        if ( !layoutScannedArtifactIds.add( library.getId() ) )
+        {
+            return;
+        }
+        final String packageName = extractPackageNameFromAndroidArtifact( library );
+        final String[] layoutFiles = new FileRetriever( LAYOUT_FILES_PATTERN )
+                .getFileNames( getUnpackedLibResourceFolder( library ) );
+        conflictingLayoutDetector.addLayoutFiles( packageName, layoutFiles );
+    }
+
     /**
      * Provides map with all provided dependencies or project itself grouped by package name
      *
@@ -820,12 +883,13 @@ public class GenerateSourcesMojo extends AbstractAndroidMojo
             throw new MojoExecutionException( "", e );
         }
 
-        final ClassLoader compileClassLoader = getCompileClassLoader();
+        final ClasspathIndex compileClasspathIndex = getCompileClasspathIndex();
         final ResourceClassGenerator resGenerator = new ResourceClassGenerator(
                 this,
                 targetDirectory,
                 genDirectory,
-                compileClassLoader
+                compileClasspathIndex,
+                nonTransitiveRClass
         );
         generateCorrectRJavaForApklibDependencies( resGenerator );
         generateCorrectRJavaForAarDependencies( resGenerator );
@@ -835,15 +899,14 @@ public class GenerateSourcesMojo extends AbstractAndroidMojo
     }
 
     /**
-     * @return ClassLoader containing the compile paths.
+     * @return ClasspathIndex of the classes in the compile paths.
      */
-    private ClassLoader getCompileClassLoader()
+    private ClasspathIndex getCompileClasspathIndex() throws IOException
     {
         try
         {
-            final List<String> runtimeClasspathElements = project.getCompileClasspathElements();
-            final ClassLoaderFactory factory = new ClassLoaderFactory( runtimeClasspathElements );
-            return factory.create();
+            final List<String> compileClasspathElements = project.getCompileClasspathElements();
+            return ClasspathIndex.create( compileClasspathElements, getLog() );
         }
         catch ( DependencyResolutionRequiredException e )
         {
@@ -1136,6 +1199,9 @@ public class GenerateSourcesMojo extends AbstractAndroidMojo
      * Given a map of source directories to list of AIDL (relative) filenames within each,
      * runs the AIDL compiler for each, such that all source directories are available to
      * the AIDL compiler.
+     * <p>
+     * AIDL files whose content and imported interfaces have not changed since the previous build, and whose generated
+     * java file still exists, are not compiled again. The remaining AIDL files are compiled in parallel.
      *
      * @param files Map of source directory File instances to the relative paths to all AIDL files within
      * @throws MojoExecutionException If the AIDL compiler fails
@@ -1154,35 +1220,205 @@ public class GenerateSourcesMojo extends AbstractAndroidMojo
         {
             protoCommands.add( "-I" + sourceDir );
         }
+
+        final String aidlPath = getAndroidSdk().getAidlPath();
+        final String compilerFingerprint = getAidlCompilerFingerprint( protoCommands, aidlPath );
+        final AidlSourceIndex aidlSources = new AidlSourceIndex( sourceDirs );
+        final File fingerprintsFile = new File( targetDirectory, AIDL_FINGERPRINTS_FILE );
+        final Properties previousFingerprints = loadAidlFingerprints( fingerprintsFile );
+        final Properties fingerprints = new Properties();
+        final List<Callable<Void>> compilations = new ArrayList<Callable<Void>>();
+        int aidlFileCount = 0;
+
         for ( File sourceDir : sourceDirs )
         {
             for ( String relativeAidlFileName : files.get( sourceDir ) )
             {
-                File targetDirectory = new File( genDirectoryAidl, new File( relativeAidlFileName ).getParent() );
-                targetDirectory.mkdirs();
+                aidlFileCount++;
+                File outputDirectory = new File( genDirectoryAidl, new File( relativeAidlFileName ).getParent() );
+                outputDirectory.mkdirs();
 
                 final String shortAidlFileName = new File( relativeAidlFileName ).getName();
                 final String shortJavaFileName = shortAidlFileName.substring( 0, shortAidlFileName.lastIndexOf( "." ) )
                         + ".java";
                 final File aidlFileInSourceDirectory = new File( sourceDir, relativeAidlFileName );
+                final File javaFile = new File( outputDirectory, shortJavaFileName );
+
+                final String fingerprint = getAidlFingerprint( relativeAidlFileName, aidlSources,
+                        compilerFingerprint );
+                final String fingerprintKey = javaFile.getAbsolutePath();
+                fingerprints.setProperty( fingerprintKey, fingerprint );
+                if ( javaFile.isFile() && fingerprint.equals( previousFingerprints.getProperty( fingerprintKey ) ) )
+                {
+                    getLog().debug( "AIDL file is up to date : " + aidlFileInSourceDirectory );
+                    continue;
+                }
 
-                List<String> commands = new ArrayList<String>( protoCommands );
+                final List<String> commands = new ArrayList<String>( protoCommands );
                 commands.add( aidlFileInSourceDirectory.getAbsolutePath() );
-                commands.add( new File( targetDirectory, shortJavaFileName ).getAbsolutePath() );
-                try
+                commands.add( javaFile.getAbsolutePath() );
+                compilations.add( new Callable<Void>()
                 {
-                    CommandExecutor executor = CommandExecutor.Factory.createDefaultCommmandExecutor();
-                    executor.setLogger( this.getLog() );
-                    executor.setCaptureStdOut( true );
-                    executor.executeCommand( getAndroidSdk().getAidlPath(), commands, project.getBasedir(),
-                            false );
+                    @Override
+                    public Void call() throws ExecutionException
+                    {
+                        CommandExecutor executor = CommandExecutor.Factory.createDefaultCommmandExecutor();
+                        executor.setLogger( getLog() );
+                        executor.setCaptureStdOut( true );
+                        executor.executeCommand( aidlPath, commands, project.getBasedir(), false );
+                        return null;
+                    }
+                } );
+            }
+        }
+
+        getLog().info( "Compiling " + compilations.size() + " of " + aidlFileCount + " aidl files" );
+        executeAidlCompilations( compilations );
+        storeAidlFingerprints( fingerprintsFile, fingerprints );
+    }
+
+    /**
+     * Runs the AIDL compilations on as many threads as there are processors.
+     *
+     * @param compilations AIDL compiler executions to run.
+     * @throws MojoExecutionException if any of the compilations fails.
+     */
+    private void executeAidlCompilations( List<Callable<Void>> compilations ) throws MojoExecutionException
+    {
+        if ( compilations.isEmpty() )
+        {
+            return;
+        }
+
+        final int threadCount = Math.min( compilations.size(), Runtime.getRuntime().availableProcessors() );
+        final ExecutorService executorService = Executors.newFixedThreadPool( threadCount );
+        try
+        {
+            for ( final Future<Void> result : executorService.invokeAll( compilations ) )
+            {
+                result.get();
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException( "Interrupted while compiling aidl files", e );
+        }
+        catch ( java.util.concurrent.ExecutionException e )
+        {
+            throw new MojoExecutionException( "", e.getCause() );
+        }
+        finally
+        {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * @param protoCommands Arguments common to all invocations of the AIDL compiler.
+     * @param aidlPath      Path of the AIDL compiler.
+     * @return fingerprint over the compiler and its arguments, which is part of the fingerprint of every AIDL file.
+     */
+    private static String getAidlCompilerFingerprint( List<String> protoCommands, String aidlPath )
+    {
+        final Fingerprint fingerprint = new Fingerprint();
+        for ( final String command : protoCommands )
+        {
+            fingerprint.add( command );
+        }
+        // the path changes with the build tools version, the size and date when the compiler is updated in place
+        final File aidlCompiler = new File( aidlPath );
+        return fingerprint.add( aidlPath ).add( Long.toString( aidlCompiler.length() ) )
+                .add( Long.toString( aidlCompiler.lastModified() ) ).getValue();
+    }
+
+    /**
+     * @param relativeAidlFileName AIDL file to fingerprint, relative to its source directory.
+     * @param aidlSources          AIDL files of the source directories, in which to look for imported AIDL files.
+     * @param compilerFingerprint  Fingerprint of the compiler and its arguments.
+     * @return fingerprint over the AIDL file, the AIDL files it (transitively) imports, the AIDL files of the same
+     * packages, which are used without import, the compiler and its arguments.
+     * @throws MojoExecutionException if any of the AIDL files could not be read.
+     */
+    private String getAidlFingerprint( String relativeAidlFileName, AidlSourceIndex aidlSources,
+                                       String compilerFingerprint )
+            throws MojoExecutionException
+    {
+        final Fingerprint fingerprint = new Fingerprint().add( compilerFingerprint );
+        final Set<String> visitedFiles = new HashSet<String>();
+        final Set<String> visitedPackages = new HashSet<String>();
+        final Set<String> visitedImports = new HashSet<String>();
+        final List<String> pending = new ArrayList<String>();
+        pending.add( new File( relativeAidlFileName ).getPath() );
+        String relativePath = null;
+        try
+        {
+            while ( !pending.isEmpty() )
+            {
+                relativePath = pending.remove( pending.size() - 1 );
+                if ( !visitedFiles.add( relativePath ) )
+                {
+                    continue;
                 }
-                catch ( ExecutionException e )
+                final String hash = aidlSources.getHash( relativePath );
+                if ( hash == null )
                 {
-                    throw new MojoExecutionException( "", e );
+                    continue;
+                }
+                fingerprint.add( relativePath ).add( hash );
+
+                final String packagePath = StringUtils.defaultString( new File( relativePath ).getParent() );
+                if ( visitedPackages.add( packagePath ) )
+                {
+                    pending.addAll( aidlSources.getPackageFiles( packagePath ) );
+                }
+                for ( final String imported : aidlSources.getImports( relativePath ) )
+                {
+                    if ( !visitedImports.add( imported ) )
+                    {
+                        continue;
+                    }
+                    // Imports that are not found in the source dirs are framework classes.
+                    fingerprint.add( imported );
+                    pending.add( imported.replace( '.', File.separatorChar ) + ".aidl" );
                 }
             }
         }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Could not read aidl file " + relativePath, e );
+        }
+        return fingerprint.getValue();
+    }
+
+    private Properties loadAidlFingerprints( File fingerprintsFile )
+    {
+        final Properties fingerprints = new Properties();
+        if ( fingerprintsFile.isFile() )
+        {
+            try ( InputStream in = new FileInputStream( fingerprintsFile ) )
+            {
+                fingerprints.load( in );
+            }
+            catch ( IOException e )
+            {
+                getLog().warn( "Could not read " + fingerprintsFile + ", compiling all aidl files", e );
+                fingerprints.clear();
+            }
+        }
+        return fingerprints;
+    }
+
+    private void storeAidlFingerprints( File fingerprintsFile, Properties fingerprints )
+    {
+        try ( OutputStream out = new FileOutputStream( fingerprintsFile ) )
+        {
+            fingerprints.store( out, "Fingerprints of the compiled aidl files" );
+        }
+        catch ( IOException e )
+        {
+            getLog().warn( "Could not write " + fingerprintsFile, e );
+        }
     }
 
     private String[] findRelativeAidlFileNames( File sourceDirectory )
@@ -1,10 +1,11 @@
 package com.github.cardforge.maven.plugins.android.phase01generatesources;
 
-import com.android.builder.core.DefaultManifestParser;
 import com.android.builder.symbols.RGeneration;
 import com.android.builder.symbols.SymbolIo;
 import com.android.builder.symbols.SymbolTable;
+import org.apache.commons.io.FileUtils;
 import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
 
 import java.io.File;
@@ -13,6 +14,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
+import static com.github.cardforge.maven.plugins.android.common.AndroidExtension.AAR;
+
 /**
  * Generates R classes containing appropriate resource values for dependent libraries.
  *
@@ -24,19 +27,22 @@ final class ResourceClassGenerator
     private final File targetDirectory;
     private final File genDirectory;
     private final Log log;
-    private final ClassLoader compileClassLoader;
+    private final ClasspathIndex compileClasspathIndex;
+    private final boolean nonTransitive;
 
     ResourceClassGenerator( final GenerateSourcesMojo mojo,
                             final File targetDirectory,
                             final File genDirectory,
-                            final ClassLoader compileClassLoader
+                            final ClasspathIndex compileClasspathIndex,
+                            final boolean nonTransitive
     )
     {
         this.mojo = mojo;
         this.targetDirectory = targetDirectory;
         this.genDirectory = genDirectory;
         this.log = mojo.getLog();
-        this.compileClassLoader = compileClassLoader;
+        this.compileClasspathIndex = compileClasspathIndex;
+        this.nonTransitive = nonTransitive;
     }
 
     /**
@@ -49,9 +55,14 @@ final class ResourceClassGenerator
      * See {@link com.android.builder.core.AndroidBuilder#processResources(com.android.builder.internal.aapt.Aapt,
      * com.android.builder.internal.aapt.AaptPackageConfig.Builder, boolean)}
      *
+     * If non transitive R classes have been requested then each APKLIB R java only contains the symbols that the
+     * library declares in its own res directory, ie the symbols only declared by its library dependencies are left
+     * out. AAR libraries always get their full R java, as their prebuilt classes refer to the symbols of their
+     * dependencies too.
+     *
      * @param libraries AAR libraries for which to generate R java files.
      */
-    public void generateLibraryRs( final Set<Artifact> libraries ) throws IOException
+    public void generateLibraryRs( final Set<Artifact> libraries ) throws IOException, MojoExecutionException
     {
         // list of all the symbol tables
         final List<SymbolTable> symbolTables = new ArrayList<>( libraries.size() );
@@ -65,7 +76,7 @@ final class ResourceClassGenerator
             if ( rFile.isFile() )
             {
                 final File libManifestFile = new File( unpackedLibDirectory, "AndroidManifest.xml" );
-                final String packageName = new DefaultManifestParser( libManifestFile ).getPackage();
+                final String packageName = mojo.extractPackageNameFromAndroidManifest( libManifestFile );
                 if ( rJavaAlreadyExists( packageName ) )
                 {
                     log.info( "Not creating R for " + packageName + " as it already exists" );
@@ -73,7 +84,10 @@ final class ResourceClassGenerator
                 }
                 log.info( "Generating R for " + packageName + " at " + rFile );
 
-                SymbolTable libSymbols = SymbolIo.read( rFile, rFile.getName() );
+                // the classes.jar of an AAR is compiled against the full R of the library, so it keeps it
+                final File symbolFile = nonTransitive && !AAR.equals( lib.getType() )
+                        ? getDeclaredSymbolsFile( lib, rFile ) : rFile;
+                SymbolTable libSymbols = SymbolIo.read( symbolFile, symbolFile.getName() );
                 libSymbols = libSymbols.rename( libSymbols.getTablePackage() );
                 symbolTables.add( libSymbols );
             }
@@ -92,18 +106,47 @@ final class ResourceClassGenerator
         RGeneration.generateRForLibraries( mainSymbols, symbolTables, genDirectory.getAbsoluteFile(), false );
     }
 
+    /**
+     * The R.txt of a library also contains the symbols of all of its library dependencies.
+     * Writes an R.txt that only contains the symbols which the library declares in its own res directory,
+     * including the resources it overrides from its dependencies.
+     *
+     * @param lib   Library for which to determine the declared symbols.
+     * @param rFile Full R.txt of the library.
+     * @return R.txt containing only the symbols declared by the library.
+     */
+    private File getDeclaredSymbolsFile( Artifact lib, File rFile ) throws IOException
+    {
+        final File unpackedLibDirectory = mojo.getUnpackedLibFolder( lib );
+        final DeclaredResourceSymbols declared = DeclaredResourceSymbols.collect(
+                new File( unpackedLibDirectory, "res" ) );
+
+        final List<String> declaredSymbols = new ArrayList<>();
+        for ( final String line : FileUtils.readLines( rFile, "UTF-8" ) )
+        {
+            if ( declared.declares( line ) )
+            {
+                declaredSymbols.add( line );
+            }
+        }
+        log.debug( "Non transitive R for " + lib.getArtifactId() + " : " + declaredSymbols.size()
+                + " declared symbols, " + declared.size() + " resources" );
+
+        // named like the unpacked library, ie by group, artifact and version, so that libraries do not collide
+        final File declaredRFile = new File( targetDirectory, "non-transitive-r" + File.separator
+                + unpackedLibDirectory.getName() + File.separator + "R.txt" );
+        FileUtils.writeLines( declaredRFile, "UTF-8", declaredSymbols );
+        return declaredRFile;
+    }
+
     private boolean rJavaAlreadyExists( String packageName )
     {
         final String rJavaClass = packageName + ".R";
-        try
+        if ( compileClasspathIndex.containsClass( rJavaClass ) )
         {
-            compileClassLoader.loadClass( rJavaClass );
             return true;
         }
-        catch ( ClassNotFoundException e )
-        {
-            log.debug( "Could not resolve R java : " + rJavaClass );
-            return false;
-        }
+        log.debug( "Could not resolve R java : " + rJavaClass );
+        return false;
     }
 }
@@ -0,0 +1,213 @@
+package com.github.cardforge.maven.plugins.android.phase04processclasses;
+
+import com.github.cardforge.maven.plugins.android.common.Fingerprint;
+import org.apache.commons.io.IOUtils;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Cache of compact stubs of the platform and JDK library jars passed to ProGuard.
+ * <p>
+ * ProGuard only needs the class hierarchy and member signatures of library classes, yet it reads and filters the
+ * complete android.jar and rt.jar on every run. A stub holds the classes that pass the ProGuard filter, without
+ * method code and debug information. It is created once for every combination of library jar and filter and shared
+ * by all modules and builds.
+ * <p>
+ * The program jars passed to R8 are copied through their filter here too, as R8 does not take filters.
+ */
+final class ProguardLibraryStubs
+{
+    /**
+     * Folder, within the user home, in which the stubs are kept.
+     */
+    private static final String STUBS_FOLDER = ".android" + File.separator + "android-maven-plugin-proguard-stubs";
+
+    /**
+     * Changes whenever the content of the stubs changes, so that older stubs are not used.
+     */
+    private static final String STUB_FORMAT = "1";
+
+    private static final String CLASS_EXTENSION = ".class";
+
+    private ProguardLibraryStubs()
+    {
+    }
+
+    /**
+     * @param library        the library jar.
+     * @param excludedFilter the ProGuard filter expressions excluding entries of the library, may be {@code null}.
+     * @return the stub of the library, created if it does not exist yet.
+     * @throws IOException if the library can not be read or the stub can not be written.
+     */
+    static File getStub( File library, Collection< String > excludedFilter ) throws IOException
+    {
+        final Fingerprint fingerprint = new Fingerprint()
+                .add( STUB_FORMAT )
+                .add( library.getAbsolutePath() )
+                .add( String.valueOf( library.length() ) )
+                .add( String.valueOf( library.lastModified() ) );
+        if ( excludedFilter != null )
+        {
+            for ( String filter : excludedFilter )
+            {
+                fingerprint.add( filter );
+            }
+        }
+
+        final File stubsDirectory = new File( System.getProperty( "user.home" ), STUBS_FOLDER );
+        final File stub = new File( stubsDirectory, library.getName().replace( ".jar", "" )
+                + "-" + fingerprint.getValue() + ".jar" );
+        if ( stub.isFile() )
+        {
+            return stub;
+        }
+
+        if ( !stubsDirectory.isDirectory() && !stubsDirectory.mkdirs() )
+        {
+            throw new IOException( "Cannot create directory " + stubsDirectory );
+        }
+        // other modules may create the same stub concurrently, each writes its own file and the last rename wins
+        final File tempStub = File.createTempFile( stub.getName(), ".tmp", stubsDirectory );
+        try
+        {
+            writeStub( library, toPatterns( excludedFilter ), tempStub );
+            if ( !tempStub.renameTo( stub ) && !stub.isFile() )
+            {
+                throw new IOException( "Cannot create " + stub );
+            }
+        }
+        finally
+        {
+            tempStub.delete();
+        }
+        return stub;
+    }
+
+    private static void writeStub( File library, List< Pattern > excludes, File stub ) throws IOException
+    {
+        try ( ZipFile zipFile = new ZipFile( library );
+              ZipOutputStream out = new ZipOutputStream( new FileOutputStream( stub ) ) )
+        {
+            final Enumeration< ? extends ZipEntry > entries = zipFile.entries();
+            while ( entries.hasMoreElements() )
+            {
+                final ZipEntry entry = entries.nextElement();
+                final String name = entry.getName();
+                if ( entry.isDirectory() || !name.endsWith( CLASS_EXTENSION ) || isExcluded( name, excludes ) )
+                {
+                    continue;
+                }
+
+                final byte[] classBytes;
+                try ( InputStream in = zipFile.getInputStream( entry ) )
+                {
+                    classBytes = IOUtils.toByteArray( in );
+                }
+                final ClassWriter writer = new ClassWriter( 0 );
+                new ClassReader( classBytes ).accept( writer,
+                        ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES );
+
+                out.putNextEntry( new ZipEntry( name ) );
+                out.write( writer.toByteArray() );
+                out.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Copies a jar without the entries excluded by the filter, for R8, which does not take ProGuard filters on its
+     * inputs.
+     *
+     * @param jar            the jar to copy.
+     * @param excludedFilter the ProGuard filter expressions excluding entries of the jar.
+     * @param filteredJar    the copy to write.
+     * @throws IOException if the jar can not be read or the copy can not be written.
+     */
+    static void writeFilteredJar( File jar, Collection< String > excludedFilter, File filteredJar ) throws IOException
+    {
+        final List< Pattern > excludes = toPatterns( excludedFilter );
+        try ( ZipFile zipFile = new ZipFile( jar );
+              ZipOutputStream out = new ZipOutputStream( new FileOutputStream( filteredJar ) ) )
+        {
+            final Enumeration< ? extends ZipEntry > entries = zipFile.entries();
+            while ( entries.hasMoreElements() )
+            {
+                final ZipEntry entry = entries.nextElement();
+                if ( entry.isDirectory() || isExcluded( entry.getName(), excludes ) )
+                {
+                    continue;
+                }
+                out.putNextEntry( new ZipEntry( entry.getName() ) );
+                try ( InputStream in = zipFile.getInputStream( entry ) )
+                {
+                    IOUtils.copy( in, out );
+                }
+                out.closeEntry();
+            }
+        }
+    }
+
+    private static boolean isExcluded( String entryName, List< Pattern > excludes )
+    {
+        for ( Pattern exclude : excludes )
+        {
+            if ( exclude.matcher( entryName ).matches() )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Converts ProGuard file filters, where ** matches any part of a path and * any part of a file name.
+     */
+    private static List< Pattern > toPatterns( Collection< String > filters )
+    {
+        final List< Pattern > patterns = new ArrayList< Pattern >();
+        if ( filters == null )
+        {
+            return patterns;
+        }
+        for ( String filter : filters )
+        {
+            final StringBuilder regex = new StringBuilder();
+            for ( int i = 0; i < filter.length(); i++ )
+            {
+                final char c = filter.charAt( i );
+                if ( c == '*' && i + 1 < filter.length() && filter.charAt( i + 1 ) == '*' )
+                {
+                    regex.append( ".*" );
+                    i++;
+                }
+                else if ( c == '*' )
+                {
+                    regex.append( "[^/]*" );
+                }
+                else if ( c == '?' )
+                {
+                    regex.append( "[^/]" );
+                }
+                else
+                {
+                    regex.append( Pattern.quote( String.valueOf( c ) ) );
+                }
+            }
+            patterns.add( Pattern.compile( regex.toString() ) );
+        }
+        return patterns;
+    }
+}
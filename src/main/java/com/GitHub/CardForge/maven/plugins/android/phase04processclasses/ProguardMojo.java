@@ -8,8 +8,12 @@ import com.github.cardforge.maven.plugins.android.IncludeExcludeSet;
 import com.github.cardforge.maven.plugins.android.config.ConfigHandler;
 import com.github.cardforge.maven.plugins.android.config.ConfigPojo;
 import com.github.cardforge.maven.plugins.android.config.PullParameter;
+import com.github.cardforge.maven.plugins.android.common.Fingerprint;
+import com.github.cardforge.maven.plugins.android.configuration.D8;
 import com.github.cardforge.maven.plugins.android.configuration.Proguard;
+import com.github.cardforge.maven.plugins.android.phase08preparepackage.DexCompiler;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.SystemUtils;
@@ -25,13 +29,21 @@ import org.codehaus.plexus.interpolation.os.Os;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static com.github.cardforge.maven.plugins.android.InclusionExclusionResolver.filterArtifacts;
 import static com.github.cardforge.maven.plugins.android.common.AndroidExtension.AAR;
@@ -70,6 +82,8 @@ public class ProguardMojo extends AbstractAndroidMojo
      *    &lt;filterMavenDescriptor&gt;true|false&lt;/filterMavenDescriptor&gt;
      *    &lt;filterManifest&gt;true|false&lt;/filterManifest&gt;
      *    &lt;customFilter&gt;filter1,filter2&lt;/customFilter&gt;
+     *    &lt;inProcess&gt;true|false&lt;/inProcess&gt;
+     *    &lt;isolatedClassLoader&gt;true|false&lt;/isolatedClassLoader&gt;
      *    &lt;jvmArguments&gt;
      *     &lt;jvmArgument&gt;-Xms256m&lt;/jvmArgument&gt;
      *     &lt;jvmArgument&gt;-Xmx512m&lt;/jvmArgument&gt;
@@ -183,6 +197,51 @@ public class ProguardMojo extends AbstractAndroidMojo
     @PullParameter( defaultValueGetterMethod = "getDefaultJvmArguments" )
     private String[] parsedJvmArguments;
 
+    /**
+     * If set to true ProGuard runs inside the Maven JVM instead of a forked java process. This saves the JVM startup
+     * and uses the heap of the Maven JVM, the {@link #proguardJvmArguments} are then ignored. Defaults to false.
+     */
+    @Parameter( property = "android.proguard.inProcess" )
+    private Boolean proguardInProcess;
+
+    @PullParameter( defaultValue = "false" )
+    private Boolean parsedInProcess;
+
+    /**
+     * If set to true, an in process ProGuard is loaded from the proguard jar in its own class loader rather than from
+     * the plugin class path. Use this together with a custom proguardJarPath. Defaults to false.
+     */
+    @Parameter( property = "android.proguard.isolatedClassLoader" )
+    private Boolean proguardIsolatedClassLoader;
+
+    @PullParameter( defaultValue = "false" )
+    private Boolean parsedIsolatedClassLoader;
+
+    /**
+     * The dex compiler to use. With 'r8' the classes of an APK build are shrunk and converted to dex in a single
+     * in process R8 pass that uses the ProGuard configuration, instead of ProGuard followed by a dex goal.
+     */
+    @Parameter( property = "android.dex.compiler", defaultValue = "dex" )
+    private String dexCompiler;
+
+    /**
+     * The configuration of the d8 goal. R8 dexes with the same main dex list and minimum API level.
+     */
+    @Parameter
+    private D8 d8;
+
+    /**
+     * Mirror of the main dex list of the d8 goal, used by R8.
+     */
+    @Parameter( property = "android.d8.mainDexList" )
+    private String d8MainDexList;
+
+    /**
+     * Mirror of the minimum API level of the d8 goal, used by R8 instead of the one of the manifest.
+     */
+    @Parameter( property = "android.d8.minApi" )
+    private Integer d8MinApi;
+
     /**
      * If set to true will add a filter to remove META-INF/maven/* files. Defaults to false.
      */
@@ -292,11 +351,43 @@ public class ProguardMojo extends AbstractAndroidMojo
 
     private static final Collection< String > META_INF_MANIFEST = Arrays.asList( "META-INF/MANIFEST.MF" );
 
+    /**
+     * Folder, within the target directory, to which R8 writes the dex files.
+     */
+    private static final String R8_DEX_FOLDER = "r8";
+
+    /**
+     * Lowest API level that loads all dex files natively, below it the main dex has to start the app by itself.
+     */
+    private static final int NATIVE_MULTIDEX_API = 21;
+
+    /**
+     * The classes that have to be in the main dex for legacy multidex, like the mainDexClasses.rules of the build
+     * tools.
+     */
+    private static final List< String > MAIN_DEX_RULES = Arrays.asList(
+            "-keep public class * extends android.app.Instrumentation { <init>(); }",
+            "-keep public class * extends android.app.Application { <init>(); "
+                    + "void attachBaseContext(android.content.Context); }",
+            "-keep public class * extends android.app.backup.BackupAgent { <init>(); }",
+            "-keep public class * implements java.lang.annotation.Annotation { *; }",
+            "-keep public class * extends android.test.InstrumentationTestCase { <init>(); }" );
+
     /**
      * For Proguard is required only jar type dependencies, all other like .so or .apklib can be skipped.
      */
     private static final String JAR_DEPENDENCY_TYPE = "jar";
 
+    /**
+     * File in the proguard output directory holding the fingerprint of the inputs of the last successful run.
+     */
+    private static final String FINGERPRINT_FILE = "proguard-fingerprint.txt";
+
+    /**
+     * A word of a ProGuard configuration file, a quoted file name being one word.
+     */
+    private static final Pattern CONFIG_WORD = Pattern.compile( "'[^']*'|\"[^\"]*\"|\\S+" );
+
     private static class ArtifactPrototype
     {
         private final String groupId;
@@ -458,6 +549,16 @@ public class ProguardMojo extends AbstractAndroidMojo
             }
         }
 
+        if ( DexCompiler.valueOfIgnoreCase( dexCompiler ) == DexCompiler.R8 )
+        {
+            if ( isAPKBuild() )
+            {
+                executeR8( proguardCommands, proguardDir );
+                return;
+            }
+            getLog().info( "R8 only shrinks APK builds, running ProGuard for this library" );
+        }
+
         collectInputFiles( proguardCommands );
 
         proguardCommands.add( "-outjars" );
@@ -477,6 +578,19 @@ public class ProguardMojo extends AbstractAndroidMojo
 
         proguardCommands.addAll( Arrays.asList( parsedOptions ) );
 
+        final File fingerprintFile = new File( proguardDir, FINGERPRINT_FILE );
+        final String fingerprint = getProguardFingerprint( proguardCommands, proguardDir );
+        if ( fingerprint != null && isProguardOutputUpToDate( fingerprintFile, fingerprint, mapFile ) )
+        {
+            getLog().info( "ProGuard inputs and configuration unchanged, reusing " + obfuscatedJar );
+            if ( parsedAttachMap )
+            {
+                projectHelper.attachArtifact( project, "map", mapFile );
+            }
+            return;
+        }
+        FileUtils.deleteQuietly( fingerprintFile );
+
         final String javaExecutable = getJavaExecutable().getAbsolutePath();
 
         getLog().debug( javaExecutable + " " + commands.toString() + proguardCommands.toString() );
@@ -495,9 +609,16 @@ public class ProguardMojo extends AbstractAndroidMojo
             tempConfigFileOutputStream = new FileOutputStream( tempConfigFile );
             IOUtils.write( commandStringBuilder, tempConfigFileOutputStream );
 
-            executor.setCaptureStdOut( true );
-            commands.add( "@" + tempConfigFile.getAbsolutePath() + "" );
-            executor.executeCommand( javaExecutable, commands, project.getBasedir(), false );
+            if ( parsedInProcess )
+            {
+                executeProguardInProcess( tempConfigFile );
+            }
+            else
+            {
+                executor.setCaptureStdOut( true );
+                commands.add( "@" + tempConfigFile.getAbsolutePath() + "" );
+                executor.executeCommand( javaExecutable, commands, project.getBasedir(), false );
+            }
         }
         catch ( ExecutionException e )
         {
@@ -512,12 +633,476 @@ public class ProguardMojo extends AbstractAndroidMojo
             IOUtils.closeQuietly( tempConfigFileOutputStream );
         }
 
+        if ( fingerprint != null )
+        {
+            try
+            {
+                FileUtils.writeStringToFile( fingerprintFile, fingerprint );
+            }
+            catch ( IOException e )
+            {
+                getLog().debug( "Cannot write ProGuard fingerprint to " + fingerprintFile, e );
+            }
+        }
+
         if ( parsedAttachMap )
         {
             projectHelper.attachArtifact( project, "map", mapFile );
         }
     }
 
+    /**
+     * Computes a fingerprint over everything that ProGuard reads: the commands themselves, the content of the
+     * configuration files, of the files they include and of the program and library inputs.
+     *
+     * @param proguardCommands the commands passed to ProGuard.
+     * @param proguardDir      the directory against which ProGuard resolves relative configuration files.
+     * @return the fingerprint, or {@code null} if the inputs could not be read.
+     */
+    private String getProguardFingerprint( List< String > proguardCommands, File proguardDir )
+    {
+        final Fingerprint fingerprint = new Fingerprint();
+        fingerprint.add( parsedProguardJarPath );
+        try
+        {
+            String previousCommand = null;
+            for ( String command : proguardCommands )
+            {
+                fingerprint.add( command );
+                if ( command.startsWith( "@" ) )
+                {
+                    File configFile = new File( command.substring( 1 ) );
+                    if ( !configFile.isAbsolute() )
+                    {
+                        configFile = new File( proguardDir, configFile.getPath() );
+                    }
+                    addProguardConfig( fingerprint, configFile, new HashSet< File >() );
+                }
+                else if ( "-injars".equals( previousCommand ) || "-libraryjars".equals( previousCommand ) )
+                {
+                    addProguardInput( fingerprint, new File( StringUtils.substringBefore( command, "(" ) ) );
+                }
+                previousCommand = command;
+            }
+        }
+        catch ( IOException e )
+        {
+            getLog().debug( "Cannot compute ProGuard fingerprint, running ProGuard", e );
+            return null;
+        }
+        return fingerprint.getValue();
+    }
+
+    /**
+     * Adds a configuration file and, recursively, the files it includes with {@code -include} or {@code @},
+     * which are resolved relative to the including file.
+     *
+     * @throws IOException if a file cannot be read, or an included file name cannot be resolved without ProGuard,
+     *                     eg as it refers to a system property or the configuration changes the base directory.
+     */
+    private void addProguardConfig( Fingerprint fingerprint, File configFile, Set< File > visited ) throws IOException
+    {
+        if ( !visited.add( configFile.getAbsoluteFile() ) )
+        {
+            return;
+        }
+        fingerprint.add( configFile.getAbsolutePath() );
+        fingerprint.add( configFile );
+        if ( !configFile.isFile() )
+        {
+            return;
+        }
+
+        // the words of the file, and which of them start a line outside of a class specification, where
+        // an @ names a file to include instead of an annotation
+        final List< String > words = new ArrayList< String >();
+        final List< Boolean > lineStarts = new ArrayList< Boolean >();
+        int braces = 0;
+        for ( String line : FileUtils.readLines( configFile, "UTF-8" ) )
+        {
+            final Matcher matcher = CONFIG_WORD.matcher( StringUtils.substringBefore( line, "#" ) );
+            boolean lineStart = true;
+            while ( matcher.find() )
+            {
+                final String word = matcher.group();
+                words.add( word );
+                lineStarts.add( lineStart && braces == 0 );
+                braces += StringUtils.countMatches( word, "{" ) - StringUtils.countMatches( word, "}" );
+                lineStart = false;
+            }
+        }
+        for ( int i = 0; i < words.size(); i++ )
+        {
+            final String word = words.get( i );
+            String includedName = null;
+            if ( "-basedirectory".equals( word ) )
+            {
+                throw new IOException( configFile + " changes the base directory of the included files" );
+            }
+            else if ( "-include".equals( word ) && i + 1 < words.size() )
+            {
+                includedName = words.get( ++i );
+            }
+            else if ( lineStarts.get( i ) && word.startsWith( "@" ) )
+            {
+                includedName = word.length() > 1 || i + 1 >= words.size() ? word.substring( 1 ) : words.get( ++i );
+            }
+            if ( includedName == null )
+            {
+                continue;
+            }
+            includedName = StringUtils.strip( includedName, "'\"" );
+            if ( includedName.contains( "<" ) )
+            {
+                throw new IOException( configFile + " includes " + includedName + ", which refers to a property" );
+            }
+            File includedFile = new File( includedName );
+            if ( !includedFile.isAbsolute() )
+            {
+                includedFile = new File( configFile.getAbsoluteFile().getParentFile(), includedName );
+            }
+            addProguardConfig( fingerprint, includedFile, visited );
+        }
+    }
+
+    private void addProguardInput( Fingerprint fingerprint, File input ) throws IOException
+    {
+        if ( input.isDirectory() )
+        {
+            final List< File > files = new ArrayList< File >( FileUtils.listFiles( input, null, true ) );
+            Collections.sort( files );
+            for ( File file : files )
+            {
+                fingerprint.add( file.getAbsolutePath() );
+                fingerprint.add( file );
+            }
+        }
+        else
+        {
+            fingerprint.add( input );
+        }
+    }
+
+    private boolean isProguardOutputUpToDate( File fingerprintFile, String fingerprint, File mapFile )
+    {
+        if ( !fingerprintFile.isFile() || !new File( obfuscatedJar ).isFile() || !mapFile.isFile() )
+        {
+            return false;
+        }
+        try
+        {
+            return fingerprint.equals( FileUtils.readFileToString( fingerprintFile ).trim() );
+        }
+        catch ( IOException e )
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Runs ProGuard in the Maven JVM with the same commands as a forked ProGuard would get. ProGuard is called
+     * reflectively, so that the version in the isolated class loader does not have to match the plugin dependency.
+     *
+     * @param configFile the file holding all ProGuard commands.
+     */
+    private void executeProguardInProcess( File configFile ) throws MojoExecutionException
+    {
+        if ( parsedJvmArguments != null && parsedJvmArguments.length > 0 )
+        {
+            getLog().debug( "Ignoring ProGuard JVM arguments for in process execution: "
+                    + Arrays.toString( parsedJvmArguments ) );
+        }
+
+        URLClassLoader isolatedClassLoader = null;
+        final Thread currentThread = Thread.currentThread();
+        final ClassLoader contextClassLoader = currentThread.getContextClassLoader();
+        try
+        {
+            final ClassLoader proguardClassLoader;
+            if ( parsedIsolatedClassLoader )
+            {
+                if ( parsedProguardJarPath == null )
+                {
+                    throw new MojoExecutionException( "No proguard jar found to load an isolated ProGuard from" );
+                }
+                getLog().debug( "Loading ProGuard from " + parsedProguardJarPath );
+                isolatedClassLoader = new URLClassLoader(
+                        new URL[] { new File( parsedProguardJarPath ).toURI().toURL() }, null );
+                proguardClassLoader = isolatedClassLoader;
+            }
+            else
+            {
+                proguardClassLoader = ProguardMojo.class.getClassLoader();
+            }
+            currentThread.setContextClassLoader( proguardClassLoader );
+
+            final Class< ? > configurationClass = proguardClassLoader.loadClass( "proguard.Configuration" );
+            final Class< ? > parserClass = proguardClassLoader.loadClass( "proguard.ConfigurationParser" );
+            final Class< ? > proguardClass = proguardClassLoader.loadClass( "proguard.ProGuard" );
+
+            final Object configuration = configurationClass.getDeclaredConstructor().newInstance();
+            final Object parser = parserClass.getConstructor( String[].class, Properties.class )
+                    .newInstance( new String[] { "@" + configFile.getAbsolutePath() }, System.getProperties() );
+            try
+            {
+                parserClass.getMethod( "parse", configurationClass ).invoke( parser, configuration );
+            }
+            finally
+            {
+                parserClass.getMethod( "close" ).invoke( parser );
+            }
+
+            getLog().debug( "Running ProGuard in process" );
+            final Object proguardInstance = proguardClass.getConstructor( configurationClass )
+                    .newInstance( configuration );
+            proguardClass.getMethod( "execute" ).invoke( proguardInstance );
+        }
+        catch ( InvocationTargetException e )
+        {
+            throw new MojoExecutionException( "ProGuard failed: " + e.getCause().getMessage(), e.getCause() );
+        }
+        catch ( ReflectiveOperationException e )
+        {
+            throw new MojoExecutionException( "Cannot run ProGuard in process", e );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Cannot load ProGuard from " + parsedProguardJarPath, e );
+        }
+        finally
+        {
+            currentThread.setContextClassLoader( contextClassLoader );
+            IOUtils.closeQuietly( isolatedClassLoader );
+        }
+    }
+
+    /**
+     * Shrinks and dexes the program with R8 from the build tools, in process. R8 reads the same configuration files
+     * and options as ProGuard, and the main dex list and minimum API level of the d8 goal. It writes the dex files to
+     * their own folder in the target directory, which is cleaned first so that no dex file of an earlier build is
+     * packaged.
+     *
+     * @param configCommands the {@code @file} commands for the ProGuard configuration files.
+     * @param proguardDir    the directory for the seeds, usage and mapping reports.
+     */
+    private void executeR8( List< String > configCommands, File proguardDir ) throws MojoExecutionException
+    {
+        skipArtifact( "commons-logging", "commons-logging", true );
+
+        final List< String > rules = new ArrayList< String >();
+        for ( String configCommand : configCommands )
+        {
+            rules.add( "-include" );
+            rules.add( configCommand.substring( 1 ) );
+        }
+        rules.add( "-printseeds" );
+        rules.add( proguardDir + File.separator + "seeds.txt" );
+        rules.add( "-printusage" );
+        rules.add( proguardDir + File.separator + "usage.txt" );
+        final File mapFile = new File( proguardDir, "mapping.txt" );
+        rules.add( "-printmapping" );
+        rules.add( mapFile.toString() );
+        rules.addAll( Arrays.asList( parsedOptions ) );
+
+        final File rulesFile = new File( proguardDir, "r8_config.cfg" );
+        try
+        {
+            FileUtils.writeLines( rulesFile, rules );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Error writing R8 rules to " + rulesFile, e );
+        }
+
+        final File dexDirectory = new File( targetDirectory, R8_DEX_FOLDER );
+        final File filteredInputsDirectory = new File( proguardDir, "r8-inputs" );
+        try
+        {
+            FileUtils.deleteDirectory( dexDirectory );
+            FileUtils.deleteDirectory( filteredInputsDirectory );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Error cleaning " + dexDirectory, e );
+        }
+        dexDirectory.mkdirs();
+        filteredInputsDirectory.mkdirs();
+
+        final List< String > arguments = new ArrayList< String >();
+        arguments.add( "--release" );
+        arguments.add( "--output" );
+        arguments.add( dexDirectory.getAbsolutePath() );
+        arguments.add( "--pg-conf" );
+        arguments.add( rulesFile.getAbsolutePath() );
+        arguments.add( "--lib" );
+        arguments.add( getAndroidSdk().getAndroidJar().getAbsolutePath() );
+
+        final String minApi = getR8MinApi();
+        if ( minApi != null )
+        {
+            arguments.add( "--min-api" );
+            arguments.add( minApi );
+        }
+
+        final String mainDexList = d8 != null && d8.getMainDexList() != null ? d8.getMainDexList() : d8MainDexList;
+        if ( mainDexList != null )
+        {
+            arguments.add( "--main-dex-list" );
+            arguments.add( mainDexList );
+        }
+        else if ( minApi == null || Integer.parseInt( minApi ) < NATIVE_MULTIDEX_API )
+        {
+            final File mainDexRulesFile = new File( proguardDir, "r8_main_dex.cfg" );
+            try
+            {
+                FileUtils.writeLines( mainDexRulesFile, MAIN_DEX_RULES );
+            }
+            catch ( IOException e )
+            {
+                throw new MojoExecutionException( "Error writing R8 main dex rules to " + mainDexRulesFile, e );
+            }
+            arguments.add( "--main-dex-rules" );
+            arguments.add( mainDexRulesFile.getAbsolutePath() );
+        }
+
+        for ( ProGuardInput libraryJar : getR8LibraryFiles() )
+        {
+            arguments.add( "--lib" );
+            arguments.add( libraryJar.path );
+        }
+
+        final List< ProGuardInput > programInputs = getProgramInputFiles();
+        programInputs.addAll( getProjectDependencyFiles() );
+        int filteredInputCount = 0;
+        for ( ProGuardInput programInput : programInputs )
+        {
+            // R8 takes class files and archives, directories are passed as the class files they contain
+            final File input = new File( programInput.path );
+            if ( input.isDirectory() )
+            {
+                for ( File classFile : FileUtils.listFiles( input, new String[] { "class" }, true ) )
+                {
+                    arguments.add( classFile.getAbsolutePath() );
+                }
+            }
+            else if ( programInput.excludedFilter != null && !programInput.excludedFilter.isEmpty() )
+            {
+                // R8 does not take filters, it gets a copy of the jar without the excluded entries
+                final File filteredJar = new File( filteredInputsDirectory, ( filteredInputCount++ ) + "-"
+                        + input.getName() );
+                try
+                {
+                    ProguardLibraryStubs.writeFilteredJar( input, programInput.excludedFilter, filteredJar );
+                }
+                catch ( IOException e )
+                {
+                    throw new MojoExecutionException( "Error filtering R8 input " + input, e );
+                }
+                arguments.add( filteredJar.getAbsolutePath() );
+            }
+            else
+            {
+                arguments.add( input.getAbsolutePath() );
+            }
+        }
+
+        getLog().info( "Shrinking and dexing with R8 into " + dexDirectory );
+        getLog().debug( "R8 arguments: " + arguments );
+        runR8( arguments );
+
+        project.getProperties().setProperty( DexCompiler.R8_DEX_DIRECTORY_PROPERTY,
+                dexDirectory.getAbsolutePath() );
+        if ( parsedAttachMap )
+        {
+            projectHelper.attachArtifact( project, "map", mapFile );
+        }
+    }
+
+    /**
+     * Runs R8 from the d8 jar of the build tools, through its command API rather than its main method, as the main
+     * method exits the JVM on errors.
+     */
+    private void runR8( List< String > arguments ) throws MojoExecutionException
+    {
+        final String d8JarPath = getAndroidSdk().getD8JarPath();
+        URLClassLoader r8ClassLoader = null;
+        try
+        {
+            r8ClassLoader = new URLClassLoader( new URL[] { new File( d8JarPath ).toURI().toURL() }, null );
+
+            final Class< ? > originClass = r8ClassLoader.loadClass( "com.android.tools.r8.origin.Origin" );
+            final Class< ? > commandClass = r8ClassLoader.loadClass( "com.android.tools.r8.R8Command" );
+            final Class< ? > r8Class = r8ClassLoader.loadClass( "com.android.tools.r8.R8" );
+
+            final Object builder = commandClass.getMethod( "parse", String[].class, originClass )
+                    .invoke( null, arguments.toArray( new String[ arguments.size() ] ),
+                            originClass.getMethod( "root" ).invoke( null ) );
+            final Object command = builder.getClass().getMethod( "build" ).invoke( builder );
+            r8Class.getMethod( "run", commandClass ).invoke( null, command );
+        }
+        catch ( InvocationTargetException e )
+        {
+            throw new MojoExecutionException( "R8 failed: " + e.getCause().getMessage(), e.getCause() );
+        }
+        catch ( ReflectiveOperationException e )
+        {
+            throw new MojoExecutionException( "Cannot run R8 from " + d8JarPath
+                    + ", build tools 28.0.0 or later are required", e );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Cannot load R8 from " + d8JarPath, e );
+        }
+        finally
+        {
+            IOUtils.closeQuietly( r8ClassLoader );
+        }
+    }
+
+    /**
+     * @return the minimum API level configured for the d8 goal, or else the one of the merged manifest, or
+     * {@code null} if it is not declared as a number.
+     */
+    private String getR8MinApi() throws MojoExecutionException
+    {
+        final Integer configuredMinApi = d8 != null && d8.getMinApi() != null ? d8.getMinApi() : d8MinApi;
+        if ( configuredMinApi != null )
+        {
+            return configuredMinApi.toString();
+        }
+        final File manifestFile = destinationManifestFile != null && destinationManifestFile.exists()
+                ? destinationManifestFile
+                : androidManifestFile;
+        if ( manifestFile == null || !manifestFile.exists() )
+        {
+            return null;
+        }
+        final String minSdkVersion = getAndroidManifestMetadata( manifestFile ).getMinSdkVersion();
+        return StringUtils.isNumeric( minSdkVersion ) ? minSdkVersion : null;
+    }
+
+    /**
+     * @return the provided and shifted dependencies, the Android platform itself is passed from the SDK.
+     */
+    private List< ProGuardInput > getR8LibraryFiles()
+    {
+        final List< ProGuardInput > libraryJars = new LinkedList< ProGuardInput >();
+        for ( Artifact artifact : project.getArtifacts() )
+        {
+            final boolean provided = Artifact.SCOPE_PROVIDED.equals( artifact.getScope() );
+            if ( provided && "android".equals( artifact.getArtifactId() ) )
+            {
+                continue;
+            }
+            if ( provided || isShiftedArtifact( artifact ) )
+            {
+                getLog().debug( "Including dependency as R8 library jar : " + artifact );
+                libraryJars.add( createProguardInput( artifact.getFile().getAbsolutePath() ) );
+            }
+        }
+        return libraryJars;
+    }
+
     /**
      * Convert the jvm arguments in parsedJvmArguments as populated by the config in format as needed by the java
      * command. Also preserve backwards compatibility in terms of dashes required or not..
@@ -688,6 +1273,25 @@ public class ProguardMojo extends AbstractAndroidMojo
         return createProguardInput( path, null );
     }
 
+    /**
+     * Creates the input for a platform or JDK library jar. ProGuard gets the cached stub of the jar, which is already
+     * filtered, or the jar itself if the stub can not be created.
+     */
+    private ProGuardInput createLibraryStubInput( File library, Collection< String > excludedFilter )
+    {
+        try
+        {
+            final File stub = ProguardLibraryStubs.getStub( library, excludedFilter );
+            getLog().debug( "Using library stub " + stub + " for " + library );
+            return createProguardInput( stub.getAbsolutePath() );
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            getLog().debug( "Cannot create library stub for " + library + ", using the library itself", e );
+            return createProguardInput( library.getAbsolutePath(), excludedFilter );
+        }
+    }
+
     private List< ProGuardInput > getLibraryInputFiles()
     {
         final List< ProGuardInput > libraryJars = new LinkedList< ProguardMojo.ProGuardInput >();
@@ -704,21 +1308,21 @@ public class ProguardMojo extends AbstractAndroidMojo
             }
             if ( rtJar != null )
             {
-                libraryJars.add( createProguardInput( rtJar.getPath() ) );
+                libraryJars.add( createLibraryStubInput( rtJar, null ) );
             }
 
             // we also need to add the JAR containing e.g. javax.servlet
             File jsseJar = getJVMLibrary( "jsse.jar" );
             if ( jsseJar != null )
             {
-                libraryJars.add( createProguardInput( jsseJar.getPath() ) );
+                libraryJars.add( createLibraryStubInput( jsseJar, null ) );
             }
 
             // and the javax.crypto stuff
             File jceJar = getJVMLibrary( "jce.jar" );
             if ( jceJar != null )
             {
-                libraryJars.add( createProguardInput( jceJar.getPath() ) );
+                libraryJars.add( createLibraryStubInput( jceJar, null ) );
             }
         }
 
@@ -730,9 +1334,7 @@ public class ProguardMojo extends AbstractAndroidMojo
                 if ( artifact.getArtifactId().equals( "android" ) && parsedIncludeJdkLibs )
                 {
                     getLog().debug( "Including dependency as (android) library jar : " + artifact );
-                    libraryJars.add(
-                            createProguardInput( artifact.getFile().getAbsolutePath(), ANDROID_LIBRARY_EXCLUDED_FILTER )
-                    );
+                    libraryJars.add( createLibraryStubInput( artifact.getFile(), ANDROID_LIBRARY_EXCLUDED_FILTER ) );
                 }
                 else
                 {
@@ -62,7 +62,8 @@ public class D8Mojo extends AbstractAndroidMojo {
     private static final String JAR = "jar";
 
     /**
-     * The dex compiler to use. Allowed values are 'dex' (default) and 'd8'.
+     * The dex compiler to use. Allowed values are 'dex' (default), 'd8' and 'r8'. With 'r8' the classes are shrunk
+     * and dexed by the proguard goal, so this goal only dexes them when ProGuard did not run.
      */
     @Parameter(property = "android.dex.compiler", defaultValue = "dex")
     private String dexCompiler;
@@ -207,8 +208,9 @@ public class D8Mojo extends AbstractAndroidMojo {
      * Executes the Mojo goal by performing the following tasks:
      * <ul>
      *     <li>Parses the configuration settings.</li>
-     *     <li>If the selected DEX compiler is not D8, skips execution with a log message.</li>
-     *     <li>If APK generation is enabled, calls {@link #runD8(CommandExecutor)} to run the D8 compiler.</li>
+     *     <li>If the selected DEX compiler is DEX, skips execution with a log message.</li>
+     *     <li>If APK generation is enabled, calls {@link #runD8(CommandExecutor)} to run the D8 compiler, unless
+     *     the classes were already dexed by R8.</li>
      *     <li>If the attachment of JAR is enabled, attaches the generated JAR file to the Maven project.</li>
      *     <li>If attaching sources is enabled, creates and attaches an APK sources file.</li>
      * </ul>
@@ -224,7 +226,7 @@ public class D8Mojo extends AbstractAndroidMojo {
         parseConfiguration();
 
         getLog().debug("DexCompiler set to " + parsedDexCompiler);
-        if (parsedDexCompiler != DexCompiler.D8) {
+        if (parsedDexCompiler == DexCompiler.DEX) {
             getLog().info("Not executing D8Mojo because DEX compiler is set to " + parsedDexCompiler);
             return;
         }
@@ -233,7 +235,15 @@ public class D8Mojo extends AbstractAndroidMojo {
         executor.setLogger(getLog());
 
         if (generateApk) {
-            runD8(executor);
+            final String r8DexDirectory = project.getProperties().getProperty(DexCompiler.R8_DEX_DIRECTORY_PROPERTY);
+            if (parsedDexCompiler == DexCompiler.R8 && r8DexDirectory != null) {
+                getLog().info("Classes were already dexed by R8 into " + r8DexDirectory);
+            } else {
+                if (parsedDexCompiler == DexCompiler.R8) {
+                    getLog().info("ProGuard did not run R8, converting classes with D8");
+                }
+                runD8(executor);
+            }
         }
 
         if (attachJar) {
@@ -6,7 +6,16 @@ package com.github.cardforge.maven.plugins.android.phase08preparepackage;
 public enum DexCompiler
 {
     DEX, // Default
-    D8;
+    D8,
+    /**
+     * Shrinks and dexes in one pass during the proguard goal, using the ProGuard configuration.
+     */
+    R8;
+
+    /**
+     * Project property set by the proguard goal to the directory holding the dex files it produced with R8.
+     */
+    public static final String R8_DEX_DIRECTORY_PROPERTY = "android.r8.dexDirectory";
 
     public static DexCompiler valueOfIgnoreCase( String name )
     {
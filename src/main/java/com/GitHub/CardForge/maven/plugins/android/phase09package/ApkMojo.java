@@ -23,6 +23,7 @@ import com.android.sdklib.build.SealedApkException;
 import com.github.cardforge.maven.plugins.android.*;
 import com.github.cardforge.maven.plugins.android.common.AaptCommandBuilder;
 import com.github.cardforge.maven.plugins.android.common.AndroidExtension;
+import com.github.cardforge.maven.plugins.android.common.ArchiveIndex;
 import com.github.cardforge.maven.plugins.android.common.NativeHelper;
 import com.github.cardforge.maven.plugins.android.config.ConfigHandler;
 import com.github.cardforge.maven.plugins.android.config.ConfigPojo;
@@ -30,6 +31,7 @@ import com.github.cardforge.maven.plugins.android.config.PullParameter;
 import com.github.cardforge.maven.plugins.android.configuration.Apk;
 import com.github.cardforge.maven.plugins.android.configuration.MetaInf;
 import com.github.cardforge.maven.plugins.android.configuration.Sign;
+import com.github.cardforge.maven.plugins.android.phase08preparepackage.DexCompiler;
 import com.google.common.io.Files;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.filefilter.DirectoryFileFilter;
@@ -341,8 +343,9 @@ public class ApkMojo extends AbstractAndroidMojo {
     }
 
     void createApkFile(File outputFile, boolean signWithDebugKeyStore) throws MojoExecutionException {
-        //this needs to come from DexMojo
-        File dexFile = new File(targetDirectory, "classes.dex");
+        //this needs to come from DexMojo, or from the proguard goal when it dexed with R8
+        final String r8DexDirectory = project.getProperties().getProperty(DexCompiler.R8_DEX_DIRECTORY_PROPERTY);
+        File dexFile = new File(r8DexDirectory != null ? new File(r8DexDirectory) : targetDirectory, "classes.dex");
         if (!dexFile.exists()) {
             dexFile = new File(targetDirectory, "classes.zip");
         }
@@ -474,15 +477,12 @@ public class ApkMojo extends AbstractAndroidMojo {
     }
 
     private void computeDuplicateFiles(File jar) throws IOException {
-        ZipFile file = new ZipFile(jar);
-        Enumeration<? extends ZipEntry> list = file.entries();
-        while (list.hasMoreElements()) {
-            ZipEntry ze = list.nextElement();
-            if (!(ze.getName().contains("META-INF/") || ze.isDirectory())) { // Exclude META-INF and Directories
-                List<File> l = jars.get(ze.getName());
+        for (String entryName : ArchiveIndex.forArchive(jar).getFiles("", "")) {
+            if (!entryName.contains("META-INF/")) { // Exclude META-INF, directories are not listed
+                List<File> l = jars.get(entryName);
                 if (l == null) {
                     l = new ArrayList<File>();
-                    jars.put(ze.getName(), l);
+                    jars.put(entryName, l);
                 }
                 l.add(jar);
             }
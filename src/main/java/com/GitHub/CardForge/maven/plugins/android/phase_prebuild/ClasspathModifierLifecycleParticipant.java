@@ -32,13 +32,17 @@ import org.codehaus.plexus.logging.Logger;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.Enumeration;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.regex.Pattern;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipException;
-import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
 
 
@@ -105,106 +109,178 @@ public final class ClasspathModifierLifecycleParticipant extends AbstractMavenLi
         final DependencyResolver dependencyResolver = new DependencyResolver( log, dependencyGraphBuilder );
         final ArtifactResolverHelper artifactResolverHelper = new ArtifactResolverHelper( artifactResolver, log );
 
+        final List<MavenProject> androidProjects = new ArrayList<MavenProject>();
         for ( MavenProject project : projects )
         {
-            log.debug( "" );
-            log.debug( "project=" + project.getArtifact() );
+            // do not modify classpath if not an android project.
+            if ( AndroidExtension.isAndroidPackaging( project.getPackaging() ) )
+            {
+                androidProjects.add( project );
+            }
+        }
 
-            if ( ! AndroidExtension.isAndroidPackaging( project.getPackaging() ) )
+        // resolve the dependency graphs of all projects concurrently, then modify the classpaths in reactor order
+        final Map<MavenProject, Future<Set<Artifact>>> resolutions = new HashMap<>();
+        final ExecutorService executor = androidProjects.isEmpty() ? null : Executors.newFixedThreadPool(
+                Math.min( androidProjects.size(), Runtime.getRuntime().availableProcessors() ) );
+        try
+        {
+            for ( MavenProject project : androidProjects )
             {
-                continue; // do not modify classpath if not an android project.
+                resolutions.put( project, executor.submit(
+                        createDependencyResolution( dependencyResolver, project, session ) ) );
             }
 
-            final String unpackedLibsFolder
-                = getMojoConfigurationParameter( project, UNPACKED_LIBS_FOLDER_PARAM, null );
-            final UnpackedLibHelper helper = new UnpackedLibHelper( artifactResolverHelper, project, log,
-                    unpackedLibsFolder == null ? null : new File( unpackedLibsFolder )
-            );
+            for ( MavenProject project : androidProjects )
+            {
+                log.debug( "" );
+                log.debug( "project=" + project.getArtifact() );
+                modifyClasspath( project, resolutions.get( project ), artifactResolverHelper );
+            }
+        }
+        finally
+        {
+            if ( executor != null )
+            {
+                executor.shutdownNow();
+            }
+        }
 
-            final Set<Artifact> artifacts;
+        if ( addedJarFromLibs )
+        {
+            log.warn(
+                    "Transitive dependencies should really be provided by Maven dependency management.\n"
+        + "          We suggest you to ask the above providers to package their component properly.\n"
+        + "          Things may break at compile and/or runtime due to multiple copies of incompatible libraries." );
+        }
+        log.debug( "" );
+        log.debug( "ClasspathModifierLifecycleParticipant#afterProjectsRead - finish" );
+    }
 
-            // If there is an extension ClassRealm loaded for this project then use that
-            // as the ContextClassLoader so that Wagon extensions can be used to resolves dependencies.
-            final ClassLoader projectClassLoader = ( project.getClassRealm() != null )
-                    ? project.getClassRealm()
-                    : Thread.currentThread().getContextClassLoader();
+    /**
+     * Creates the resolution of the dependencies of a project, which runs concurrently with the resolution of the
+     * other projects of the reactor.
+     */
+    private Callable<Set<Artifact>> createDependencyResolution( final DependencyResolver dependencyResolver,
+                                                                final MavenProject project,
+                                                                final MavenSession session )
+    {
+        // If there is an extension ClassRealm loaded for this project then use that
+        // as the ContextClassLoader so that Wagon extensions can be used to resolves dependencies.
+        final ClassLoader projectClassLoader = ( project.getClassRealm() != null )
+                ? project.getClassRealm()
+                : Thread.currentThread().getContextClassLoader();
 
-            final ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
-            try
+        return new Callable<Set<Artifact>>()
+        {
+            @Override
+            public Set<Artifact> call() throws DependencyGraphBuilderException
             {
-                Thread.currentThread().setContextClassLoader( projectClassLoader );
-                artifacts = dependencyResolver.getProjectDependenciesFor( project, session );
+                final ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
+                try
+                {
+                    Thread.currentThread().setContextClassLoader( projectClassLoader );
+                    return dependencyResolver.getProjectDependenciesFor( project, session );
+                }
+                finally
+                {
+                    Thread.currentThread().setContextClassLoader( originalClassLoader );
+                }
             }
-            catch ( DependencyGraphBuilderException e )
+        };
+    }
+
+    /**
+     * Adds the classes of the AAR, APK and APKLIB dependencies of an Android project to its classpath.
+     *
+     * @param project     the Android project.
+     * @param resolution  the resolution of the dependencies of the project.
+     * @param artifactResolverHelper helper with which the library artifacts are resolved.
+     */
+    private void modifyClasspath( MavenProject project, Future<Set<Artifact>> resolution,
+                                  ArtifactResolverHelper artifactResolverHelper ) throws MavenExecutionException
+    {
+        final String unpackedLibsFolder
+            = getMojoConfigurationParameter( project, UNPACKED_LIBS_FOLDER_PARAM, null );
+        final UnpackedLibHelper helper = new UnpackedLibHelper( artifactResolverHelper, project, log,
+                unpackedLibsFolder == null ? null : new File( unpackedLibsFolder )
+        );
+
+        final Set<Artifact> artifacts;
+        try
+        {
+            artifacts = resolution.get();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new MavenExecutionException( "Interrupted while resolving dependencies of "
+                    + project.getArtifact(), e );
+        }
+        catch ( ExecutionException e )
+        {
+            if ( e.getCause() instanceof DependencyGraphBuilderException )
             {
                 // Nothing to do. The resolution failure will be displayed by the standard resolution mechanism.
-                continue;
+                return;
             }
-            finally
+            if ( e.getCause() instanceof RuntimeException )
             {
-                Thread.currentThread().setContextClassLoader( originalClassLoader );
+                throw ( RuntimeException ) e.getCause();
             }
+            throw new MavenExecutionException( "Could not resolve dependencies of " + project.getArtifact(),
+                    e.getCause() );
+        }
 
-            boolean includeFromAar = getMojoConfigurationParameter( project, INCLUDE_FROM_AAR_PARAM,
-                    INCLUDE_FROM_AAR_DEFAULT );
-            boolean includeFromApklib = getMojoConfigurationParameter( project, INCLUDE_FROM_APKLIB_PARAM,
-                    INCLUDE_FROM_APKLIB_DEFAULT );
-            boolean disableConflictingDependenciesWarning = getMojoConfigurationParameter( project,
-                    DISABLE_CONFLICTING_DEPENDENCIES_WARNING_PARAM, DISABLE_CONFLICTING_DEPENDENCIES_WARNING_DEFAULT );
+        boolean includeFromAar = getMojoConfigurationParameter( project, INCLUDE_FROM_AAR_PARAM,
+                INCLUDE_FROM_AAR_DEFAULT );
+        boolean includeFromApklib = getMojoConfigurationParameter( project, INCLUDE_FROM_APKLIB_PARAM,
+                INCLUDE_FROM_APKLIB_DEFAULT );
+        boolean disableConflictingDependenciesWarning = getMojoConfigurationParameter( project,
+                DISABLE_CONFLICTING_DEPENDENCIES_WARNING_PARAM, DISABLE_CONFLICTING_DEPENDENCIES_WARNING_DEFAULT );
 
-            log.debug( "projects deps: : " + artifacts );
-            
-            if ( !disableConflictingDependenciesWarning )
-            {
-                ProvidedDependencyChecker checker = new ProvidedDependencyChecker();
-                checker.checkProvidedDependencies( artifacts, log );
-            }
-            
-            for ( Artifact artifact : artifacts )
+        log.debug( "projects deps: : " + artifacts );
+        
+        if ( !disableConflictingDependenciesWarning )
+        {
+            ProvidedDependencyChecker checker = new ProvidedDependencyChecker();
+            checker.checkProvidedDependencies( artifacts, log );
+        }
+        
+        for ( Artifact artifact : artifacts )
+        {
+            final String type = artifact.getType();
+            if ( type.equals( AndroidExtension.AAR ) )
             {
-                final String type = artifact.getType();
-                if ( type.equals( AndroidExtension.AAR ) )
-                {
-                    // An AAR lib contains a classes jar that needs to be added to the classpath.
-                    // Create a placeholder classes.jar and add it to the compile classpath.
-                    // It will replaced with the real classes.jar by GenerateSourcesMojo.
-                    addClassesToClasspath( helper, project, artifact );
+                // An AAR lib contains a classes jar that needs to be added to the classpath.
+                // Create a placeholder classes.jar and add it to the compile classpath.
+                // It will replaced with the real classes.jar by GenerateSourcesMojo.
+                addClassesToClasspath( helper, project, artifact );
 
-                    // An AAR may also contain zero or more internal libs in the libs folder.
-                    // If 'includeLibsJarsFromAar' config param is true then include them too.
-                    if ( includeFromAar )
-                    {
-                        // Add jar files in 'libs' into classpath.
-                        addLibsJarsToClassPath( helper, project, artifact );
-                    }
-                }
-                else if ( type.equals( AndroidExtension.APK ) )
+                // An AAR may also contain zero or more internal libs in the libs folder.
+                // If 'includeLibsJarsFromAar' config param is true then include them too.
+                if ( includeFromAar )
                 {
-                    // The only time that an APK will likely be a dependency is when this an an APK test project.
-                    // So add a placeholder (we cannot resolve the actual dep pre build) to the compile classpath.
-                    // The placeholder will be replaced with the real APK jar later.
-                    addClassesToClasspath( helper, project, artifact );
+                    // Add jar files in 'libs' into classpath.
+                    addLibsJarsToClassPath( helper, project, artifact );
                 }
-                else if ( type.equals( AndroidExtension.APKLIB ) )
+            }
+            else if ( type.equals( AndroidExtension.APK ) )
+            {
+                // The only time that an APK will likely be a dependency is when this an an APK test project.
+                // So add a placeholder (we cannot resolve the actual dep pre build) to the compile classpath.
+                // The placeholder will be replaced with the real APK jar later.
+                addClassesToClasspath( helper, project, artifact );
+            }
+            else if ( type.equals( AndroidExtension.APKLIB ) )
+            {
+                if ( includeFromApklib ) 
                 {
-                    if ( includeFromApklib ) 
-                    {
-                      // Add jar files in 'libs' into classpath.
-                      addLibsJarsToClassPath( helper, project, artifact );
-                    }
+                  // Add jar files in 'libs' into classpath.
+                  addLibsJarsToClassPath( helper, project, artifact );
                 }
             }
         }
-
-        if ( addedJarFromLibs )
-        {
-            log.warn(
-                    "Transitive dependencies should really be provided by Maven dependency management.\n"
-        + "          We suggest you to ask the above providers to package their component properly.\n"
-        + "          Things may break at compile and/or runtime due to multiple copies of incompatible libraries." );
-        }
-        log.debug( "" );
-        log.debug( "ClasspathModifierLifecycleParticipant#afterProjectsRead - finish" );
     }
 
     private String getMojoConfigurationParameter( MavenProject project, String name, String defaultValue )
@@ -226,52 +302,39 @@ public final class ClasspathModifierLifecycleParticipant extends AbstractMavenLi
     private void addLibsJarsToClassPath( UnpackedLibHelper helper, MavenProject project, Artifact artifact )
         throws MavenExecutionException
     {
-         try
-         {
-             final File unpackLibFolder = helper.getUnpackedLibFolder( artifact );
-             final File artifactFile = helper.getArtifactToFile( artifact );
-             ZipFile zipFile = new ZipFile( artifactFile );
-             Enumeration enumeration = zipFile.entries();
-             while ( enumeration.hasMoreElements() )
-             {
-                 ZipEntry entry = ( ZipEntry )  enumeration.nextElement();
-                 String entryName = entry.getName();
-
-                 // Only jar files under 'libs' directory to be processed.
-                 if ( Pattern.matches( "^libs/.+\\.jar$", entryName ) )
-                 {
-                     final File libsJarFile = new File( unpackLibFolder, entryName );
-                     log.warn( "Adding jar from libs folder to classpath: " + libsJarFile );
+        try
+        {
+            final File unpackLibFolder = helper.getUnpackedLibFolder( artifact );
+            // Only jar files under 'libs' directory to be processed.
+            for ( final String entryName : helper.getArchiveIndex( artifact ).getFiles( "libs/", ".jar" ) )
+            {
+                final File libsJarFile = new File( unpackLibFolder, entryName );
+                log.warn( "Adding jar from libs folder to classpath: " + libsJarFile );
 
-                     // In order to satisfy the LifecycleDependencyResolver on execution up to a phase that
-                     // has a Mojo requiring dependency resolution I need to create a dummy classesJar here.
-                     if ( !libsJarFile.getParentFile().exists() )
-                     {
-                         libsJarFile.getParentFile().mkdirs();
-                     }
-                     libsJarFile.createNewFile();
+                // In order to satisfy the LifecycleDependencyResolver on execution up to a phase that
+                // has a Mojo requiring dependency resolution I need to create a dummy classesJar here.
+                if ( !libsJarFile.getParentFile().exists() )
+                {
+                    libsJarFile.getParentFile().mkdirs();
+                }
+                libsJarFile.createNewFile();
 
-                     // Add the jar to the classpath.
-                     final Dependency dependency =
-                            createSystemScopeDependency( artifact, libsJarFile, libsJarFile.getName() );
+                // Add the jar to the classpath.
+                final Dependency dependency =
+                        createSystemScopeDependency( artifact, libsJarFile, libsJarFile.getName() );
 
-                     project.getModel().addDependency( dependency );
-                     addedJarFromLibs = true;
-                 }
-             }
-         }
-         catch ( MojoExecutionException e )
-         {
-             log.debug( "Error extract jars" );
-         }
-         catch ( ZipException e )
-         {
-             log.debug( "Error" );
-         }
-         catch ( IOException e )
-         {
-             log.debug( "Error" );
-         }
+                project.getModel().addDependency( dependency );
+                addedJarFromLibs = true;
+            }
+        }
+        catch ( MojoExecutionException e )
+        {
+            log.debug( "Error extract jars" );
+        }
+        catch ( IOException e )
+        {
+            log.debug( "Error" );
+        }
     }
 
     /**
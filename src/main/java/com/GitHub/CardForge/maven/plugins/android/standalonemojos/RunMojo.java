@@ -23,6 +23,7 @@ import com.android.ddmlib.ShellCommandUnresponsiveException;
 import com.android.ddmlib.TimeoutException;
 import com.github.cardforge.maven.plugins.android.AbstractAndroidMojo;
 import com.github.cardforge.maven.plugins.android.DeviceCallback;
+import com.github.cardforge.maven.plugins.android.common.AndroidManifestMetadata;
 import com.github.cardforge.maven.plugins.android.common.DeviceHelper;
 import com.github.cardforge.maven.plugins.android.config.ConfigHandler;
 import com.github.cardforge.maven.plugins.android.config.ConfigPojo;
@@ -33,18 +34,6 @@ import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
-import org.w3c.dom.Document;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpression;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 
 import java.io.IOException;
 
@@ -206,95 +195,28 @@ public class RunMojo extends AbstractAndroidMojo
     // ----------------------------------------------------------------------
 
     /**
-     * Gets the first "Launcher" Activity by running an XPath query on <code>AndroidManifest.xml</code>.
+     * Gets the first "Launcher" Activity declared in <code>AndroidManifest.xml</code>.
      *
      * @return A {@link LauncherInfo}
-     * @throws MojoFailureException
-     * @throws ParserConfigurationException
-     * @throws IOException
-     * @throws SAXException
-     * @throws XPathExpressionException
+     * @throws MojoFailureException if there is no launcher activity in the manifest.
+     * @throws MojoExecutionException if the manifest could not be read.
      */
-    private LauncherInfo getLauncherActivity()
-            throws ParserConfigurationException, SAXException, IOException, XPathExpressionException,
-            MojoFailureException
+    private LauncherInfo getLauncherActivity() throws MojoFailureException, MojoExecutionException
     {
-        Document document;
-        DocumentBuilder documentBuilder;
-        DocumentBuilderFactory documentBuilderFactory;
-        Object result;
-        XPath xPath;
-        XPathExpression xPathExpression;
-        XPathFactory xPathFactory;
-
-        //
-        // Setup JAXP stuff
-        //
-        documentBuilderFactory = DocumentBuilderFactory.newInstance();
-
-        documentBuilder = documentBuilderFactory.newDocumentBuilder();
-
-        document = documentBuilder.parse( destinationManifestFile );
-
-        xPathFactory = XPathFactory.newInstance();
-
-        xPath = xPathFactory.newXPath();
-
-        xPathExpression = xPath.compile(
-                "//manifest/application/activity/intent-filter[action[@name=\"android.intent.action.MAIN\"] "
-                + "and category[@name=\"android.intent.category.LAUNCHER\"]]/.." );
-
-        //
-        // Run XPath query
-        //
-        result = xPathExpression.evaluate( document, XPathConstants.NODESET );
-
-        if ( result instanceof NodeList )
+        final AndroidManifestMetadata manifest = getAndroidManifestMetadata( destinationManifestFile );
+        if ( manifest.getLauncherActivity() == null )
         {
-            NodeList activities;
-
-            activities = ( NodeList ) result;
-
-            if ( activities.getLength() > 0 )
-            {
-                // Grab the first declared Activity
-                LauncherInfo launcherInfo;
-
-                launcherInfo = new LauncherInfo();
-                String activityName = activities.item( 0 ).getAttributes().getNamedItem( "android:name" )
-                        .getNodeValue();
-
-                if ( ! activityName.contains( "." ) )
-                {
-                    activityName = "." + activityName;
-                }
-
-                if ( activityName.startsWith( "." ) )
-                {
-                    String packageName = document.getElementsByTagName( "manifest" ).item( 0 ).getAttributes()
-                            .getNamedItem( "package" ).getNodeValue();
-                    activityName = packageName + activityName;
-                }
-
-                launcherInfo.activity = activityName;
+            // If we get here, we couldn't find a launcher activity.
+            throw new MojoFailureException( "Could not find a launcher activity in manifest" );
+        }
 
-                launcherInfo.packageName = renameManifestPackage != null
-                    ? renameManifestPackage
-                    : document.getDocumentElement().getAttribute( "package" ).toString();
+        final LauncherInfo launcherInfo = new LauncherInfo();
+        launcherInfo.activity = manifest.getLauncherActivity();
+        launcherInfo.packageName = renameManifestPackage != null
+            ? renameManifestPackage
+            : manifest.getPackageName();
 
-                return launcherInfo;
-            }
-            else
-            {
-                // If we get here, we couldn't find a launcher activity.
-                throw new MojoFailureException( "Could not find a launcher activity in manifest" );
-            }
-        }
-        else
-        {
-            // If we get here we couldn't find any Activity
-            throw new MojoFailureException( "Could not find any activity in manifest" );
-        }
+        return launcherInfo;
     }
 
     /**
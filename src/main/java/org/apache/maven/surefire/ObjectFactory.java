@@ -83,6 +83,14 @@ public class ObjectFactory {
         return new Testsuite.Testcase.RerunFailure();
     }
 
+    /**
+     * Create an instance of {@link Testsuite.Testcase.FlakyFailure }
+     * 
+     */
+    public Testsuite.Testcase.FlakyFailure createTestsuiteTestcaseFlakyFailure() {
+        return new Testsuite.Testcase.FlakyFailure();
+    }
+
     /**
      * Create an instance of {@link Testsuite.Testcase.Skipped }
      * 
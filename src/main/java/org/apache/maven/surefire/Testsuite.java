@@ -589,6 +589,23 @@ public class Testsuite {
      *             &lt;/simpleContent&gt;
      *           &lt;/complexType&gt;
      *         &lt;/element&gt;
+     *         &lt;element name="flakyFailure" maxOccurs="unbounded" minOccurs="0"&gt;
+     *           &lt;complexType&gt;
+     *             &lt;simpleContent&gt;
+     *               &lt;extension base="&lt;http://www.w3.org/2001/XMLSchema&gt;string"&gt;
+     *                 &lt;attribute name="message" type="{http://www.w3.org/2001/XMLSchema}string" /&gt;
+     *                 &lt;attribute name="type" use="required" type="{http://www.w3.org/2001/XMLSchema}string" /&gt;
+     *                 &lt;attribute name="time"&gt;
+     *                   &lt;simpleType&gt;
+     *                     &lt;restriction base="{http://www.w3.org/2001/XMLSchema}string"&gt;
+     *                       &lt;pattern value="(([0-9]{0,3},)*[0-9]{3}|[0-9]{0,3})*(\.[0-9]{0,3})?"/&gt;
+     *                     &lt;/restriction&gt;
+     *                   &lt;/simpleType&gt;
+     *                 &lt;/attribute&gt;
+     *               &lt;/extension&gt;
+     *             &lt;/simpleContent&gt;
+     *           &lt;/complexType&gt;
+     *         &lt;/element&gt;
      *         &lt;element name="skipped" minOccurs="0"&gt;
      *           &lt;complexType&gt;
      *             &lt;simpleContent&gt;
@@ -632,6 +649,7 @@ public class Testsuite {
     @XmlType(name = "", propOrder = {
         "failure",
         "rerunFailure",
+        "flakyFailure",
         "skipped",
         "error",
         "systemOut",
@@ -643,6 +661,8 @@ public class Testsuite {
         protected List<Testsuite.Testcase.Failure> failure;
         @XmlElement(nillable = true)
         protected List<Testsuite.Testcase.RerunFailure> rerunFailure;
+        @XmlElement(nillable = true)
+        protected List<Testsuite.Testcase.FlakyFailure> flakyFailure;
         @XmlElementRef(name = "skipped", type = JAXBElement.class, required = false)
         protected JAXBElement<Testsuite.Testcase.Skipped> skipped;
         @XmlElementRef(name = "error", type = JAXBElement.class, required = false)
@@ -718,6 +738,35 @@ public class Testsuite {
             return this.rerunFailure;
         }
 
+        /**
+         * Gets the value of the flakyFailure property.
+         * 
+         * <p>
+         * This accessor method returns a reference to the live list,
+         * not a snapshot. Therefore any modification you make to the
+         * returned list will be present inside the JAXB object.
+         * This is why there is not a <CODE>set</CODE> method for the flakyFailure property.
+         * 
+         * <p>
+         * For example, to add a new item, do as follows:
+         * <pre>
+         *    getFlakyFailure().add(newItem);
+         * </pre>
+         * 
+         * 
+         * <p>
+         * Objects of the following type(s) are allowed in the list
+         * {@link Testsuite.Testcase.FlakyFailure }
+         * 
+         * 
+         */
+        public List<Testsuite.Testcase.FlakyFailure> getFlakyFailure() {
+            if (flakyFailure == null) {
+                flakyFailure = new ArrayList<Testsuite.Testcase.FlakyFailure>();
+            }
+            return this.flakyFailure;
+        }
+
         /**
          * Gets the value of the skipped property.
          * 
@@ -1295,6 +1344,145 @@ public class Testsuite {
         }
 
 
+        /**
+         * <p>Java class for anonymous complex type.
+         * 
+         * <p>The following schema fragment specifies the expected content contained within this class.
+         * 
+         * <pre>
+         * &lt;complexType&gt;
+         *   &lt;simpleContent&gt;
+         *     &lt;extension base="&lt;http://www.w3.org/2001/XMLSchema&gt;string"&gt;
+         *       &lt;attribute name="message" type="{http://www.w3.org/2001/XMLSchema}string" /&gt;
+         *       &lt;attribute name="type" use="required" type="{http://www.w3.org/2001/XMLSchema}string" /&gt;
+         *       &lt;attribute name="time"&gt;
+         *         &lt;simpleType&gt;
+         *           &lt;restriction base="{http://www.w3.org/2001/XMLSchema}string"&gt;
+         *             &lt;pattern value="(([0-9]{0,3},)*[0-9]{3}|[0-9]{0,3})*(\.[0-9]{0,3})?"/&gt;
+         *           &lt;/restriction&gt;
+         *         &lt;/simpleType&gt;
+         *       &lt;/attribute&gt;
+         *     &lt;/extension&gt;
+         *   &lt;/simpleContent&gt;
+         * &lt;/complexType&gt;
+         * </pre>
+         * 
+         * 
+         */
+        @XmlAccessorType(XmlAccessType.FIELD)
+        @XmlType(name = "", propOrder = {
+            "value"
+        })
+        public static class FlakyFailure {
+
+            @XmlValue
+            protected String value;
+            @XmlAttribute(name = "message")
+            protected String message;
+            @XmlAttribute(name = "type", required = true)
+            protected String type;
+            @XmlAttribute(name = "time")
+            protected String time;
+
+            /**
+             * Gets the value of the value property.
+             * 
+             * @return
+             *     possible object is
+             *     {@link String }
+             *     
+             */
+            public String getValue() {
+                return value;
+            }
+
+            /**
+             * Sets the value of the value property.
+             * 
+             * @param value
+             *     allowed object is
+             *     {@link String }
+             *     
+             */
+            public void setValue(String value) {
+                this.value = value;
+            }
+
+            /**
+             * Gets the value of the message property.
+             * 
+             * @return
+             *     possible object is
+             *     {@link String }
+             *     
+             */
+            public String getMessage() {
+                return message;
+            }
+
+            /**
+             * Sets the value of the message property.
+             * 
+             * @param value
+             *     allowed object is
+             *     {@link String }
+             *     
+             */
+            public void setMessage(String value) {
+                this.message = value;
+            }
+
+            /**
+             * Gets the value of the type property.
+             * 
+             * @return
+             *     possible object is
+             *     {@link String }
+             *     
+             */
+            public String getType() {
+                return type;
+            }
+
+            /**
+             * Sets the value of the type property.
+             * 
+             * @param value
+             *     allowed object is
+             *     {@link String }
+             *     
+             */
+            public void setType(String value) {
+                this.type = value;
+            }
+
+            /**
+             * Gets the value of the time property.
+             * 
+             * @return
+             *     possible object is
+             *     {@link String }
+             *     
+             */
+            public String getTime() {
+                return time;
+            }
+
+            /**
+             * Sets the value of the time property.
+             * 
+             * @param value
+             *     allowed object is
+             *     {@link String }
+             *     
+             */
+            public void setTime(String value) {
+                this.time = value;
+            }
+
+        }
+
+
         /**
          * <p>Java class for anonymous complex type.
          * 
@@ -0,0 +1,97 @@
+package com.github.cardforge;
+
+import com.android.ddmlib.IDevice;
+import com.github.cardforge.maven.plugins.android.AbstractInstrumentationMojo;
+import com.github.cardforge.maven.plugins.android.AndroidTestRunListener;
+import com.github.cardforge.maven.plugins.android.DeviceCallback;
+import com.github.cardforge.maven.plugins.android.DeviceResult;
+import com.github.cardforge.maven.plugins.android.asm.ClassDependencyGraph;
+import com.github.cardforge.maven.plugins.android.standalonemojos.InstrumentMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.easymock.EasyMock;
+import org.fest.reflect.core.Reflection;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.powermock.api.easymock.PowerMock;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+import org.powermock.reflect.Whitebox;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith( PowerMockRunner.class )
+@PrepareForTest( AbstractInstrumentationMojo.class )
+public class AbstractInstrumentationMojoTest
+{
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void givenTestsFailingOnEveryDeviceWhenFailSafeThenNoImpactBaselineIsSaved() throws Exception
+    {
+        // every rerun on another device still has failed tests
+        PowerMock.replace( Whitebox.getMethod( AbstractInstrumentationMojo.class, "rerunFailedTests",
+                IDevice.class, AndroidTestRunListener.class, String.class ) ).with( new InvocationHandler()
+        {
+            @Override
+            public Object invoke( Object proxy, Method method, Object[] args )
+            {
+                return true;
+            }
+        } );
+
+        final InstrumentMojo mojo = new SequentialInstrumentMojo();
+        final File baselineFile = new File( temporaryFolder.getRoot(), "test-impact.txt" );
+        Reflection.field( "testFailSafe" ).ofType( Boolean.class ).in( mojo ).set( true );
+        Reflection.field( "parsedImpactBaseline" ).ofType( File.class ).in( mojo ).set( baselineFile );
+        Reflection.field( "impactGraph" ).ofType( ClassDependencyGraph.class ).in( mojo ).set(
+                ClassDependencyGraph.build( Collections.<File>emptyList(), Collections.<File>emptyList() ) );
+        Reflection.field( "testsPassed" ).ofType( boolean.class ).in( mojo ).set( true );
+
+        final List<IDevice> devices = Arrays.asList( EasyMock.createNiceMock( IDevice.class ),
+                EasyMock.createNiceMock( IDevice.class ) );
+        EasyMock.replay( devices.get( 0 ), devices.get( 1 ) );
+        final Map<IDevice, AndroidTestRunListener> failedRuns = Reflection.field( "failedRuns" )
+                .ofType( Map.class ).in( mojo ).get();
+        for ( IDevice device : devices )
+        {
+            failedRuns.put( device, null );
+        }
+
+        Whitebox.invokeMethod( mojo, "rerunOnOtherDevices", devices );
+        Whitebox.invokeMethod( mojo, "saveImpactBaseline" );
+
+        assertThat( Reflection.field( "testsPassed" ).ofType( boolean.class ).in( mojo ).get(), is( false ) );
+        assertThat( baselineFile.exists(), is( false ) );
+    }
+
+    /**
+     * Runs the callback on each device in turn, without connecting to them.
+     */
+    private static class SequentialInstrumentMojo extends InstrumentMojo
+    {
+        @Override
+        protected List<DeviceResult> doWithDevices( List<IDevice> devices, DeviceCallback deviceCallback )
+                throws MojoExecutionException, MojoFailureException
+        {
+            for ( IDevice device : devices )
+            {
+                deviceCallback.doWithDevice( device );
+            }
+            return new ArrayList<DeviceResult>();
+        }
+    }
+}
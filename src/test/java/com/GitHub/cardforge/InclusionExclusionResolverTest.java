@@ -3,6 +3,7 @@ package com.github.cardforge;
 import java.util.Collection;
 import java.util.LinkedHashSet;
 
+import com.github.cardforge.maven.plugins.android.InclusionExclusionResolver;
 import org.apache.maven.artifact.Artifact;
 import org.junit.Test;
 
@@ -10,11 +11,13 @@ import static java.util.Arrays.asList;
 import static java.util.Collections.emptySet;
 import static java.util.Collections.singleton;
 
+import static com.github.cardforge.maven.plugins.android.InclusionExclusionResolver.compile;
 import static com.github.cardforge.maven.plugins.android.InclusionExclusionResolver.filterArtifacts;
 import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 public class InclusionExclusionResolverTest
 {
@@ -199,6 +202,34 @@ public class InclusionExclusionResolverTest
         filterArtifacts( ALL, false, null, null, singleton( "G1:A1:V:X" ), null );
     }
 
+    @Test
+    public void testCompiledFilterIsReused()
+    {
+        final InclusionExclusionResolver.Filter filter
+                = compile( false, null, singleton( "jar" ), asList( "G2:A1", "G1:A3" ), null );
+        assertSame( filter, compile( false, null, singleton( "jar" ), asList( "G2:A1", "G1:A3" ), null ) );
+        assertEquals(
+                "Compiled filter must give the same result as filterArtifacts",
+                filterArtifacts( ALL, false, null, singleton( "jar" ), asList( "G2:A1", "G1:A3" ), null ),
+                filter.filter( ALL )
+        );
+    }
+
+    @Test
+    public void testBlankQualifiersAreIgnored()
+    {
+        assertEquals(
+                "Blank qualifiers must not exclude anything",
+                ALL,
+                filterArtifacts( ALL, false, null, null, null, asList( "", "  " ) )
+        );
+        assertEquals(
+                "Qualifier parts must be trimmed",
+                collect( A2, A3, A5 ),
+                filterArtifacts( ALL, false, null, null, null, asList( " G1 : A1 ", "G1:A3: 2.0-rc" ) )
+        );
+    }
+
     private static Collection<Artifact> collect( Artifact... artifacts )
     {
         return new LinkedHashSet< Artifact >( asList( artifacts ) );
@@ -0,0 +1,86 @@
+package com.github.cardforge;
+
+import com.github.cardforge.maven.plugins.android.JUnitReportWriter;
+import com.github.cardforge.maven.plugins.android.TestReportMerger;
+
+import org.apache.maven.surefire.ObjectFactory;
+import org.apache.maven.surefire.Testsuite;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class JUnitReportWriterTest
+{
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void reportIsReadableBeforeItIsFinished() throws Exception
+    {
+        final File reportFile = temporaryFolder.newFile( "TEST-device.xml" );
+        final JUnitReportWriter writer = new JUnitReportWriter( reportFile, "suite",
+                Collections.singletonMap( "ro.product.model", "Nexus <5>" ) );
+        try
+        {
+            writer.writeTestcase( createTestcase( "testFirst", false ) );
+            writer.writeTestcase( createTestcase( "testSecond", true ) );
+
+            final Testsuite suite = read( reportFile );
+            assertThat( suite.getName(), is( "suite" ) );
+            assertThat( suite.getTestcase().size(), is( 2 ) );
+            assertThat( suite.getTestcase().get( 1 ).getError().getValue().getMessage(), is( "boom" ) );
+            assertThat( suite.getProperties().get( 0 ).getProperty().get( 0 ).getValue(), is( "Nexus <5>" ) );
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void finishedReportHasTheTotals() throws Exception
+    {
+        final File reportFile = temporaryFolder.newFile( "TEST-device.xml" );
+        final JUnitReportWriter writer = new JUnitReportWriter( reportFile, "suite",
+                Collections.<String, String>emptyMap() );
+        writer.writeTestcase( createTestcase( "testFirst", false ) );
+        writer.writeTestcase( createTestcase( "testSecond", true ) );
+
+        writer.finish( 2, 0, 1, 0, "0.200" );
+
+        final Testsuite suite = read( reportFile );
+        assertThat( suite.getTestcase().size(), is( 2 ) );
+        assertThat( suite.getTests(), is( "2" ) );
+        assertThat( suite.getErrors(), is( "1" ) );
+        assertThat( suite.getFailures(), is( "0" ) );
+        assertThat( temporaryFolder.getRoot().list().length, is( 1 ) );
+    }
+
+    private Testsuite read( File reportFile ) throws Exception
+    {
+        return TestReportMerger.merge( "suite", Collections.singletonList( reportFile ) );
+    }
+
+    private Testsuite.Testcase createTestcase( String name, boolean error )
+    {
+        final Testsuite.Testcase testcase = new Testsuite.Testcase();
+        testcase.setClassname( "ATest" );
+        testcase.setName( name );
+        testcase.setTime( "0.100" );
+        if ( error )
+        {
+            final Testsuite.Testcase.Error testError = new Testsuite.Testcase.Error();
+            testError.setValue( "java.lang.IllegalStateException: boom" );
+            testError.setMessage( "boom" );
+            testError.setType( "java.lang.IllegalStateException" );
+            testcase.setError( new ObjectFactory().createTestsuiteTestcaseError( testError ) );
+        }
+        return testcase;
+    }
+}
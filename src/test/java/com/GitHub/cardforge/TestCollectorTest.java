@@ -0,0 +1,61 @@
+package com.github.cardforge;
+
+import com.android.ddmlib.testrunner.TestIdentifier;
+import com.github.cardforge.maven.plugins.android.TestCollector;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TestCollectorTest
+{
+    @Test
+    public void testsNotRunAreNamedByClassOrMethod() throws Exception
+    {
+        final TestIdentifier a1 = new TestIdentifier( "ATest", "test1" );
+        final TestIdentifier a2 = new TestIdentifier( "ATest", "test2" );
+        final TestIdentifier a3 = new TestIdentifier( "ATest", "test3" );
+        final TestIdentifier b1 = new TestIdentifier( "BTest", "test1" );
+        final TestIdentifier c1 = new TestIdentifier( "CTest", "test1" );
+        final TestCollector testCollector = new TestCollector();
+        for ( TestIdentifier test : Arrays.asList( a1, a2, a3, b1, c1 ) )
+        {
+            testCollector.testStarted( test );
+            testCollector.testEnded( test, Collections.<String, String>emptyMap() );
+        }
+
+        assertThat( testCollector.getTestsNotIn( Arrays.asList( a1, a2, c1 ) ),
+                is( Arrays.asList( "ATest#test3", "BTest" ) ) );
+    }
+
+    @Test
+    public void noTestsAreLeftOnceAllRan() throws Exception
+    {
+        final TestIdentifier test = new TestIdentifier( "ATest", "test1" );
+        final TestCollector testCollector = new TestCollector();
+        testCollector.testStarted( test );
+
+        assertThat( testCollector.getTestsNotIn( Collections.singletonList( test ) ).isEmpty(), is( true ) );
+    }
+
+    @Test
+    public void testNamesAreBatchedWithinTheMaximumLength() throws Exception
+    {
+        // "ATest#test1,ATest#test2" is 23 characters
+        assertThat( TestCollector.batch( Arrays.asList( "ATest#test1", "ATest#test2", "ATest#test3", "BTest" ), 23 ),
+                is( Arrays.asList( Arrays.asList( "ATest#test1", "ATest#test2" ),
+                        Arrays.asList( "ATest#test3", "BTest" ) ) ) );
+    }
+
+    @Test
+    public void nameLongerThanTheMaximumLengthGetsABatchOfItsOwn() throws Exception
+    {
+        assertThat( TestCollector.batch( Arrays.asList( "A", "ALongTestName", "B" ), 5 ),
+                is( Arrays.asList( Collections.singletonList( "A" ), Collections.singletonList( "ALongTestName" ),
+                        Collections.singletonList( "B" ) ) ) );
+    }
+}
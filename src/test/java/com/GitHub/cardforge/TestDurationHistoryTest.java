@@ -0,0 +1,47 @@
+package com.github.cardforge;
+
+import com.github.cardforge.maven.plugins.android.TestDurationHistory;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class TestDurationHistoryTest
+{
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void missingHistoryIsEmpty()
+    {
+        final TestDurationHistory history = TestDurationHistory.load( new File( temporaryFolder.getRoot(), "none" ) );
+
+        assertThat( history.getDuration( "ATest" ), is( nullValue() ) );
+    }
+
+    @Test
+    public void durationsAreAddedUpPerClassAndKeptForTheNextBuild() throws IOException
+    {
+        final File historyFile = new File( temporaryFolder.getRoot(), "durations/history.properties" );
+        final TestDurationHistory history = TestDurationHistory.load( historyFile );
+        history.record( "ATest", 100 );
+        history.record( "ATest", 50 );
+        history.record( "BTest", 20 );
+        history.save();
+
+        final TestDurationHistory next = TestDurationHistory.load( historyFile );
+        next.record( "BTest", 30 );
+        next.save();
+
+        final TestDurationHistory loaded = TestDurationHistory.load( historyFile );
+        assertThat( loaded.getDuration( "ATest" ), is( 150L ) );
+        assertThat( loaded.getDuration( "BTest" ), is( 30L ) );
+    }
+}
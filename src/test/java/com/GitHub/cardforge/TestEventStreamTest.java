@@ -0,0 +1,41 @@
+package com.github.cardforge;
+
+import com.github.cardforge.maven.plugins.android.TestEventStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TestEventStreamTest
+{
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void eventsAreWrittenOnePerLine() throws Exception
+    {
+        final File file = new File( temporaryFolder.getRoot(), "events/test-events.jsonl" );
+        final TestEventStream stream = TestEventStream.open( file.getPath(), new SystemStreamLog() );
+        stream.emit( "testEnded", "emulator-5554", TestEventStream.fields( "class", "ATest", "duration", 12L,
+                "metrics", Collections.singletonMap( "frames", "60" ) ) );
+        stream.emit( "runEnded", "emulator-5554" );
+        stream.close();
+
+        final List<String> lines = FileUtils.readLines( file, "UTF-8" );
+        assertThat( lines.size(), is( 2 ) );
+        assertThat( lines.get( 0 ), containsString( "\"event\":\"testEnded\",\"serial\":\"emulator-5554\"" ) );
+        assertThat( lines.get( 0 ), containsString( "\"class\":\"ATest\",\"duration\":12,"
+                + "\"metrics\":{\"frames\":\"60\"}" ) );
+        assertThat( lines.get( 1 ), containsString( "\"event\":\"runEnded\"" ) );
+    }
+}
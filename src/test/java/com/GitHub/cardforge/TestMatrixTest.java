@@ -0,0 +1,83 @@
+package com.github.cardforge;
+
+import com.github.cardforge.maven.plugins.android.TestMatrix;
+
+import org.apache.maven.surefire.Testsuite;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class TestMatrixTest
+{
+    @Test
+    public void resultsAreComparedByTestAndDevice()
+    {
+        final TestMatrix matrix = new TestMatrix();
+        matrix.add( "fast", createSuite( createTestcase( "testA", "1.000", false ),
+                createTestcase( "testB", "2.500", false ) ) );
+        matrix.add( "slow", createSuite( createTestcase( "testA", "0.500", true ),
+                createTestcase( "testB", "3.000", false ) ) );
+
+        assertThat( matrix.getResult( "ATest#testA", "fast" ), is( TestMatrix.PASSED ) );
+        assertThat( matrix.getResult( "ATest#testA", "slow" ), is( TestMatrix.FAILED ) );
+        assertThat( matrix.isConsistent( "ATest#testA" ), is( false ) );
+        assertThat( matrix.isConsistent( "ATest#testB" ), is( true ) );
+        assertThat( matrix.isConsistent(), is( false ) );
+        assertThat( matrix.count( "slow", TestMatrix.FAILED ), is( 1 ) );
+        assertThat( matrix.getSlowestTests( "fast", 1 ), is( Arrays.asList( "ATest#testB" ) ) );
+    }
+
+    @Test
+    public void testMissingOnADeviceIsInconsistent()
+    {
+        final TestMatrix matrix = new TestMatrix();
+        matrix.add( "first", createSuite( createTestcase( "testA", "1.000", false ) ) );
+        matrix.add( "second", createSuite() );
+
+        assertThat( matrix.getResult( "ATest#testA", "second" ), is( nullValue() ) );
+        assertThat( matrix.isConsistent( "ATest#testA" ), is( false ) );
+    }
+
+    @Test
+    public void suiteFailsATestOnceForEachDeviceItFailedOn()
+    {
+        final TestMatrix matrix = new TestMatrix();
+        matrix.add( "first", createSuite( createTestcase( "testA", "1.000", true ) ) );
+        matrix.add( "second", createSuite( createTestcase( "testA", "1.000", true ) ) );
+        matrix.add( "third", createSuite( createTestcase( "testA", "1.000", false ) ) );
+
+        final Testsuite suite = matrix.toTestsuite( "matrix" );
+
+        assertThat( suite.getTests(), is( "1" ) );
+        assertThat( suite.getFailures(), is( "1" ) );
+        assertThat( suite.getTestcase().get( 0 ).getFailure().size(), is( 2 ) );
+        assertThat( suite.getTestcase().get( 0 ).getFailure().get( 1 ).getMessage(), is( "second: expected" ) );
+    }
+
+    private Testsuite createSuite( Testsuite.Testcase... testcases )
+    {
+        final Testsuite suite = new Testsuite();
+        suite.getTestcase().addAll( Arrays.asList( testcases ) );
+        return suite;
+    }
+
+    private Testsuite.Testcase createTestcase( String name, String time, boolean failed )
+    {
+        final Testsuite.Testcase testcase = new Testsuite.Testcase();
+        testcase.setClassname( "ATest" );
+        testcase.setName( name );
+        testcase.setTime( time );
+        if ( failed )
+        {
+            final Testsuite.Testcase.Failure failure = new Testsuite.Testcase.Failure();
+            failure.setMessage( "expected" );
+            failure.setType( "java.lang.AssertionError" );
+            testcase.getFailure().add( failure );
+        }
+        return testcase;
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.cardforge;
+
+import com.github.cardforge.maven.plugins.android.TestQueue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class TestQueueTest
+{
+    @Test
+    public void classesWithoutDurationComeFirstThenLongestFirst() throws Exception
+    {
+        final Map<String, Long> durations = new HashMap<String, Long>();
+        durations.put( "A", 10L );
+        durations.put( "B", 100L );
+
+        final TestQueue queue = new TestQueue( Arrays.asList( "A", "B", "C" ), durations );
+
+        assertThat( queue.take(), is( "C" ) );
+        assertThat( queue.take(), is( "B" ) );
+        assertThat( queue.take(), is( "A" ) );
+    }
+
+    @Test
+    public void drainedQueueReturnsNullOnceAllClassesAreDone() throws Exception
+    {
+        final TestQueue queue = new TestQueue( Collections.singletonList( "A" ),
+                Collections.<String, Long>emptyMap() );
+
+        queue.done( queue.take() );
+
+        assertThat( queue.take(), is( nullValue() ) );
+        assertThat( queue.getRemaining().isEmpty(), is( true ) );
+    }
+
+    @Test
+    public void classPutBackIsTakenByAWaitingDevice() throws Exception
+    {
+        final TestQueue queue = new TestQueue( Collections.singletonList( "A" ),
+                Collections.<String, Long>emptyMap() );
+        final String taken = queue.take();
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            final Future<String> otherDevice = executor.submit( new Callable<String>()
+            {
+                @Override
+                public String call() throws Exception
+                {
+                    return queue.take();
+                }
+            } );
+            queue.putBack( taken );
+
+            assertThat( otherDevice.get( 10, TimeUnit.SECONDS ), is( "A" ) );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+}
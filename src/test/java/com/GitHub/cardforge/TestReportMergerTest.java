@@ -0,0 +1,111 @@
+package com.github.cardforge;
+
+import com.github.cardforge.maven.plugins.android.TestReportMerger;
+
+import org.apache.maven.surefire.ObjectFactory;
+import org.apache.maven.surefire.Testsuite;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.text.DecimalFormat;
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class TestReportMergerTest
+{
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void reportsAreMergedIntoOneSuite() throws Exception
+    {
+        final File first = writeReport( "first.xml", "ATest", 1, 0.5 );
+        final File second = writeReport( "second.xml", "BTest", 0, 1.25 );
+
+        final Testsuite merged = TestReportMerger.merge( "merged", Arrays.asList( first, second ) );
+
+        assertThat( merged.getName(), is( "merged" ) );
+        assertThat( merged.getTestcase().size(), is( 2 ) );
+        assertThat( merged.getTestcase().get( 0 ).getClassname(), is( "ATest" ) );
+        assertThat( merged.getTestcase().get( 1 ).getClassname(), is( "BTest" ) );
+        assertThat( merged.getTests(), is( "2" ) );
+        assertThat( merged.getErrors(), is( "1" ) );
+        assertThat( merged.getFailures(), is( "0" ) );
+        assertThat( merged.getSkipped(), is( "0" ) );
+        assertThat( Double.parseDouble( merged.getTime().replace( ',', '.' ) ), is( 1.75 ) );
+    }
+
+    @Test
+    public void testPassingInARerunIsFlaky() throws Exception
+    {
+        final File report = writeRun( "run.xml", true );
+        final File rerun = writeRun( "rerun1.xml", false );
+
+        TestReportMerger.applyReruns( report, Arrays.asList( rerun ) );
+
+        final Testsuite suite = TestReportMerger.merge( "run", Arrays.asList( report ) );
+        final Testsuite.Testcase testcase = suite.getTestcase().get( 0 );
+        assertThat( suite.getErrors(), is( "0" ) );
+        assertThat( testcase.getError(), is( nullValue() ) );
+        assertThat( testcase.getFlakyFailure().size(), is( 1 ) );
+        assertThat( testcase.getFlakyFailure().get( 0 ).getMessage(), is( "boom" ) );
+        assertThat( testcase.getRerunFailure().isEmpty(), is( true ) );
+    }
+
+    @Test
+    public void testFailingInEveryRerunKeepsItsError() throws Exception
+    {
+        final File report = writeRun( "run.xml", true );
+        final File firstRerun = writeRun( "rerun1.xml", true );
+        final File secondRerun = writeRun( "rerun2.xml", true );
+
+        TestReportMerger.applyReruns( report, Arrays.asList( firstRerun, secondRerun ) );
+
+        final Testsuite suite = TestReportMerger.merge( "run", Arrays.asList( report ) );
+        final Testsuite.Testcase testcase = suite.getTestcase().get( 0 );
+        assertThat( suite.getErrors(), is( "1" ) );
+        assertThat( testcase.getError().getValue().getMessage(), is( "boom" ) );
+        assertThat( testcase.getRerunFailure().size(), is( 2 ) );
+        assertThat( testcase.getFlakyFailure().isEmpty(), is( true ) );
+    }
+
+    private File writeRun( String fileName, boolean error ) throws Exception
+    {
+        final File report = writeReport( fileName, "ATest", error ? 1 : 0, 0.5 );
+        if ( error )
+        {
+            final Testsuite suite = TestReportMerger.merge( fileName, Arrays.asList( report ) );
+            final Testsuite.Testcase.Error testError = new Testsuite.Testcase.Error();
+            testError.setValue( "java.lang.IllegalStateException: boom" );
+            testError.setMessage( "boom" );
+            testError.setType( "java.lang.IllegalStateException" );
+            suite.getTestcase().get( 0 ).setError( new ObjectFactory().createTestsuiteTestcaseError( testError ) );
+            TestReportMerger.write( suite, report );
+        }
+        return report;
+    }
+
+    private File writeReport( String fileName, String className, int errors, double time ) throws Exception
+    {
+        final Testsuite suite = new Testsuite();
+        suite.setName( fileName );
+        suite.setTests( "1" );
+        suite.setErrors( Integer.toString( errors ) );
+        suite.setFailures( "0" );
+        suite.setSkipped( "0" );
+        suite.setTime( new DecimalFormat( "#0.000" ).format( time ) );
+        final Testsuite.Testcase testcase = new Testsuite.Testcase();
+        testcase.setClassname( className );
+        testcase.setName( "testSomething" );
+        testcase.setTime( suite.getTime() );
+        suite.getTestcase().add( testcase );
+        final File report = temporaryFolder.newFile( fileName );
+        TestReportMerger.write( suite, report );
+        return report;
+    }
+}
@@ -0,0 +1,74 @@
+package com.github.cardforge;
+
+import com.github.cardforge.maven.plugins.android.TestShards;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TestShardsTest
+{
+    @Rule
+    public final ExpectedException expectedException = ExpectedException.none();
+
+    @Test
+    public void classesAreDealtOutToTheShardsInTurn()
+    {
+        final List<List<String>> shards = TestShards.split( Arrays.asList( "A", "B", "C", "D", "E" ), 2 );
+
+        assertThat( shards, is( Arrays.asList( Arrays.asList( "A", "C", "E" ), Arrays.asList( "B", "D" ) ) ) );
+    }
+
+    @Test
+    public void shardsWithoutClassesAreEmpty()
+    {
+        final List<List<String>> shards = TestShards.split( Collections.singletonList( "A" ), 3 );
+
+        assertThat( shards, is( Arrays.asList( Collections.singletonList( "A" ), Collections.<String>emptyList(),
+                Collections.<String>emptyList() ) ) );
+    }
+
+    @Test
+    public void classesAreBalancedByDurationAndNewClassesSpread()
+    {
+        final Map<String, Long> durations = new HashMap<String, Long>();
+        durations.put( "A", 100L );
+        durations.put( "B", 60L );
+        durations.put( "C", 50L );
+        durations.put( "D", 10L );
+
+        final List<List<String>> shards = TestShards.split( Arrays.asList( "A", "B", "C", "D", "E", "F" ), 2,
+                durations );
+
+        assertThat( shards, is( Arrays.asList( Arrays.asList( "A", "D", "E" ), Arrays.asList( "B", "C", "F" ) ) ) );
+    }
+
+    @Test
+    public void newClassesGoToTheShortestShardsFirst()
+    {
+        final Map<String, Long> durations = new HashMap<String, Long>();
+        durations.put( "A", 100L );
+
+        final List<List<String>> shards = TestShards.split( Arrays.asList( "A", "B", "C", "D" ), 3, durations );
+
+        assertThat( shards, is( Arrays.asList( Arrays.asList( "A", "D" ), Collections.singletonList( "B" ),
+                Collections.singletonList( "C" ) ) ) );
+    }
+
+    @Test
+    public void lessThanOneShardThrows()
+    {
+        expectedException.expect( IllegalArgumentException.class );
+
+        TestShards.split( Arrays.asList( "A" ), 0 );
+    }
+}
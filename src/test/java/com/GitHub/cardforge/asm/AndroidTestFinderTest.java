@@ -16,11 +16,20 @@
 package com.github.cardforge.asm;
 
 import com.github.cardforge.maven.plugins.android.asm.AndroidTestFinder;
+import org.apache.commons.io.FileUtils;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
 
 /**
  * Exercises the {@link AndroidTestFinder} class.
@@ -28,6 +37,9 @@ import java.io.File;
  * @author hugo.josefson@jayway.com
  */
 public class AndroidTestFinderTest {
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void givenDirectoryWithoutTestsThenNoTests() throws MojoExecutionException {
         final boolean result = AndroidTestFinder.containsAndroidTests(new File("target/test-classes/com/github/cardforge/asm/withouttests"));
@@ -39,4 +51,91 @@ public class AndroidTestFinderTest {
         Assert.assertTrue("'withtests' should contain tests.", result);
     }
 
+    @Test
+    public void givenDirectoryWithTestsThenTestClassesAreFound() throws MojoExecutionException {
+        final File directory = new File("target/test-classes/com/github/cardforge/asm/withtests");
+        Assert.assertEquals(Arrays.asList("com.github.cardforge.asm.withtests.TestClassA",
+                "com.github.cardforge.asm.withtests.TestClassB"), AndroidTestFinder.findTestClasses(directory));
+    }
+
+    @Test
+    public void givenDirectoryWithoutTestsThenNoTestClassesAreFound() throws MojoExecutionException {
+        final File directory = new File("target/test-classes/com/github/cardforge/asm/withouttests");
+        Assert.assertEquals(Collections.emptyList(), AndroidTestFinder.findTestClasses(directory));
+    }
+
+    @Test
+    public void givenManyClassesWithTheTestInTheLastPartThenItContainsTests() throws Exception {
+        // enough classes for the search to be split between threads, where there are several processors
+        final File directory = temporaryFolder.newFolder("classes");
+        writeClasses(directory, 2000);
+        writeClass(directory, "zz/LastTest", "junit/framework/TestCase");
+        Assert.assertTrue("The test class in the last part should be found.",
+                AndroidTestFinder.containsAndroidTests(directory));
+    }
+
+    @Test
+    public void givenManyClassesWithoutTestsThenNoTests() throws Exception {
+        final File directory = temporaryFolder.newFolder("classes");
+        writeClasses(directory, 2000);
+        Assert.assertFalse("Classes without tests should not contain any tests.",
+                AndroidTestFinder.containsAndroidTests(directory));
+    }
+
+    @Test
+    public void givenJUnit4ClassesThenTestClassesAreFound() throws Exception {
+        final File directory = temporaryFolder.newFolder("classes");
+        final ClassWriter plain = newClass("a/PlainTest", "java/lang/Object");
+        plain.visitMethod(Opcodes.ACC_PUBLIC, "test", "()V", null, null)
+                .visitAnnotation("Lorg/junit/Test;", true).visitEnd();
+        writeClass(directory, "a/PlainTest", plain);
+        writeClass(directory, "a/InheritedTest", newClass("a/InheritedTest", "a/PlainTest"));
+        final ClassWriter parameterized = newClass("a/ParameterizedTest", "java/lang/Object");
+        parameterized.visitAnnotation("Lorg/junit/runner/RunWith;", true)
+                .visit("value", Type.getObjectType("org/junit/runners/Parameterized"));
+        writeClass(directory, "a/ParameterizedTest", parameterized);
+        writeClass(directory, "a/Helper", newClass("a/Helper", "android/app/Activity"));
+
+        final AndroidTestFinder.TestClasses testClasses = AndroidTestFinder.discoverTestClasses(directory);
+        Assert.assertEquals(Arrays.asList("a.InheritedTest", "a.ParameterizedTest", "a.PlainTest"),
+                testClasses.getTestClasses());
+        Assert.assertEquals(Collections.emptyList(), testClasses.getUnresolvedClasses());
+    }
+
+    @Test
+    public void givenClassesExtendingDependenciesThenTheyAreUnresolved() throws Exception {
+        final File directory = temporaryFolder.newFolder("classes");
+        writeClass(directory, "a/LibraryBasedTest", "com/example/library/BaseTest");
+        final ClassWriter nested = newClass("a/Outer$NestedTest", "java/lang/Object");
+        nested.visitMethod(Opcodes.ACC_PUBLIC, "test", "()V", null, null)
+                .visitAnnotation("Lorg/junit/Test;", true).visitEnd();
+        writeClass(directory, "a/Outer$NestedTest", nested);
+        writeClass(directory, "a/Outer", "java/lang/Object");
+
+        final AndroidTestFinder.TestClasses testClasses = AndroidTestFinder.discoverTestClasses(directory);
+        Assert.assertEquals(Collections.emptyList(), testClasses.getTestClasses());
+        Assert.assertEquals(Arrays.asList("a.LibraryBasedTest", "a.Outer$NestedTest"),
+                testClasses.getUnresolvedClasses());
+    }
+
+    private static void writeClasses(File directory, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            writeClass(directory, String.format("aa/NoTest%04d", i), "java/lang/Object");
+        }
+    }
+
+    private static void writeClass(File directory, String name, String superName) throws IOException {
+        writeClass(directory, name, newClass(name, superName));
+    }
+
+    private static ClassWriter newClass(String name, String superName) {
+        final ClassWriter classWriter = new ClassWriter(0);
+        classWriter.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC, name, null, superName, null);
+        return classWriter;
+    }
+
+    private static void writeClass(File directory, String name, ClassWriter classWriter) throws IOException {
+        classWriter.visitEnd();
+        FileUtils.writeByteArrayToFile(new File(directory, name + ".class"), classWriter.toByteArray());
+    }
 }
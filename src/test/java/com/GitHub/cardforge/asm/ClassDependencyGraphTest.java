@@ -0,0 +1,213 @@
+package com.github.cardforge.asm;
+
+import com.github.cardforge.maven.plugins.android.asm.ClassDependencyGraph;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.hasItems;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+public class ClassDependencyGraphTest
+{
+    private static final File IMPACT_CLASSES = new File( "target/test-classes/com/github/cardforge/asm/impact" );
+    private static final String PACKAGE = "com.github.cardforge.asm.impact.";
+    private static final List<String> TEST_CLASSES = Arrays.asList( PACKAGE + "OtherTest",
+            PACKAGE + "ProductionTest" );
+    private static final List<String> ALL_TEST_CLASSES = Arrays.asList( PACKAGE + "MiddleTest",
+            PACKAGE + "OtherTest", PACKAGE + "ProductionTest" );
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void givenClassesThenTheirDependenciesAreRead() throws Exception
+    {
+        final ClassDependencyGraph graph = ClassDependencyGraph.build( Collections.singletonList( IMPACT_CLASSES ),
+                Collections.<File>emptyList() );
+
+        assertThat( graph.getDependencies( PACKAGE + "ProductionTest" ),
+                hasItems( PACKAGE + "Production", "junit.framework.TestCase" ) );
+    }
+
+    @Test
+    public void givenAChangedClassThenOnlyTestsDependingOnItAreAffected() throws Exception
+    {
+        final File classes = temporaryFolder.newFolder( "classes" );
+        FileUtils.copyDirectory( IMPACT_CLASSES, classes );
+        final File baselineFile = new File( temporaryFolder.getRoot(), "baseline/test-impact.txt" );
+        ClassDependencyGraph.build( Collections.singletonList( classes ), Collections.<File>emptyList() )
+                .save( baselineFile );
+        final ClassDependencyGraph baseline = ClassDependencyGraph.load( baselineFile );
+
+        final ClassDependencyGraph unchanged = ClassDependencyGraph.build( Collections.singletonList( classes ),
+                Collections.<File>emptyList() );
+        assertThat( unchanged.selectAffected( TEST_CLASSES, baseline ), is( Collections.<String>emptyList() ) );
+
+        // trailing bytes change the class file, but not the class
+        FileUtils.writeByteArrayToFile( new File( classes, "Production.class" ), new byte[] { 0 }, true );
+        final ClassDependencyGraph changed = ClassDependencyGraph.build( Collections.singletonList( classes ),
+                Collections.<File>emptyList() );
+
+        assertThat( changed.getChangedClasses( baseline ), is( Collections.singleton( PACKAGE + "Production" ) ) );
+        assertThat( changed.selectAffected( TEST_CLASSES, baseline ),
+                is( Collections.singletonList( PACKAGE + "ProductionTest" ) ) );
+        assertThat( changed.isResourcesChanged( baseline ), is( false ) );
+    }
+
+    @Test
+    public void givenAChangedClassThenTestsReachingItThroughOtherClassesAreAffected() throws Exception
+    {
+        final File classes = temporaryFolder.newFolder( "classes" );
+        FileUtils.copyDirectory( IMPACT_CLASSES, classes );
+        final ClassDependencyGraph baseline = ClassDependencyGraph.build( Collections.singletonList( classes ),
+                Collections.<File>emptyList() );
+
+        FileUtils.writeByteArrayToFile( new File( classes, "Production.class" ), new byte[] { 0 }, true );
+        final ClassDependencyGraph changed = ClassDependencyGraph.build( Collections.singletonList( classes ),
+                Collections.<File>emptyList() );
+
+        assertThat( changed.getDependencies( PACKAGE + "MiddleTest" ), not( hasItem( PACKAGE + "Production" ) ) );
+        assertThat( changed.selectAffected( ALL_TEST_CLASSES, baseline ),
+                is( Arrays.asList( PACKAGE + "MiddleTest", PACKAGE + "ProductionTest" ) ) );
+    }
+
+    @Test
+    public void givenTheTestedAppAsAJarAndAnApkThenTestsReachingItsChangedClassesAreAffected() throws Exception
+    {
+        // the tests are compiled in the project, the classes of the app come in its jar and its apk
+        final File testClasses = temporaryFolder.newFolder( "test-classes" );
+        FileUtils.copyDirectory( IMPACT_CLASSES, testClasses );
+        final byte[] production = FileUtils.readFileToByteArray( new File( testClasses, "Production.class" ) );
+        final byte[] middle = FileUtils.readFileToByteArray( new File( testClasses, "Middle.class" ) );
+        FileUtils.forceDelete( new File( testClasses, "Production.class" ) );
+        FileUtils.forceDelete( new File( testClasses, "Middle.class" ) );
+        final File appJar = new File( temporaryFolder.getRoot(), "app.jar" );
+        final File appApk = new File( temporaryFolder.getRoot(), "app.apk" );
+        final List<File> classpath = Arrays.asList( testClasses, appJar, appApk );
+
+        writeApp( appJar, appApk, production, middle, "<resources/>", "1" );
+        final ClassDependencyGraph baseline = ClassDependencyGraph.build( classpath, Collections.<File>emptyList() );
+
+        // a new build of the app changes its dex and signature along with the class
+        final byte[] changedProduction = Arrays.copyOf( production, production.length + 1 );
+        writeApp( appJar, appApk, changedProduction, middle, "<resources/>", "2" );
+        final ClassDependencyGraph changed = ClassDependencyGraph.build( classpath, Collections.<File>emptyList() );
+
+        assertThat( changed.isResourcesChanged( baseline ), is( false ) );
+        assertThat( changed.selectAffected( ALL_TEST_CLASSES, baseline ),
+                is( Arrays.asList( PACKAGE + "MiddleTest", PACKAGE + "ProductionTest" ) ) );
+
+        writeApp( appJar, appApk, changedProduction, middle, "<resources><string name=\"a\"/></resources>", "3" );
+        final ClassDependencyGraph changedResources = ClassDependencyGraph.build( classpath,
+                Collections.<File>emptyList() );
+
+        assertThat( changedResources.isResourcesChanged( baseline ), is( true ) );
+    }
+
+    @Test
+    public void givenAChangedConstantThenItsClassIsReportedThoughNoClassDependsOnIt() throws Exception
+    {
+        final File classes = temporaryFolder.newFolder( "classes" );
+        writeConstants( classes, "1" );
+        final File baselineFile = new File( temporaryFolder.getRoot(), "baseline/test-impact.txt" );
+        ClassDependencyGraph.build( Collections.singletonList( classes ), Collections.<File>emptyList() )
+                .save( baselineFile );
+        final ClassDependencyGraph baseline = ClassDependencyGraph.load( baselineFile );
+
+        final ClassDependencyGraph unchanged = ClassDependencyGraph.build( Collections.singletonList( classes ),
+                Collections.<File>emptyList() );
+        assertThat( unchanged.getClassesWithChangedConstants( baseline ), is( Collections.<String>emptySet() ) );
+
+        // the classes using the constant hold a copy of its value, and do not refer to its class
+        writeConstants( classes, "2" );
+        final ClassDependencyGraph changed = ClassDependencyGraph.build( Collections.singletonList( classes ),
+                Collections.<File>emptyList() );
+        assertThat( changed.getClassesWithChangedConstants( baseline ),
+                is( Collections.singleton( "com.example.Constants" ) ) );
+    }
+
+    @Test
+    public void givenAChangedManifestThenResourcesAreChanged() throws Exception
+    {
+        final File manifest = temporaryFolder.newFile( "AndroidManifest.xml" );
+        FileUtils.writeStringToFile( manifest, "<manifest/>", "UTF-8" );
+        final ClassDependencyGraph baseline = ClassDependencyGraph.build( Collections.<File>emptyList(),
+                Collections.singletonList( manifest ) );
+
+        FileUtils.writeStringToFile( manifest, "<manifest package=\"a\"/>", "UTF-8" );
+        final ClassDependencyGraph changed = ClassDependencyGraph.build( Collections.<File>emptyList(),
+                Collections.singletonList( manifest ) );
+
+        assertThat( changed.isResourcesChanged( baseline ), is( true ) );
+    }
+
+    @Test
+    public void givenNoBaselineFileThenNoBaselineIsLoaded()
+    {
+        assertThat( ClassDependencyGraph.load( new File( temporaryFolder.getRoot(), "missing.txt" ) ) == null,
+                is( true ) );
+    }
+
+    private static void writeConstants( File classes, String value ) throws IOException
+    {
+        final ClassWriter classWriter = new ClassWriter( 0 );
+        classWriter.visit( Opcodes.V1_6, Opcodes.ACC_PUBLIC, "com/example/Constants", null, "java/lang/Object",
+                null );
+        classWriter.visitField( Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL, "VALUE",
+                "Ljava/lang/String;", null, value ).visitEnd();
+        classWriter.visitEnd();
+        FileUtils.writeByteArrayToFile( new File( classes, "com/example/Constants.class" ),
+                classWriter.toByteArray() );
+    }
+
+    private static void writeApp( File jar, File apk, byte[] production, byte[] middle, String strings, String build )
+            throws IOException
+    {
+        final String path = PACKAGE.replace( '.', '/' );
+        final Map<String, byte[]> jarEntries = new LinkedHashMap<String, byte[]>();
+        jarEntries.put( "META-INF/MANIFEST.MF", ( "Build: " + build ).getBytes( StandardCharsets.UTF_8 ) );
+        jarEntries.put( path + "Production.class", production );
+        jarEntries.put( path + "Middle.class", middle );
+        writeArchive( jar, jarEntries );
+
+        final Map<String, byte[]> apkEntries = new LinkedHashMap<String, byte[]>();
+        apkEntries.put( "AndroidManifest.xml", "<manifest/>".getBytes( StandardCharsets.UTF_8 ) );
+        apkEntries.put( "classes.dex", ( "dex " + build ).getBytes( StandardCharsets.UTF_8 ) );
+        apkEntries.put( "res/values/strings.xml", strings.getBytes( StandardCharsets.UTF_8 ) );
+        apkEntries.put( "META-INF/CERT.SF", ( "signature " + build ).getBytes( StandardCharsets.UTF_8 ) );
+        writeArchive( apk, apkEntries );
+    }
+
+    private static void writeArchive( File archive, Map<String, byte[]> entries ) throws IOException
+    {
+        try ( ZipOutputStream out = new ZipOutputStream( new FileOutputStream( archive ) ) )
+        {
+            for ( Map.Entry<String, byte[]> entry : entries.entrySet() )
+            {
+                out.putNextEntry( new ZipEntry( entry.getKey() ) );
+                out.write( entry.getValue() );
+                out.closeEntry();
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.github.cardforge.asm.impact;
+
+/**
+ * A class which is not a test, uses {@link Production} and is used by {@link MiddleTest}.
+ *
+ * For {@link com.github.cardforge.asm.ClassDependencyGraphTest}.
+ */
+public class Middle
+{
+    public int quadruple( int value )
+    {
+        return new Production().twice( new Production().twice( value ) );
+    }
+}
@@ -0,0 +1,16 @@
+package com.github.cardforge.asm.impact;
+
+import junit.framework.TestCase;
+
+/**
+ * A test which depends on {@link Production} only through {@link Middle}.
+ *
+ * For {@link com.github.cardforge.asm.ClassDependencyGraphTest}.
+ */
+public class MiddleTest extends TestCase
+{
+    public void testQuadruple()
+    {
+        assertEquals( 8, new Middle().quadruple( 2 ) );
+    }
+}
@@ -0,0 +1,16 @@
+package com.github.cardforge.asm.impact;
+
+import junit.framework.TestCase;
+
+/**
+ * A test which does not depend on {@link Production}.
+ *
+ * For {@link com.github.cardforge.asm.ClassDependencyGraphTest}.
+ */
+public class OtherTest extends TestCase
+{
+    public void testSomethingToPleaseJunit()
+    {
+        assertTrue( true );
+    }
+}
@@ -0,0 +1,14 @@
+package com.github.cardforge.asm.impact;
+
+/**
+ * A class which is not a test, used by {@link ProductionTest}.
+ *
+ * For {@link com.github.cardforge.asm.ClassDependencyGraphTest}.
+ */
+public class Production
+{
+    public int twice( int value )
+    {
+        return value * 2;
+    }
+}
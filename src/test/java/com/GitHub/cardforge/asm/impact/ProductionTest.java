@@ -0,0 +1,16 @@
+package com.github.cardforge.asm.impact;
+
+import junit.framework.TestCase;
+
+/**
+ * A test which depends on {@link Production}.
+ *
+ * For {@link com.github.cardforge.asm.ClassDependencyGraphTest}.
+ */
+public class ProductionTest extends TestCase
+{
+    public void testTwice()
+    {
+        assertEquals( 4, new Production().twice( 2 ) );
+    }
+}
@@ -0,0 +1,74 @@
+package com.github.cardforge.common;
+
+import com.github.cardforge.maven.plugins.android.common.AndroidManifestMetadata;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class AndroidManifestMetadataTest
+{
+    private static final String MANIFEST = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+            + "<manifest xmlns:android=\"http://schemas.android.com/apk/res/android\" package=\"com.example.app\">\n"
+            + "  <uses-sdk android:minSdkVersion=\"16\" android:targetSdkVersion=\"26\" />\n"
+            + "  <application>\n"
+            + "    <activity android:name=\".Settings\" />\n"
+            + "    <activity android:name=\"Main\">\n"
+            + "      <intent-filter>\n"
+            + "        <action android:name=\"android.intent.action.MAIN\" />\n"
+            + "        <category android:name=\"android.intent.category.LAUNCHER\" />\n"
+            + "      </intent-filter>\n"
+            + "    </activity>\n"
+            + "  </application>\n"
+            + "  <instrumentation android:name=\"android.test.InstrumentationTestRunner\" />\n"
+            + "</manifest>\n";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void readsManifestValues() throws Exception
+    {
+        final File manifestFile = temporaryFolder.newFile( "AndroidManifest.xml" );
+        FileUtils.writeStringToFile( manifestFile, MANIFEST );
+
+        final AndroidManifestMetadata metadata = AndroidManifestMetadata.forManifest( manifestFile );
+
+        assertEquals( "com.example.app", metadata.getPackageName() );
+        assertEquals( "android.test.InstrumentationTestRunner", metadata.getInstrumentationRunner() );
+        assertEquals( "16", metadata.getMinSdkVersion() );
+        assertEquals( "26", metadata.getTargetSdkVersion() );
+        assertEquals( "com.example.app.Main", metadata.getLauncherActivity() );
+    }
+
+    @Test
+    public void unchangedManifestIsOnlyParsedOnce() throws Exception
+    {
+        final File manifestFile = temporaryFolder.newFile( "AndroidManifest.xml" );
+        FileUtils.writeStringToFile( manifestFile, MANIFEST );
+
+        assertSame( AndroidManifestMetadata.forManifest( manifestFile ),
+                AndroidManifestMetadata.forManifest( manifestFile ) );
+    }
+
+    @Test
+    public void changedManifestIsParsedAgain() throws Exception
+    {
+        final File manifestFile = temporaryFolder.newFile( "AndroidManifest.xml" );
+        FileUtils.writeStringToFile( manifestFile, MANIFEST );
+        assertEquals( "com.example.app", AndroidManifestMetadata.forManifest( manifestFile ).getPackageName() );
+
+        FileUtils.writeStringToFile( manifestFile, "<manifest package=\"com.example.other\" />" );
+        final AndroidManifestMetadata metadata = AndroidManifestMetadata.forManifest( manifestFile );
+
+        assertEquals( "com.example.other", metadata.getPackageName() );
+        assertNull( metadata.getInstrumentationRunner() );
+        assertNull( metadata.getLauncherActivity() );
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.cardforge.common;
+
+import com.github.cardforge.maven.plugins.android.common.ArchiveIndex;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ArchiveIndexTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void listsFilesBelowPrefixWithSuffix() throws IOException
+    {
+        final File aar = createArchive( "R.txt", "libs/", "libs/a.jar", "libs/armeabi/libfoo.so", "libs/sub/b.jar" );
+        final ArchiveIndex index = ArchiveIndex.forArchive( aar );
+
+        assertEquals( Arrays.asList( "libs/a.jar", "libs/sub/b.jar" ), index.getFiles( "libs/", ".jar" ) );
+        assertEquals( Collections.singletonList( "R.txt" ), index.getFiles( "", ".txt" ) );
+        assertTrue( index.hasFilesUnder( "libs/" ) );
+        assertFalse( index.hasFilesUnder( "jni/" ) );
+    }
+
+    @Test
+    public void directoriesAreNotFiles() throws IOException
+    {
+        final File aar = createArchive( "jni/", "jni/armeabi/" );
+        final ArchiveIndex index = ArchiveIndex.forArchive( aar );
+
+        assertEquals( Collections.<String>emptyList(), index.getFiles( "", "" ) );
+        assertFalse( index.hasFilesUnder( "jni/" ) );
+    }
+
+    @Test
+    public void rebuiltArchiveIsReadAgain() throws IOException
+    {
+        final File aar = createArchive( "R.txt" );
+        assertFalse( ArchiveIndex.forArchive( aar ).hasFilesUnder( "jni/" ) );
+
+        writeArchive( aar, "R.txt", "jni/x86/libfoo.so" );
+        aar.setLastModified( aar.lastModified() + 2000 );
+        assertTrue( ArchiveIndex.forArchive( aar ).hasFilesUnder( "jni/" ) );
+    }
+
+    private File createArchive( String... entryNames ) throws IOException
+    {
+        final File archive = temporaryFolder.newFile( "lib.aar" );
+        writeArchive( archive, entryNames );
+        return archive;
+    }
+
+    private static void writeArchive( File archive, String... entryNames ) throws IOException
+    {
+        try ( ZipOutputStream out = new ZipOutputStream( new FileOutputStream( archive ) ) )
+        {
+            for ( String entryName : entryNames )
+            {
+                out.putNextEntry( new ZipEntry( entryName ) );
+                out.closeEntry();
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.github.cardforge.common;
+
+import com.github.cardforge.maven.plugins.android.common.Fingerprint;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class FingerprintTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void sameValuesGiveSameFingerprint()
+    {
+        assertEquals( new Fingerprint().add( "a" ).add( "b" ).getValue(),
+                new Fingerprint().add( "a" ).add( "b" ).getValue() );
+    }
+
+    @Test
+    public void valueBoundariesAreSignificant()
+    {
+        assertNotEquals( new Fingerprint().add( "ab" ).add( "c" ).getValue(),
+                new Fingerprint().add( "a" ).add( "bc" ).getValue() );
+    }
+
+    @Test
+    public void nullDiffersFromEmpty()
+    {
+        assertNotEquals( new Fingerprint().add( (String) null ).getValue(),
+                new Fingerprint().add( "" ).getValue() );
+    }
+
+    @Test
+    public void fileContentIsSignificant() throws Exception
+    {
+        final File file = temporaryFolder.newFile( "input.txt" );
+        FileUtils.writeStringToFile( file, "first" );
+        final String first = new Fingerprint().add( file ).getValue();
+
+        FileUtils.writeStringToFile( file, "second" );
+        final String second = new Fingerprint().add( file ).getValue();
+
+        assertNotEquals( first, second );
+        assertEquals( second, new Fingerprint().add( file ).getValue() );
+    }
+
+    @Test
+    public void missingFileDiffersFromEmptyFile() throws Exception
+    {
+        final File empty = temporaryFolder.newFile( "empty.txt" );
+        final File missing = new File( temporaryFolder.getRoot(), "missing.txt" );
+
+        assertNotEquals( new Fingerprint().add( empty ).getValue(), new Fingerprint().add( missing ).getValue() );
+    }
+}